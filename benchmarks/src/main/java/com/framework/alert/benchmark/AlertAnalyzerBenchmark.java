@@ -0,0 +1,64 @@
+package com.framework.alert.benchmark;
+
+import com.framework.alert.model.CompactAgreementStore;
+import com.framework.alert.model.FrameworkAgreement;
+import com.framework.alert.model.MailContent;
+import com.framework.alert.service.AlertAnalyzer;
+import com.framework.alert.service.ExcelReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 提醒分析：输入为FrameworkAgreement列表和紧凑存储两种形式。工作簿只在准备阶段读取一次，不计入结果
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class AlertAnalyzerBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int rows;
+
+    private List<FrameworkAgreement> agreements;
+    private CompactAgreementStore store;
+    private AlertAnalyzer analyzer;
+    private Date now;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        store = new ExcelReader().readExcelCompact(SyntheticWorkbook.ensure(rows).toString());
+        agreements = new ArrayList<>(store.asList());
+        analyzer = new AlertAnalyzer();
+        // 固定时间，使每次迭代的提醒结果相同
+        now = store.toDate((int) LocalDate.of(2026, 3, 1).toEpochDay());
+    }
+
+    @Benchmark
+    public MailContent analyzeList() {
+        return analyzer.analyzeAlerts(agreements, now);
+    }
+
+    @Benchmark
+    public MailContent analyzeStore() {
+        return analyzer.analyzeAlerts(store, now);
+    }
+}
@@ -0,0 +1,54 @@
+package com.framework.alert.benchmark;
+
+import com.framework.alert.config.AlertOptions;
+import com.framework.alert.service.AlertService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AlertService的吞吐量：所有线程共用一个实例，用-t指定线程数，比较不同线程数下的结果即可看出扩展性，
+ * 如 java -jar target/benchmarks.jar AlertService -p rows=1000 -t 4。结果的正确性由主工程的AlertServiceTest检查
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class AlertServiceBenchmark {
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean snapshot;
+
+    private String workbook;
+    private AlertService service;
+    private Date now;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workbook = SyntheticWorkbook.ensure(rows).toString();
+        service = new AlertService(AlertOptions.defaults().withSnapshot(snapshot));
+        now = new Date();
+    }
+
+    @Benchmark
+    public AlertService.Result run() throws Exception {
+        return service.run(workbook, now);
+    }
+}
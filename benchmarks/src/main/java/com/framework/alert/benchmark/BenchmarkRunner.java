@@ -0,0 +1,49 @@
+package com.framework.alert.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Paths;
+
+/**
+ * 运行基准测试，参数与JMH命令行相同（如 Reader -p rows=1000,10000）。
+ * 默认附加gc（分配速率）和峰值堆内存统计，结果同时写入target/jmh-result.json。
+ * 先生成各规模的工作簿，避免生成时间计入第一个基准。
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListProfilers()
+                || commandLine.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        String[] sizes = commandLine.getParameter("rows").hasValue()
+                ? commandLine.getParameter("rows").get().toArray(new String[0])
+                : new String[]{"1000", "10000", "100000", "1000000"};
+        for (String rows : sizes) {
+            System.out.println("工作簿: " + SyntheticWorkbook.ensure(Integer.parseInt(rows)).toAbsolutePath());
+        }
+
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .addProfiler(PeakHeapProfiler.class)
+                .resultFormat(commandLine.getResultFormat().hasValue()
+                        ? commandLine.getResultFormat().get() : ResultFormatType.JSON)
+                .result(commandLine.getResult().hasValue() ? commandLine.getResult().get() : "target/jmh-result.json");
+        String directory = System.getProperty(SyntheticWorkbook.DIRECTORY_PROPERTY);
+        if (directory != null) {
+            // 用prepend传给测试进程，不覆盖各基准@Fork中的jvmArgsAppend
+            builder.jvmArgsPrepend("-D" + SyntheticWorkbook.DIRECTORY_PROPERTY + "=" + Paths.get(directory).toAbsolutePath());
+        }
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,88 @@
+package com.framework.alert.benchmark;
+
+import com.framework.alert.model.CompactAgreementStore;
+import com.framework.alert.model.MailContent;
+import com.framework.alert.service.AlertAnalyzer;
+import com.framework.alert.service.EmailGenerator;
+import com.framework.alert.service.ExcelReader;
+import com.framework.alert.service.RowFragmentCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 生成提醒邮件HTML：生成字符串、流式写出（丢弃输出）、流式写出并复用表格行缓存
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class EmailGeneratorBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int rows;
+
+    private MailContent content;
+    private EmailGenerator generator;
+    private EmailGenerator cachedGenerator;
+    private CountingOutputStream sink;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        CompactAgreementStore store = new ExcelReader().readExcelCompact(SyntheticWorkbook.ensure(rows).toString());
+        content = new AlertAnalyzer().analyzeAlerts(store, store.toDate((int) LocalDate.of(2026, 3, 1).toEpochDay()));
+        generator = new EmailGenerator();
+        cachedGenerator = new EmailGenerator(new RowFragmentCache(Math.max(content.getTableData().size(), 16)));
+        sink = new CountingOutputStream();
+    }
+
+    @Benchmark
+    public String generateHtmlContent() {
+        return generator.generateHtmlContent(content);
+    }
+
+    @Benchmark
+    public long render() throws IOException {
+        generator.render(content, sink, false);
+        return sink.count;
+    }
+
+    @Benchmark
+    public long renderCached() throws IOException {
+        cachedGenerator.render(content, sink, false);
+        return sink.count;
+    }
+
+    /**
+     * 只统计字节数的输出流
+     */
+    static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
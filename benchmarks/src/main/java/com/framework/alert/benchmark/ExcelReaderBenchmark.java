@@ -0,0 +1,62 @@
+package com.framework.alert.benchmark;
+
+import com.framework.alert.model.CompactAgreementStore;
+import com.framework.alert.model.FrameworkAgreement;
+import com.framework.alert.service.ExcelReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 读取工作簿：读取为FrameworkAgreement列表、读取为紧凑存储，以及读取和解码并行的流水线方式
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ExcelReaderBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int rows;
+
+    private String workbook;
+    private ExcelReader reader;
+    private ExcelReader pipelinedReader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workbook = SyntheticWorkbook.ensure(rows).toString();
+        reader = new ExcelReader();
+        pipelinedReader = new ExcelReader();
+        pipelinedReader.setDecodeThreads(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Benchmark
+    public List<FrameworkAgreement> readExcel() throws Exception {
+        return reader.readExcel(workbook);
+    }
+
+    @Benchmark
+    public CompactAgreementStore readExcelCompact() throws Exception {
+        return reader.readExcelCompact(workbook);
+    }
+
+    @Benchmark
+    public CompactAgreementStore readExcelCompactPipelined() throws Exception {
+        return pipelinedReader.readExcelCompact(workbook);
+    }
+}
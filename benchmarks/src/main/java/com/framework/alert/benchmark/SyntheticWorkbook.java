@@ -0,0 +1,154 @@
+package com.framework.alert.benchmark;
+
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * 生成与正式清单格式相同的测试工作簿：第二个sheet，第1行标题，第2行表头，数据从第3行开始，列A-R。
+ * 相同行数每次生成的内容完全相同（固定随机种子），日期单元格混合了日期格式的数字、文本日期、占位文本和空值。
+ *
+ * 用法: SyntheticWorkbook 输出目录 [行数...]，默认生成1000、10000、100000、1000000行
+ */
+public final class SyntheticWorkbook {
+    public static final String DIRECTORY_PROPERTY = "bench.workbooks";
+
+    private static final long SEED = 20260101L;
+
+    private static final String[] HEADERS = {
+            "序号", "系统名称", "业务归口管理部门", "责任科室", "框架协议名称", "项目起止时间（合同起止时间）",
+            "签订期限", "《事财权审批表》单号", "拟立项需求工作量（人月）", "2026年拟立项金额",
+            "是否签订框架协议/续约", "是否涉及集中采购", "上期协议到期（如有）\n(yyyy/mm/dd)",
+            "计划完成立项日期\n（yyyy/mm/dd）", "计划完成采购日期\n（yyyy/mm/dd）", "计划合同签订日期\n（yyyy/mm/dd）",
+            "责任经办 ", "当前进度"
+    };
+
+    private static final String[] BUSINESS_DEPARTMENTS = {
+            "财务部", "市场部", "运营部", "人力资源部", "风险管理部", "信息部", "采购部", "法律合规部"
+    };
+
+    private static final String[] PROGRESSES = {
+            "", "可研阶段", "立项阶段", "资料整理中", "发起事财权阶段", "合同采购阶段", "采购阶段", "合同用印阶段", "已完成"
+    };
+
+    private static final int DEPARTMENT_COUNT = 30;
+    private static final int PERSON_COUNT = 200;
+
+    private SyntheticWorkbook() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "target/workbooks");
+        int[] sizes = {1_000, 10_000, 100_000, 1_000_000};
+        if (args.length > 1) {
+            sizes = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                sizes[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+        for (int rows : sizes) {
+            System.out.println(ensure(directory, rows));
+        }
+    }
+
+    /**
+     * 返回指定行数的工作簿，不存在时生成。目录默认为target/workbooks，可用-Dbench.workbooks修改
+     */
+    public static Path ensure(int rows) throws IOException {
+        return ensure(Paths.get(System.getProperty(DIRECTORY_PROPERTY, "target/workbooks")), rows);
+    }
+
+    public static Path ensure(Path directory, int rows) throws IOException {
+        Path file = directory.resolve("synthetic-" + rows + ".xlsx");
+        if (!Files.exists(file)) {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "synthetic-" + rows, ".tmp");
+            write(temp, rows);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+
+    public static void write(Path file, int rows) throws IOException {
+        // 使用共享字符串表，与Excel保存的文件一致
+        SXSSFWorkbook workbook = new SXSSFWorkbook(null, 1000, true, true);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            workbook.createSheet("1.信息系统项目");
+            Sheet sheet = workbook.createSheet("2.人月开发框架协议");
+
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat((short) BuiltinFormats.getBuiltinFormat("m/d/yy"));
+
+            sheet.createRow(0).createCell(4).setCellValue("2026年人月框架协议");
+            Row header = sheet.createRow(1);
+            for (int c = 0; c < HEADERS.length; c++) {
+                header.createCell(c).setCellValue(HEADERS[c]);
+            }
+
+            Random random = new Random(SEED);
+            LocalDate base = LocalDate.of(2025, 1, 1);
+            for (int i = 0; i < rows; i++) {
+                Row row = sheet.createRow(i + 2);
+                int department = random.nextInt(DEPARTMENT_COUNT);
+
+                row.createCell(0).setCellValue(i + 1);
+                row.createCell(1).setCellValue("系统" + i);
+                row.createCell(2).setCellValue(BUSINESS_DEPARTMENTS[random.nextInt(BUSINESS_DEPARTMENTS.length)]);
+                // 第0个科室为运营业务开发科，约占1/6
+                row.createCell(3).setCellValue(random.nextInt(6) == 0 ? "运营业务开发科" : "科室" + department);
+                row.createCell(4).setCellValue("系统" + i + "开发框架协议");
+                row.createCell(5).setCellValue("2026-01-01至2026-12-31");
+                row.createCell(6).setCellValue("12个月");
+                row.createCell(7).setCellValue(String.format("SZ2026%07d", i + 1));
+                row.createCell(8).setCellValue(12 + random.nextInt(200));
+                row.createCell(9).setCellValue(100_000 + random.nextInt(2_000_000));
+                row.createCell(10).setCellValue(random.nextBoolean() ? "是" : "否");
+                row.createCell(11).setCellValue(random.nextBoolean() ? "是" : "否");
+
+                LocalDate reference = base.plusDays(random.nextInt(1100));
+                writeDate(row.createCell(12), reference, random, dateStyle, true);
+                writeDate(row.createCell(13), reference.plusDays(15), random, dateStyle, false);
+                writeDate(row.createCell(14), reference.plusDays(45), random, dateStyle, false);
+                writeDate(row.createCell(15), reference.plusDays(75), random, dateStyle, false);
+
+                row.createCell(16).setCellValue("经办" + random.nextInt(PERSON_COUNT));
+                row.createCell(17).setCellValue(PROGRESSES[random.nextInt(PROGRESSES.length)]);
+            }
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * 80%日期格式的数字，10%文本日期，其余为占位文本或空值
+     */
+    private static void writeDate(Cell cell, LocalDate date, Random random, CellStyle dateStyle, boolean allowSentinel) {
+        int kind = random.nextInt(20);
+        if (kind < 16) {
+            cell.setCellValue(java.sql.Date.valueOf(date));
+            cell.setCellStyle(dateStyle);
+        } else if (kind == 16) {
+            cell.setCellValue(date.getYear() + "/" + date.getMonthValue() + "/" + date.getDayOfMonth());
+        } else if (kind == 17) {
+            cell.setCellValue(date.toString());
+        } else if (kind == 18 && allowSentinel) {
+            cell.setCellValue("上期未签订");
+        } else {
+            cell.setBlank();
+        }
+    }
+}
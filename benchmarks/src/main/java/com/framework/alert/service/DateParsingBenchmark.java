@@ -0,0 +1,112 @@
+package com.framework.alert.service;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 日期单元格解码：文本日期解析（有缓存/无缓存）和按单元格类型解码。
+ * 样本的格式比例与SyntheticWorkbook一致，放在service包下是因为SheetCell的构造和赋值方法不公开。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DateParsingBenchmark {
+    private static final int SAMPLES = 4096;
+
+    private String[] texts;
+    private SheetCell[] cells;
+    private DateStringParser cachedParser;
+    private DateStringParser uncachedParser;
+    private CellDecoder<Date> dateDecoder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(20260101L);
+        LocalDate base = LocalDate.of(2025, 1, 1);
+        texts = new String[SAMPLES];
+        cells = new SheetCell[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            LocalDate date = base.plusDays(random.nextInt(1100));
+            switch (i % 5) {
+                case 0:
+                    texts[i] = date.getYear() + "/" + date.getMonthValue() + "/" + date.getDayOfMonth();
+                    break;
+                case 1:
+                    texts[i] = date.toString();
+                    break;
+                case 2:
+                    texts[i] = date.getYear() + "年" + date.getMonthValue() + "月" + date.getDayOfMonth() + "日";
+                    break;
+                case 3:
+                    texts[i] = date + " 00:00:00";
+                    break;
+                default:
+                    texts[i] = "上期未签订";
+                    break;
+            }
+
+            SheetCell cell = new SheetCell(false);
+            if (random.nextInt(10) < 8) {
+                // 日期格式的数字
+                cell.set(CellType.NUMERIC, CellType.BLANK);
+                cell.setNumericValue(DateUtil.getExcelDate(java.sql.Date.valueOf(date)));
+                cell.setDateFormatted(true);
+            } else {
+                cell.set(CellType.STRING, CellType.BLANK);
+                cell.setStringValue(texts[i]);
+            }
+            cells[i] = cell;
+        }
+
+        ZoneId zone = ZoneId.systemDefault();
+        cachedParser = new DateStringParser(zone, 4096);
+        uncachedParser = new DateStringParser(zone, 0);
+        dateDecoder = CellDecoders.date(new DateStringParser(zone, 4096));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void parseMillisCached(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(cachedParser.parseMillis(text));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void parseMillisUncached(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(uncachedParser.parseMillis(text));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void decodeDateCell(Blackhole blackhole) {
+        for (SheetCell cell : cells) {
+            blackhole.consume(dateDecoder.decode(cell));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+// DiffTool.java
+package com.framework.alert;
+
+import com.framework.alert.model.CompactAgreementStore;
+import com.framework.alert.service.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 工作簿变更报告工具：比较同一清单的两个版本，生成列出新增、删除和修改项目的HTML报告。
+ *
+ * 用法: DiffTool 旧版本文件 新版本文件 [输出文件]
+ * 两个文件可以是不同格式（xlsx、xls、csv），同时读取；不指定输出文件时写到当前目录的diff_时间戳.html
+ * （-Dalert.gzip=true时输出.html.gz）。
+ */
+public class DiffTool {
+    private static final Logger logger = LoggerFactory.getLogger(DiffTool.class);
+
+    public static void main(String[] args) {
+        try {
+            if (args.length < 2) {
+                System.out.println("用法: DiffTool 旧版本文件 新版本文件 [输出文件]");
+                return;
+            }
+            String beforePath = args[0];
+            String afterPath = args[1];
+            for (String path : new String[]{beforePath, afterPath}) {
+                if (!new File(path).exists()) {
+                    logger.error("Excel文件不存在: " + path);
+                    return;
+                }
+            }
+            boolean gzip = Boolean.getBoolean("alert.gzip");
+            Path output = Paths.get(args.length > 2 ? args[2]
+                    : "diff_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + (gzip ? ".html.gz" : ".html"));
+
+            long start = System.nanoTime();
+            CompletableFuture<CompactAgreementStore> beforeFuture = CompletableFuture.supplyAsync(() -> read(beforePath));
+            CompactAgreementStore after = read(afterPath);
+            CompactAgreementStore before = beforeFuture.join();
+            long read = System.nanoTime();
+
+            WorkbookDiff diff = WorkbookDiff.compare(before, after);
+            long compared = System.nanoTime();
+            logger.info("读取 {} 条和 {} 条记录耗时 {} 毫秒，比较耗时 {} 毫秒: 新增 {} 条，删除 {} 条，修改 {} 条，未变化 {} 条",
+                    before.size(), after.size(), (read - start) / 1_000_000, (compared - read) / 1_000_000,
+                    diff.getAdded().length, diff.getRemoved().length, diff.getChanges().size(), diff.getUnchangedCount());
+
+            new ChangeReportGenerator().writeHtml(diff, new File(beforePath).getName(), new File(afterPath).getName(), output, gzip);
+            logger.info("变更报告已生成: {}", output);
+        } catch (Exception e) {
+            logger.error("生成变更报告失败", e);
+        }
+    }
+
+    private static CompactAgreementStore read(String path) {
+        try {
+            return new SnapshotCache(AgreementSource.forFile(path)).read(path);
+        } catch (Exception e) {
+            throw new IllegalStateException("读取失败: " + path, e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+// HistoryTool.java
+package com.framework.alert;
+
+import com.framework.alert.service.ProgressHistory;
+import com.framework.alert.service.ProgressTrends;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 进度历史统计工具：读取-Dalert.history=true时记录的.history文件，输出各进度阶段的停留时间或经办人的逾期情况。
+ *
+ * 用法: HistoryTool [Excel文件或.history文件] [选项]
+ * 选项:
+ *   --from yyyy-MM-dd --to yyyy-MM-dd   只统计这段时间内的运行（闭区间）
+ *   --progress 进度                      只输出这个进度阶段
+ *   --late                               输出经办人的逾期情况和推进速度（默认输出停留时间）
+ */
+public class HistoryTool {
+    private static final Logger logger = LoggerFactory.getLogger(HistoryTool.class);
+
+    public static void main(String[] args) {
+        try {
+            String path = "2026年有时限要求事项清单.xlsx";
+            String[] options = args;
+            if (args.length > 0 && !args[0].startsWith("--")) {
+                path = args[0];
+                options = Arrays.copyOfRange(args, 1, args.length);
+            }
+
+            int fromDay = Integer.MIN_VALUE;
+            int toDay = Integer.MAX_VALUE;
+            String progress = null;
+            boolean late = false;
+            for (int i = 0; i < options.length; i++) {
+                String option = options[i];
+                if ("--late".equals(option)) {
+                    late = true;
+                    continue;
+                }
+                if (i + 1 >= options.length) {
+                    System.out.println(option + " 缺少参数");
+                    return;
+                }
+                String value = options[++i];
+                switch (option) {
+                    case "--from": fromDay = (int) LocalDate.parse(value).toEpochDay(); break;
+                    case "--to": toDay = (int) LocalDate.parse(value).toEpochDay(); break;
+                    case "--progress": progress = value; break;
+                    default:
+                        System.out.println("未知的选项: " + option);
+                        return;
+                }
+            }
+
+            Path historyPath = Paths.get(path);
+            if (!path.endsWith(ProgressHistory.SUFFIX)) {
+                historyPath = ProgressHistory.historyPath(historyPath);
+            }
+            if (!Files.exists(historyPath)) {
+                logger.error("历史文件不存在: " + historyPath + "（运行时加-Dalert.history=true记录进度历史）");
+                return;
+            }
+
+            long start = System.nanoTime();
+            ProgressHistory history = ProgressHistory.open(historyPath);
+            ProgressTrends trends = new ProgressTrends(history);
+            logger.info("已打开 {} 次运行的历史，耗时 {} 毫秒", history.getBlocks().size(), (System.nanoTime() - start) / 1_000_000);
+
+            start = System.nanoTime();
+            if (late) {
+                List<ProgressTrends.PersonTrend> persons = trends.personTrends(fromDay, toDay);
+                System.out.println("经办人\t记录数\t逾期记录数\t逾期比例\t最长逾期(天)\t进度变化\t每条每月变化");
+                for (ProgressTrends.PersonTrend person : persons) {
+                    System.out.println(String.join("\t",
+                            person.getPerson(),
+                            String.valueOf(person.getAgreements()),
+                            String.valueOf(person.getLateAgreements()),
+                            String.format("%.1f%%", person.getLateShare() * 100),
+                            String.valueOf(person.getMaxDaysLate()),
+                            String.valueOf(person.getTransitions()),
+                            String.format("%.2f", person.getTransitionsPerMonth())));
+                }
+                System.out.println("共 " + persons.size() + " 人，耗时 " + (System.nanoTime() - start) / 1_000_000 + " 毫秒");
+            } else {
+                List<ProgressTrends.StageDwell> stages = trends.dwellTimes(fromDay, toDay);
+                System.out.println("进度\t已离开\t平均(天)\t中位数(天)\t最长(天)\t仍停留\t仍停留最长(天)");
+                for (ProgressTrends.StageDwell stage : stages) {
+                    if (progress != null && !progress.equals(stage.getProgress())) continue;
+                    System.out.println(String.join("\t",
+                            stage.getProgress().isEmpty() ? "(空)" : stage.getProgress(),
+                            String.valueOf(stage.getCompletedCount()),
+                            String.format("%.1f", stage.getAverageDays()),
+                            String.valueOf(stage.getMedianDays()),
+                            String.valueOf(stage.getMaxDays()),
+                            String.valueOf(stage.getOngoing()),
+                            String.valueOf(stage.getOngoingMaxDays())));
+                }
+                System.out.println("耗时 " + (System.nanoTime() - start) / 1_000_000 + " 毫秒");
+            }
+        } catch (Exception e) {
+            logger.error("统计失败", e);
+        }
+    }
+}
@@ -1,21 +1,30 @@
 // Main.java
 package com.framework.alert;
 
+import com.framework.alert.config.AlertRules;
+import com.framework.alert.config.MailSettings;
+import com.framework.alert.config.StageRule;
+import com.framework.alert.model.CompactAgreementStore;
 import com.framework.alert.model.FrameworkAgreement;
 import com.framework.alert.model.MailContent;
+import com.framework.alert.model.StageAlert;
 import com.framework.alert.service.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.nio.file.Files;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class Main {
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
-    private static final SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss");
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss").withZone(ZoneId.systemDefault());
 
     public static void main(String[] args) {
         try {
@@ -36,32 +45,159 @@ public class Main {
 
             logger.info("读取Excel文件: " + excelFile.getAbsolutePath());
 
-            // 2. 读取Excel
-            ExcelReader excelReader = new ExcelReader();
-            List<FrameworkAgreement> agreements = excelReader.readExcel(excelPath);
+            // -Dalert.watch=true：常驻运行，工作簿保存后自动重新生成提醒（-Dalert.debounce指定合并事件的毫秒数）
+            if (Boolean.getBoolean("alert.watch")) {
+                AlertDaemon daemon = new AlertDaemon(excelFile.toPath(), createAgreementSource(excelPath), new AlertAnalyzer(AlertRules.load()),
+                        Paths.get(""), Boolean.getBoolean("alert.gzip"), Long.getLong("alert.debounce", 500L));
+                Runtime.getRuntime().addShutdownHook(new Thread(daemon::stop));
+                daemon.run();
+                return;
+            }
 
-            if (agreements.isEmpty()) {
-                logger.error("没有读取到任何数据，请检查Excel文件格式");
+            // -Dalert.serve=true：常驻运行，通过HTTP按需提供报告（-Dalert.port指定端口，默认8080）。
+            // 默认只监听本机回环地址，-Dalert.bind指定其他地址（如0.0.0.0监听所有网卡）
+            if (Boolean.getBoolean("alert.serve")) {
+                // JDK的HTTP服务器分两次写出响应头和响应体，默认开着Nagle算法，每个响应都要等客户端的延迟确认（约40毫秒）。
+                // 这个属性在第一次创建服务器时读取；启动时已经指定的话以指定的为准
+                if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+                    System.setProperty("sun.net.httpserver.nodelay", "true");
+                }
+                String bind = System.getProperty("alert.bind");
+                InetAddress address = bind == null || bind.trim().isEmpty()
+                        ? InetAddress.getLoopbackAddress() : InetAddress.getByName(bind.trim());
+                ReportServer server = new ReportServer(excelFile.toPath(), createAgreementSource(excelPath),
+                        new AlertAnalyzer(AlertRules.load()), address, Integer.getInteger("alert.port", 8080),
+                        Integer.getInteger("alert.threads", Runtime.getRuntime().availableProcessors()));
+                Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+                server.start();
                 return;
             }
 
-            // 3. 分析提醒
-            AlertAnalyzer analyzer = new AlertAnalyzer();
-            MailContent mailContent = analyzer.analyzeAlerts(agreements);
+            // 运行指标：各阶段耗时和分配量、行数、日期解析失败、提醒人数，写入alert-metrics.prom和alert-metrics.json
+            // （-Dalert.metrics=false关闭，-Dalert.metricsDir指定目录）
+            RunMetrics metrics = Boolean.parseBoolean(System.getProperty("alert.metrics", "true"))
+                    ? new RunMetrics() : RunMetrics.NONE;
 
-            // 4. 生成HTML
+            // 2. 读取Excel。默认读成记录列表；-Dalert.compact=true时读成列式存储（日期精确到天），
+            //    按科室、按经办人、只提醒新事项、定时和历史记录都基于列式存储，开启这些功能时同样使用。
+            //    列式存储在工作簿未变化时直接使用上次的解析快照（-Dalert.snapshot=false关闭）
+            SheetAgreementSource source = createAgreementSource(excelPath);
+            source.setMetrics(metrics);
+            boolean compact = Boolean.getBoolean("alert.compact") || Boolean.getBoolean("alert.allDepartments")
+                    || Boolean.getBoolean("alert.personDigests") || Boolean.getBoolean("alert.onlyNew")
+                    || Boolean.getBoolean("alert.schedule") || Boolean.getBoolean("alert.history");
+            CompactAgreementStore agreements = null;
+            List<FrameworkAgreement> agreementList = null;
+            if (!compact) {
+                agreementList = source.readAgreements(excelPath);
+            } else if (Boolean.parseBoolean(System.getProperty("alert.snapshot", "true"))) {
+                agreements = new SnapshotCache(source).read(excelPath);
+            } else {
+                agreements = source.readCompact(excelPath);
+            }
+
+            if ((agreements != null ? agreements.size() : agreementList.size()) == 0) {
+                logger.error("没有读取到任何数据，请检查Excel文件格式");
+                return;
+            }
+
+            AlertAnalyzer analyzer = new AlertAnalyzer(AlertRules.load());
             EmailGenerator emailGenerator = new EmailGenerator();
-            String htmlContent = emailGenerator.generateHtmlContent(mailContent);
+            analyzer.setMetrics(metrics);
+            emailGenerator.setMetrics(metrics);
+            boolean gzip = Boolean.getBoolean("alert.gzip");
+            String timestamp = FILE_TIMESTAMP.format(new Date().toInstant());
+
+            // -Dalert.allDepartments=true：为每个责任科室各生成一份报告（-Dalert.threads指定线程数）
+            if (Boolean.getBoolean("alert.allDepartments")) {
+                int threads = Integer.getInteger("alert.threads", Runtime.getRuntime().availableProcessors());
+                Map<String, Path> reports = new DepartmentReportFanout(analyzer, emailGenerator, threads)
+                        .writeReports(agreements, new Date(), Paths.get(""), timestamp, gzip);
+                for (Map.Entry<String, Path> report : reports.entrySet()) {
+                    logger.info("{} 提醒邮件已生成: {}", report.getKey(), report.getValue());
+                }
+                recordHistory(excelFile, agreements);
+                if (Boolean.getBoolean("alert.mail")) {
+                    logger.warn("没有配置各科室的收件人，按科室生成的报告不发送邮件");
+                }
+                writeMetrics(metrics);
+                logger.info("程序执行完成");
+                return;
+            }
+
+            // -Dalert.personDigests=true：为每位经办人各生成一份只含本人事项的提醒
+            if (Boolean.getBoolean("alert.personDigests")) {
+                int threads = Integer.getInteger("alert.threads", Runtime.getRuntime().availableProcessors());
+                PersonDigestGenerator generator = new PersonDigestGenerator(analyzer, emailGenerator, threads);
+                // 分析一次，生成文件和发送邮件使用同一份内容
+                Map<String, MailContent> contents = generator.analyzeAll(agreements, new Date());
+                Map<String, Path> digests = generator.writeDigests(contents, Paths.get(""), timestamp, gzip);
+                for (Map.Entry<String, Path> digest : digests.entrySet()) {
+                    logger.info("{} 个人提醒已生成: {}", digest.getKey(), digest.getValue());
+                }
+                recordHistory(excelFile, agreements);
+                if (Boolean.getBoolean("alert.mail")) {
+                    MailSettings mailSettings = MailSettings.load();
+                    Map<String, CompletableFuture<Void>> deliveries;
+                    try (MailDispatcher dispatcher = new MailDispatcher(mailSettings, metrics)) {
+                        deliveries = generator.sendDigests(contents, dispatcher, mailSettings.getPersons());
+                    }
+                    logDeliveries(deliveries);
+                }
+                writeMetrics(metrics);
+                logger.info("程序执行完成");
+                return;
+            }
+
+            // 3. 分析提醒（-Dalert.onlyNew=true：只提醒新进入阶段或紧急程度升高的事项，
+            //    已提醒过的事项记在工作簿旁边的.sent文件中）
+            SentAlertLog sentLog = Boolean.getBoolean("alert.onlyNew")
+                    ? SentAlertLog.open(SentAlertLog.logPath(excelFile.toPath())) : null;
+            try {
+                MailContent mailContent;
+                if (agreements == null) {
+                    mailContent = analyzer.analyzeAlerts(agreementList);
+                } else {
+                    mailContent = sentLog != null
+                            ? analyzer.analyzeNewAlerts(agreements, new Date(), sentLog)
+                            : analyzer.analyzeAlerts(agreements);
+                    recordHistory(excelFile, agreements);
+                }
 
-            // 5. 保存HTML文件
-            String timestamp = sdf.format(new Date());
-            String outputPath = "" + timestamp + ".html";
+                if (sentLog != null && !AlertAnalyzer.hasAlerts(mailContent)) {
+                    logger.info("没有新的提醒，不生成提醒邮件");
+                    sentLog.finishRun();
+                } else {
+                    // 4. 生成HTML并直接写入文件（-Dalert.gzip=true时输出.html.gz）
+                    String outputPath = "" + timestamp + (gzip ? ".html.gz" : ".html");
 
-            Files.write(Paths.get(outputPath), htmlContent.getBytes("UTF-8"));
-            logger.info("提醒邮件已生成: " + outputPath);
+                    emailGenerator.writeHtml(mailContent, Paths.get(outputPath), gzip);
+                    logger.info("提醒邮件已生成: " + outputPath);
 
-            // 6. 在控制台输出摘要
-            printSummary(mailContent);
+                    // 5. -Dalert.mail=true：发送给alert-mail.properties（或-Dalert.mailConfig指定的文件）中配置的收件人
+                    boolean delivered = true;
+                    if (Boolean.getBoolean("alert.mail")) {
+                        delivered = sendReport(mailContent, emailGenerator, metrics);
+                    }
+                    // 发送失败时不记为已提醒，下次运行重新提醒
+                    if (sentLog != null && delivered) {
+                        sentLog.finishRun();
+                    }
+
+                    // 6. 在控制台输出摘要
+                    printSummary(mailContent);
+                }
+            } finally {
+                if (sentLog != null) {
+                    sentLog.close();
+                }
+            }
+            writeMetrics(metrics);
+
+            // -Dalert.schedule=true：常驻运行，在记录跨过提醒阈值时输出变化，有记录进入新阶段时重新生成提醒
+            if (Boolean.getBoolean("alert.schedule")) {
+                runScheduler(analyzer, emailGenerator, agreements, gzip);
+            }
 
             logger.info("程序执行完成");
 
@@ -71,6 +207,103 @@ public class Main {
         }
     }
 
+    private static void runScheduler(AlertAnalyzer analyzer, EmailGenerator emailGenerator,
+                                     CompactAgreementStore agreements, boolean gzip) throws InterruptedException {
+        List<StageRule> stages = analyzer.getRules().getStages();
+        AlertScheduler scheduler = new AlertScheduler(analyzer, agreements, (time, transitions) -> {
+            boolean entered = false;
+            for (AlertScheduler.Transition transition : transitions) {
+                FrameworkAgreement agreement = transition.getAgreement();
+                List<String> names = new ArrayList<>();
+                for (int i = 0; i < stages.size(); i++) {
+                    if ((transition.getEnteredStages() & (1 << i)) != 0) {
+                        names.add(stages.get(i).getName());
+                    }
+                }
+                entered |= !names.isEmpty();
+                logger.info("{} {}({}): 紧急程度 {} -> {}{}", agreement.getResponsiblePerson(), agreement.getSystemName(),
+                        agreement.getId(), transition.getPreviousLevel(), transition.getLevel(),
+                        names.isEmpty() ? "" : "，进入" + String.join("、", names));
+            }
+            if (entered) {
+                try {
+                    MailContent mailContent = analyzer.analyzeAlerts(agreements, time);
+                    String outputPath = FILE_TIMESTAMP.format(time.toInstant()) + (gzip ? ".html.gz" : ".html");
+                    emailGenerator.writeHtml(mailContent, Paths.get(outputPath), gzip);
+                    logger.info("提醒邮件已生成: " + outputPath);
+                } catch (Exception e) {
+                    logger.error("生成提醒失败", e);
+                }
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(scheduler::stop));
+        scheduler.run();
+    }
+
+    /**
+     * 按扩展名选择读取方式（.xlsx、.xls、.csv）。
+     * -Dalert.pipeline=true：文件解析与行解码流水线并行（解码线程数同-Dalert.threads）
+     */
+    private static SheetAgreementSource createAgreementSource(String excelPath) {
+        SheetAgreementSource source = AgreementSource.forFile(excelPath);
+        if (Boolean.getBoolean("alert.pipeline")) {
+            source.setDecodeThreads(Integer.getInteger("alert.threads", Runtime.getRuntime().availableProcessors()));
+        }
+        return source;
+    }
+
+    /**
+     * 发送科室报告，返回是否发送成功
+     */
+    private static boolean sendReport(MailContent mailContent, EmailGenerator emailGenerator, RunMetrics metrics)
+            throws Exception {
+        MailSettings mailSettings = MailSettings.load();
+        if (mailSettings.getTo().isEmpty()) {
+            logger.warn("没有配置收件人（to），不发送邮件");
+            return false;
+        }
+        Map<String, CompletableFuture<Void>> deliveries = new LinkedHashMap<>();
+        try (MailDispatcher dispatcher = new MailDispatcher(mailSettings, metrics)) {
+            String label = mailContent.getDepartment() != null ? mailContent.getDepartment() : "提醒邮件";
+            deliveries.put(label, dispatcher.submit(
+                    emailGenerator.createMessage(mailContent, label, mailSettings.getTo())));
+        }
+        return logDeliveries(deliveries) == 0;
+    }
+
+    /**
+     * 发送已经结束（dispatcher已关闭），汇总结果，返回失败的封数
+     */
+    private static int logDeliveries(Map<String, CompletableFuture<Void>> deliveries) {
+        int failed = 0;
+        for (Map.Entry<String, CompletableFuture<Void>> delivery : deliveries.entrySet()) {
+            // 关闭时被中断的话，正在发送的邮件可能没有结果，同样算作失败
+            if (!delivery.getValue().isDone() || delivery.getValue().isCompletedExceptionally()) {
+                failed++;
+            } else {
+                logger.info("{} 提醒邮件已发送", delivery.getKey());
+            }
+        }
+        if (failed > 0) {
+            logger.error("{} 封邮件发送失败，共 {} 封", failed, deliveries.size());
+        }
+        return failed;
+    }
+
+    /**
+     * -Dalert.history=true：把本次的进度和紧急程度记入工作簿旁边的.history文件，供HistoryTool统计。
+     * 紧急程度在分析时计算，所以在分析之后调用
+     */
+    private static void recordHistory(File excelFile, CompactAgreementStore agreements) throws IOException {
+        if (Boolean.getBoolean("alert.history")) {
+            ProgressHistory.append(ProgressHistory.historyPath(excelFile.toPath()), agreements, new Date());
+        }
+    }
+
+    private static void writeMetrics(RunMetrics metrics) {
+        metrics.write(Paths.get(System.getProperty("alert.metricsDir", "")), "alert-metrics");
+    }
+
     private static void printSummary(MailContent mailContent) {
         // 用于重复字符的方法（替代Java 11的String.repeat()）
         String line = repeatString("=", 50);
@@ -80,16 +313,11 @@ public class Main {
         System.out.println("          人月框架协议提醒汇总");
         System.out.println(line);
 
-        System.out.println("需整理资料: " + formatList(mailContent.getNeedDataAlert()));
-        System.out.println("需完成事财权: " + formatList(mailContent.getNeedApprovalAlert()));
-        System.out.println("需完成合同采购: " + formatList(mailContent.getNeedPurchaseAlert()));
-        System.out.println("需完成合同用印: " + formatList(mailContent.getNeedSealAlert()));
-
         Set<String> allNames = new HashSet<>();
-        allNames.addAll(mailContent.getNeedDataAlert());
-        allNames.addAll(mailContent.getNeedApprovalAlert());
-        allNames.addAll(mailContent.getNeedPurchaseAlert());
-        allNames.addAll(mailContent.getNeedSealAlert());
+        for (StageAlert stageAlert : mailContent.getStageAlerts()) {
+            System.out.println(stageAlert.getName() + ": " + formatList(stageAlert.getNames()));
+            allNames.addAll(stageAlert.getNames());
+        }
 
         System.out.println(dash);
         System.out.println("总提醒人数: " + allNames.size());
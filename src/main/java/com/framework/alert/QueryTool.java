@@ -0,0 +1,160 @@
+// QueryTool.java
+package com.framework.alert;
+
+import com.framework.alert.model.CompactAgreementStore;
+import com.framework.alert.service.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * 协议查询工具：读取一次Excel并建立索引，然后回答按科室、经办人、进度和到期日期的查询。
+ *
+ * 用法: QueryTool [Excel文件] [查询条件]
+ * 查询条件:
+ *   --department 科室  --person 经办人  --progress 进度
+ *   --field reference|purchase|contract  日期字段，默认reference（参考日期）
+ *   --within N                            从今天起N天内（含今天）
+ *   --from yyyy-MM-dd --to yyyy-MM-dd     日期范围（闭区间）
+ * 不带查询条件时进入交互模式，每行输入一组查询条件，输入quit退出。
+ */
+public class QueryTool {
+    private static final Logger logger = LoggerFactory.getLogger(QueryTool.class);
+
+    public static void main(String[] args) {
+        try {
+            String excelPath = "2026年有时限要求事项清单.xlsx";
+            String[] queryArgs = args;
+            if (args.length > 0 && !args[0].startsWith("--")) {
+                excelPath = args[0];
+                queryArgs = Arrays.copyOfRange(args, 1, args.length);
+            }
+
+            if (!new File(excelPath).exists()) {
+                logger.error("Excel文件不存在: " + excelPath);
+                return;
+            }
+
+            CompactAgreementStore store = new SnapshotCache(AgreementSource.forFile(excelPath)).read(excelPath);
+            long start = System.nanoTime();
+            AgreementIndex index = new AgreementIndex(store);
+            logger.info("已建立 {} 条记录的索引，耗时 {} 毫秒", store.size(), (System.nanoTime() - start) / 1_000_000);
+
+            if (queryArgs.length > 0) {
+                runQuery(index, queryArgs);
+                return;
+            }
+
+            System.out.println("请输入查询条件（例如 --person 张三 --within 30），输入quit退出");
+            BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if ("quit".equals(line) || "exit".equals(line)) break;
+                runQuery(index, line.split("\\s+"));
+            }
+        } catch (Exception e) {
+            logger.error("查询失败", e);
+        }
+    }
+
+    private static void runQuery(AgreementIndex index, String[] args) {
+        AgreementQuery query;
+        try {
+            query = parseQuery(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println("查询条件错误: " + e.getMessage());
+            return;
+        }
+
+        long start = System.nanoTime();
+        int[] rows;
+        try {
+            rows = index.query(query);
+        } catch (RuntimeException e) {
+            // 交互模式下一条查询出错不结束整个会话
+            logger.error("查询失败: {}", String.join(" ", args), e);
+            return;
+        }
+        long micros = (System.nanoTime() - start) / 1000;
+
+        CompactAgreementStore store = index.getStore();
+        DueDateField field = query.getDateField() != null ? query.getDateField() : DueDateField.REFERENCE;
+        for (int row : rows) {
+            int day = field.dayOf(store, row);
+            System.out.println(String.join("\t",
+                    String.valueOf(store.getIds()[row] != CompactAgreementStore.NO_VALUE ? store.getIds()[row] : ""),
+                    nullToEmpty(store.getSystemNames()[row]),
+                    nullToEmpty(store.getDepartments().valueOf(store.getDepartmentIds()[row])),
+                    nullToEmpty(store.getPersons().valueOf(store.getPersonIds()[row])),
+                    nullToEmpty(store.getProgresses().valueOf(store.getProgressIds()[row])),
+                    field.getLabel() + ": " + (day != CompactAgreementStore.NO_DATE ? LocalDate.ofEpochDay(day).toString() : "-")));
+        }
+        System.out.println("共 " + rows.length + " 条，耗时 " + micros + " 微秒");
+    }
+
+    static AgreementQuery parseQuery(String[] args) {
+        AgreementQuery query = new AgreementQuery();
+        DueDateField field = null;
+        LocalDate from = null;
+        LocalDate to = null;
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException(option + " 缺少参数");
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--department": query.department(value); break;
+                case "--person": query.person(value); break;
+                case "--progress": query.progress(value); break;
+                case "--field":
+                    try {
+                        field = DueDateField.valueOf(value.toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("未知的日期字段: " + value);
+                    }
+                    break;
+                case "--within":
+                    from = LocalDate.now();
+                    to = from.plusDays(parseDays(value));
+                    break;
+                case "--from": from = parseDate(value); break;
+                case "--to": to = parseDate(value); break;
+                default:
+                    throw new IllegalArgumentException("未知的选项: " + option);
+            }
+        }
+        if (field != null || from != null || to != null) {
+            query.due(field != null ? field : DueDateField.REFERENCE, from, to);
+        }
+        return query;
+    }
+
+    private static int parseDays(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("天数格式错误: " + value);
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("日期格式错误: " + value);
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
@@ -0,0 +1,24 @@
+package com.framework.alert.config;
+
+import lombok.Value;
+import lombok.With;
+
+/**
+ * AlertService的运行选项。不可变，可以在多个线程之间共享；用withXxx得到修改了一项的副本
+ */
+@Value
+@With
+public class AlertOptions {
+    AlertRules rules;
+    boolean snapshot;      // 工作簿未变化时使用旁边的.snapshot文件，跳过解析
+    int decodeThreads;     // 每次读取时解码行的线程数，1表示在读取线程中解码
+    boolean renderHtml;    // 是否生成HTML
+    boolean metrics;       // 是否记录各阶段耗时等运行指标
+
+    /**
+     * classpath中的默认规则，使用快照，单线程解码，生成HTML，不记录运行指标
+     */
+    public static AlertOptions defaults() {
+        return new AlertOptions(AlertRules.defaults(), true, 1, true, false);
+    }
+}
@@ -0,0 +1,131 @@
+package com.framework.alert.config;
+
+import lombok.Value;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * 提醒规则配置：责任科室过滤和各提醒阶段，从properties文件（UTF-8）加载
+ */
+@Value
+public class AlertRules {
+    public static final String FILE_NAME = "alert-rules.properties";
+    public static final String PATH_PROPERTY = "alert.rules";
+
+    Set<String> departments; // 为空表示全部科室
+    List<StageRule> stages;
+
+    /**
+     * 按以下顺序查找配置：-Dalert.rules指定的文件、工作目录下的alert-rules.properties、classpath中的默认配置
+     */
+    public static AlertRules load() throws IOException {
+        String configured = System.getProperty(PATH_PROPERTY);
+        if (configured != null && !configured.trim().isEmpty()) {
+            return load(Paths.get(configured.trim()));
+        }
+        Path local = Paths.get(FILE_NAME);
+        if (Files.isRegularFile(local)) {
+            return load(local);
+        }
+        return defaults();
+    }
+
+    public static AlertRules load(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return parse(reader, path.toString());
+        }
+    }
+
+    /**
+     * classpath中随程序发布的默认规则
+     */
+    public static AlertRules defaults() {
+        try (InputStream in = AlertRules.class.getResourceAsStream("/" + FILE_NAME)) {
+            if (in == null) {
+                throw new IllegalStateException("classpath中缺少默认规则文件: " + FILE_NAME);
+            }
+            return parse(new InputStreamReader(in, StandardCharsets.UTF_8), FILE_NAME);
+        } catch (IOException e) {
+            throw new IllegalStateException("读取默认规则文件失败: " + FILE_NAME, e);
+        }
+    }
+
+    private static AlertRules parse(Reader reader, String source) throws IOException {
+        Properties props = new Properties();
+        props.load(reader);
+
+        Set<String> departments = splitList(props.getProperty("department", ""));
+
+        List<StageRule> stages = new ArrayList<>();
+        for (String key : splitList(props.getProperty("stages", ""))) {
+            String prefix = "stage." + key + ".";
+            String name = props.getProperty(prefix + "name", key).trim();
+            String title = props.getProperty(prefix + "title", name).trim();
+            String window = props.getProperty(prefix + "window");
+            if (window == null || window.trim().isEmpty()) {
+                throw new IllegalArgumentException(source + ": 阶段 " + key + " 缺少 window 配置");
+            }
+            stages.add(new StageRule(key, name, title, parseWindow(window.trim(), source, key),
+                    Collections.unmodifiableSet(splitList(props.getProperty(prefix + "progress", ""))),
+                    Boolean.parseBoolean(props.getProperty(prefix + "blankProgress", "false").trim())));
+        }
+
+        return new AlertRules(Collections.unmodifiableSet(departments), Collections.unmodifiableList(stages));
+    }
+
+    /**
+     * 解析提醒窗口，如 3M、2W、14D
+     */
+    private static Period parseWindow(String window, String source, String key) {
+        try {
+            int amount = Integer.parseInt(window.substring(0, window.length() - 1).trim());
+            switch (Character.toUpperCase(window.charAt(window.length() - 1))) {
+                case 'M': return Period.ofMonths(amount);
+                case 'W': return Period.ofWeeks(amount);
+                case 'D': return Period.ofDays(amount);
+                default: break;
+            }
+        } catch (RuntimeException e) {
+            // 统一按格式错误处理
+        }
+        throw new IllegalArgumentException(source + ": 阶段 " + key + " 的 window 格式错误: " + window);
+    }
+
+    private static Set<String> splitList(String value) {
+        Set<String> items = new LinkedHashSet<>();
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                items.add(item.trim());
+            }
+        }
+        return items;
+    }
+
+    /**
+     * 该科室是否在过滤范围内
+     */
+    public boolean includesDepartment(String department) {
+        return departments.isEmpty() || departments.contains(department);
+    }
+
+    /**
+     * 用于报告标题的科室名称
+     */
+    public String getDepartmentLabel() {
+        return departments.isEmpty() ? "全部科室" : String.join("、", departments);
+    }
+}
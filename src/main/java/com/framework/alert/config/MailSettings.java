@@ -0,0 +1,149 @@
+package com.framework.alert.config;
+
+import lombok.ToString;
+import lombok.Value;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 邮件发送配置：SMTP服务器、发件人、收件人和发送队列参数，从properties文件（UTF-8）加载
+ */
+@Value
+public class MailSettings {
+    public static final String FILE_NAME = "alert-mail.properties";
+    public static final String PATH_PROPERTY = "alert.mailConfig";
+
+    public enum Security {
+        NONE,     // 明文连接
+        STARTTLS, // 连接后用STARTTLS升级为TLS
+        SSL       // 直接建立TLS连接（通常为465端口）
+    }
+
+    String host;
+    int port;
+    Security security;
+    String username;              // 为空表示不认证
+    @ToString.Exclude
+    String password;
+    int timeoutMillis;            // 连接和读取超时
+
+    String from;
+    List<String> to;              // 科室报告的收件人
+    Map<String, String> persons;  // 经办人姓名 -> 邮箱，用于个人提醒
+
+    int connections;              // 连接池大小，也是发送线程数
+    int messagesPerSession;       // 一个连接发送多少封后重新连接
+    int queueCapacity;            // 待发送队列容量，满时提交方等待
+    int maxAttempts;              // 每封邮件最多尝试次数（含第一次）
+    long backoffMillis;           // 第一次重试前的等待时间，之后每次加倍
+    long maxBackoffMillis;
+
+    /**
+     * 按以下顺序查找配置：-Dalert.mailConfig指定的文件、工作目录下的alert-mail.properties。
+     * 邮件配置包含服务器和账号，没有随程序发布的默认配置
+     */
+    public static MailSettings load() throws IOException {
+        String configured = System.getProperty(PATH_PROPERTY);
+        if (configured != null && !configured.trim().isEmpty()) {
+            return load(Paths.get(configured.trim()));
+        }
+        return load(Paths.get(FILE_NAME));
+    }
+
+    public static MailSettings load(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            Properties props = new Properties();
+            props.load(reader);
+            return parse(props, path.toString());
+        }
+    }
+
+    /**
+     * 必填项为smtp.host和from，其余使用默认值
+     */
+    public static MailSettings parse(Properties props, String source) {
+        String host = required(props, "smtp.host", source);
+        Security security;
+        try {
+            security = Security.valueOf(props.getProperty("smtp.security", "none").trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(source + ": smtp.security 只能是 none、starttls 或 ssl");
+        }
+        int defaultPort = security == Security.SSL ? 465 : security == Security.STARTTLS ? 587 : 25;
+
+        Map<String, String> persons = new LinkedHashMap<>();
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith("person.") && !props.getProperty(key).trim().isEmpty()) {
+                persons.put(key.substring("person.".length()).trim(), props.getProperty(key).trim());
+            }
+        }
+
+        return new MailSettings(host,
+                intValue(props, "smtp.port", defaultPort, 65535, source),
+                security,
+                props.getProperty("smtp.username", "").trim(),
+                props.getProperty("smtp.password", ""),
+                intValue(props, "smtp.timeout", 30000, source),
+                required(props, "from", source),
+                Collections.unmodifiableList(splitList(props.getProperty("to", ""))),
+                Collections.unmodifiableMap(persons),
+                intValue(props, "pool.connections", 4, source),
+                intValue(props, "pool.messagesPerSession", 100, source),
+                intValue(props, "queue.capacity", 1000, source),
+                intValue(props, "retry.maxAttempts", 4, source),
+                intValue(props, "retry.backoff", 1000, source),
+                intValue(props, "retry.maxBackoff", 30000, source));
+    }
+
+    private static String required(Properties props, String key, String source) {
+        String value = props.getProperty(key, "").trim();
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException(source + ": 缺少 " + key + " 配置");
+        }
+        return value;
+    }
+
+    private static int intValue(Properties props, String key, int defaultValue, String source) {
+        return intValue(props, key, defaultValue, Integer.MAX_VALUE, source);
+    }
+
+    private static int intValue(Properties props, String key, int defaultValue, int maxValue, String source) {
+        String value = props.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed > 0 && parsed <= maxValue) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // 统一按格式错误处理
+        }
+        if (maxValue < Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(source + ": " + key + " 必须是1到" + maxValue + "之间的整数: " + value);
+        }
+        throw new IllegalArgumentException(source + ": " + key + " 必须是正整数: " + value);
+    }
+
+    private static List<String> splitList(String value) {
+        List<String> items = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                items.add(item.trim());
+            }
+        }
+        return items;
+    }
+}
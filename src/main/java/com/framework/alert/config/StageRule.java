@@ -0,0 +1,19 @@
+package com.framework.alert.config;
+
+import lombok.Value;
+
+import java.time.Period;
+import java.util.Set;
+
+/**
+ * 一个提醒阶段：参考日期前window时间内，当前进度属于progressStates（或为空且blankProgress）的记录需要提醒
+ */
+@Value
+public class StageRule {
+    String key;
+    String name;                 // 阶段名称（控制台汇总）
+    String title;                // 邮件中的提醒标题
+    Period window;               // 参考日期前的提醒窗口
+    Set<String> progressStates;  // 需要提醒的当前进度
+    boolean blankProgress;       // 当前进度为空时是否提醒
+}
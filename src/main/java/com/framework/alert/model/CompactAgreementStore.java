@@ -0,0 +1,349 @@
+package com.framework.alert.model;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 紧凑的列式协议存储：每个字段一个基本类型数组，日期存为epoch day（int），
+ * 科室、经办、进度等重复字符串用字典编码。大表的内存占用只有FrameworkAgreement列表的几分之一，
+ * 分析和排序直接在数组上进行。
+ *
+ * 只保存读取器实际解析的字段；日期按自然日保存，时间部分会丢弃。
+ * 需要FrameworkAgreement的地方用get(i)或asList()按需生成。
+ */
+public class CompactAgreementStore {
+    public static final int NO_VALUE = Integer.MIN_VALUE; // 序号为空
+    public static final int NO_DATE = Integer.MIN_VALUE;  // 日期为空
+
+    private final ZoneId zone;
+    private final StringDictionary departments;
+    private final StringDictionary persons;
+    private final StringDictionary progresses;
+
+    private int size;
+    private int[] ids;
+    private String[] systemNames;
+    private int[] businessDepartmentIds;
+    private int[] departmentIds;
+    private int[] personIds;
+    private int[] progressIds;
+    private int[] previousExpiryDays;
+    private int[] plannedApprovalDays;
+    private int[] plannedPurchaseDays;
+    private int[] plannedContractDays;
+    private byte[] alertLevels; // 0表示未计算
+
+    public CompactAgreementStore() {
+        this(ZoneId.systemDefault(), 256);
+    }
+
+    public CompactAgreementStore(ZoneId zone, int initialCapacity) {
+        this(zone, initialCapacity, new StringDictionary(), new StringDictionary(), new StringDictionary());
+    }
+
+    private CompactAgreementStore(ZoneId zone, int initialCapacity, StringDictionary departments,
+                                  StringDictionary persons, StringDictionary progresses) {
+        this.zone = zone;
+        this.departments = departments;
+        this.persons = persons;
+        this.progresses = progresses;
+        int capacity = Math.max(initialCapacity, 16);
+        ids = new int[capacity];
+        systemNames = new String[capacity];
+        businessDepartmentIds = new int[capacity];
+        departmentIds = new int[capacity];
+        personIds = new int[capacity];
+        progressIds = new int[capacity];
+        previousExpiryDays = new int[capacity];
+        plannedApprovalDays = new int[capacity];
+        plannedPurchaseDays = new int[capacity];
+        plannedContractDays = new int[capacity];
+        alertLevels = new byte[capacity];
+    }
+
+    public static CompactAgreementStore from(List<FrameworkAgreement> agreements) {
+        CompactAgreementStore store = new CompactAgreementStore(ZoneId.systemDefault(), agreements.size());
+        for (FrameworkAgreement agreement : agreements) {
+            store.add(agreement);
+        }
+        return store;
+    }
+
+    public void add(FrameworkAgreement agreement) {
+        if (size == ids.length) {
+            grow();
+        }
+        int i = size++;
+        ids[i] = agreement.getId() != null ? agreement.getId() : NO_VALUE;
+        systemNames[i] = agreement.getSystemName();
+        // 业务归口部门与责任科室取值范围相近，共用一个字典
+        businessDepartmentIds[i] = departments.idOf(agreement.getBusinessDepartment());
+        departmentIds[i] = departments.idOf(agreement.getResponsibleDepartment());
+        personIds[i] = persons.idOf(agreement.getResponsiblePerson());
+        progressIds[i] = progresses.idOf(agreement.getCurrentProgress());
+        previousExpiryDays[i] = toEpochDay(agreement.getPreviousAgreementExpiry());
+        plannedApprovalDays[i] = toEpochDay(agreement.getPlannedApprovalDate());
+        plannedPurchaseDays[i] = toEpochDay(agreement.getPlannedPurchaseDate());
+        plannedContractDays[i] = toEpochDay(agreement.getPlannedContractDate());
+        alertLevels[i] = agreement.getAlertLevel() != null ? agreement.getAlertLevel().byteValue() : 0;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        systemNames = Arrays.copyOf(systemNames, capacity);
+        businessDepartmentIds = Arrays.copyOf(businessDepartmentIds, capacity);
+        departmentIds = Arrays.copyOf(departmentIds, capacity);
+        personIds = Arrays.copyOf(personIds, capacity);
+        progressIds = Arrays.copyOf(progressIds, capacity);
+        previousExpiryDays = Arrays.copyOf(previousExpiryDays, capacity);
+        plannedApprovalDays = Arrays.copyOf(plannedApprovalDays, capacity);
+        plannedPurchaseDays = Arrays.copyOf(plannedPurchaseDays, capacity);
+        plannedContractDays = Arrays.copyOf(plannedContractDays, capacity);
+        alertLevels = Arrays.copyOf(alertLevels, capacity);
+    }
+
+    /**
+     * 按固定布局写出全部数据：时区、字典、记录数，然后逐列写出数组
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        StringDictionary.writeString(out, zone.getId());
+        departments.writeTo(out);
+        persons.writeTo(out);
+        progresses.writeTo(out);
+
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            StringDictionary.writeString(out, systemNames[i]);
+        }
+        for (int[] column : intColumns()) {
+            for (int i = 0; i < size; i++) {
+                out.writeInt(column[i]);
+            }
+        }
+        out.write(alertLevels, 0, size);
+    }
+
+    /**
+     * 读取writeTo写出的数据，数据不完整或不一致时抛出IllegalArgumentException或BufferUnderflowException
+     */
+    public static CompactAgreementStore readFrom(ByteBuffer in) {
+        ZoneId zone = ZoneId.of(StringDictionary.readString(in));
+        StringDictionary departments = StringDictionary.readFrom(in);
+        StringDictionary persons = StringDictionary.readFrom(in);
+        StringDictionary progresses = StringDictionary.readFrom(in);
+
+        int size = in.getInt();
+        if (size < 0 || size > in.remaining()) {
+            throw new IllegalArgumentException("记录数超出数据范围: " + size);
+        }
+        CompactAgreementStore store = new CompactAgreementStore(zone, size, departments, persons, progresses);
+        store.size = size;
+        for (int i = 0; i < size; i++) {
+            store.systemNames[i] = StringDictionary.readString(in);
+        }
+        for (int[] column : store.intColumns()) {
+            in.asIntBuffer().get(column, 0, size);
+            in.position(in.position() + size * 4);
+        }
+        in.get(store.alertLevels, 0, size);
+
+        store.checkIds(store.departmentIds, departments);
+        store.checkIds(store.businessDepartmentIds, departments);
+        store.checkIds(store.personIds, persons);
+        store.checkIds(store.progressIds, progresses);
+        return store;
+    }
+
+    private int[][] intColumns() {
+        return new int[][]{ids, businessDepartmentIds, departmentIds, personIds, progressIds,
+                previousExpiryDays, plannedApprovalDays, plannedPurchaseDays, plannedContractDays};
+    }
+
+    private void checkIds(int[] column, StringDictionary dictionary) {
+        for (int i = 0; i < size; i++) {
+            if (column[i] < StringDictionary.NULL_ID || column[i] >= dictionary.size()) {
+                throw new IllegalArgumentException("字典编号超出范围: " + column[i]);
+            }
+        }
+    }
+
+    public int toEpochDay(Date date) {
+        return date != null ? (int) date.toInstant().atZone(zone).toLocalDate().toEpochDay() : NO_DATE;
+    }
+
+    public Date toDate(int epochDay) {
+        if (epochDay == NO_DATE) {
+            return null;
+        }
+        Instant instant = LocalDate.ofEpochDay(epochDay).atStartOfDay(zone).toInstant();
+        return Date.from(instant);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * 参考日期：上期协议到期，没有时取计划完成立项日期
+     */
+    public int referenceDay(int i) {
+        int day = previousExpiryDays[i];
+        return day != NO_DATE ? day : plannedApprovalDays[i];
+    }
+
+    /**
+     * 第i条记录的标识："序号|系统名称"。序号可能重排或重复，和系统名称一起标识一条记录，用于在多次读取之间对应同一事项
+     */
+    public String agreementKey(int i) {
+        return (ids[i] != NO_VALUE ? String.valueOf(ids[i]) : "") + "|" + (systemNames[i] != null ? systemNames[i] : "");
+    }
+
+    /**
+     * 第i条记录内容的64位哈希（不含紧急程度），用于判断两次读取之间哪些记录发生了变化
+     */
+    public long rowHash(int i) {
+        long h = 0xcbf29ce484222325L;
+        h = mix(h, ids[i]);
+        h = mix(h, systemNames[i]);
+        h = mix(h, departments.valueOf(businessDepartmentIds[i]));
+        h = mix(h, departments.valueOf(departmentIds[i]));
+        h = mix(h, persons.valueOf(personIds[i]));
+        h = mix(h, progresses.valueOf(progressIds[i]));
+        h = mix(h, previousExpiryDays[i]);
+        h = mix(h, plannedApprovalDays[i]);
+        h = mix(h, plannedPurchaseDays[i]);
+        h = mix(h, plannedContractDays[i]);
+        // 最后再打散一次（splitmix64）
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+
+    private static long mix(long h, int value) {
+        return (h ^ value) * 0x100000001b3L;
+    }
+
+    private static long mix(long h, String value) {
+        if (value == null) {
+            return mix(h, -1);
+        }
+        for (int k = 0; k < value.length(); k++) {
+            h = (h ^ value.charAt(k)) * 0x100000001b3L;
+        }
+        return mix(h, value.length());
+    }
+
+    public int getAlertLevel(int i) {
+        return alertLevels[i];
+    }
+
+    public void setAlertLevel(int i, int level) {
+        alertLevels[i] = (byte) level;
+    }
+
+    /**
+     * 生成第i条记录的FrameworkAgreement，修改它不会写回存储
+     */
+    public FrameworkAgreement get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        FrameworkAgreement agreement = new FrameworkAgreement();
+        agreement.setId(ids[i] != NO_VALUE ? ids[i] : null);
+        agreement.setSystemName(systemNames[i]);
+        agreement.setBusinessDepartment(departments.valueOf(businessDepartmentIds[i]));
+        agreement.setResponsibleDepartment(departments.valueOf(departmentIds[i]));
+        agreement.setResponsiblePerson(persons.valueOf(personIds[i]));
+        agreement.setCurrentProgress(progresses.valueOf(progressIds[i]));
+        agreement.setPreviousAgreementExpiry(toDate(previousExpiryDays[i]));
+        agreement.setPlannedApprovalDate(toDate(plannedApprovalDays[i]));
+        agreement.setPlannedPurchaseDate(toDate(plannedPurchaseDays[i]));
+        agreement.setPlannedContractDate(toDate(plannedContractDays[i]));
+        agreement.setAlertLevel(alertLevels[i] != 0 ? (int) alertLevels[i] : null);
+        return agreement;
+    }
+
+    /**
+     * 以FrameworkAgreement列表的形式访问，元素在访问时生成
+     */
+    public List<FrameworkAgreement> asList() {
+        return new AbstractList<FrameworkAgreement>() {
+            @Override
+            public FrameworkAgreement get(int index) {
+                return CompactAgreementStore.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // 以下数组供分析使用，只读，长度可能大于size()
+
+    public int[] getIds() {
+        return ids;
+    }
+
+    public String[] getSystemNames() {
+        return systemNames;
+    }
+
+    public int[] getDepartmentIds() {
+        return departmentIds;
+    }
+
+    public int[] getBusinessDepartmentIds() {
+        return businessDepartmentIds;
+    }
+
+    public int[] getPersonIds() {
+        return personIds;
+    }
+
+    public int[] getProgressIds() {
+        return progressIds;
+    }
+
+    public int[] getPreviousExpiryDays() {
+        return previousExpiryDays;
+    }
+
+    public int[] getPlannedApprovalDays() {
+        return plannedApprovalDays;
+    }
+
+    public int[] getPlannedPurchaseDays() {
+        return plannedPurchaseDays;
+    }
+
+    public int[] getPlannedContractDays() {
+        return plannedContractDays;
+    }
+
+    public StringDictionary getDepartments() {
+        return departments;
+    }
+
+    public StringDictionary getPersons() {
+        return persons;
+    }
+
+    public StringDictionary getProgresses() {
+        return progresses;
+    }
+}
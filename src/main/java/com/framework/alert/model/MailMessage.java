@@ -0,0 +1,12 @@
+package com.framework.alert.model;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class MailMessage {
+    private String label;             // 日志中标识这封邮件，如科室或经办人
+    private List<String> recipients;  // 收件人邮箱
+    private String subject;
+    private String html;              // HTML正文
+}
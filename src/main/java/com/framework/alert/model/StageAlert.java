@@ -0,0 +1,12 @@
+package com.framework.alert.model;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class StageAlert {
+    private String key;
+    private String name;          // 阶段名称
+    private String title;         // 提醒标题
+    private List<String> names;   // 需要提醒的责任经办
+}
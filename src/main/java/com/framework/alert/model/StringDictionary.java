@@ -0,0 +1,95 @@
+package com.framework.alert.model;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 字符串字典：重复出现的字符串（科室、经办、进度）只保存一份，记录中存int编号。
+ * 编号从0开始按首次出现的顺序分配，null使用编号-1。
+ */
+public class StringDictionary {
+    public static final int NULL_ID = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    public int idOf(String value) {
+        if (value == null) {
+            return NULL_ID;
+        }
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = values.size();
+            ids.put(value, id);
+            values.add(value);
+        }
+        return id;
+    }
+
+    /**
+     * 查找已有的编号，不存在时返回NULL_ID
+     */
+    public int find(String value) {
+        Integer id = value == null ? null : ids.get(value);
+        return id != null ? id : NULL_ID;
+    }
+
+    public String valueOf(int id) {
+        return id == NULL_ID ? null : values.get(id);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    static StringDictionary readFrom(ByteBuffer in) {
+        StringDictionary dictionary = new StringDictionary();
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            dictionary.idOf(readString(in));
+        }
+        if (dictionary.size() != count) {
+            throw new IllegalArgumentException("字典中存在重复的值");
+        }
+        return dictionary;
+    }
+
+    /**
+     * 字符串写为UTF-8字节长度 + 内容，null写为长度-1
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new IllegalArgumentException("字符串长度超出数据范围: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
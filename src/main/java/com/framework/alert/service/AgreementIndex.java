@@ -0,0 +1,221 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.CompactAgreementStore;
+import com.framework.alert.model.FrameworkAgreement;
+import com.framework.alert.model.StringDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 协议查询索引，建立后只读。
+ * 责任科室、经办人、进度按字典编号建倒排表；参考日期、计划采购日期、计划合同日期各建一个按epoch day排序的数组，
+ * 日期范围用二分查找定位。查询时从候选最少的条件开始，其余条件直接在列式存储上检查，不扫描全表。
+ */
+public class AgreementIndex {
+    private static final int UNSET = -1;   // 条件未设置
+    private static final int MISSING = -2; // 值在数据中不存在，结果为空
+
+    private final CompactAgreementStore store;
+    private final Postings departments;
+    private final Postings persons;
+    private final Postings progresses;
+    private final SortedDays[] dates = new SortedDays[DueDateField.values().length];
+
+    public AgreementIndex(CompactAgreementStore store) {
+        this.store = store;
+        this.departments = new Postings(store.getDepartmentIds(), store.size(), store.getDepartments().size());
+        this.persons = new Postings(store.getPersonIds(), store.size(), store.getPersons().size());
+        this.progresses = new Postings(store.getProgressIds(), store.size(), store.getProgresses().size());
+        for (DueDateField field : DueDateField.values()) {
+            dates[field.ordinal()] = new SortedDays(store, field);
+        }
+    }
+
+    public CompactAgreementStore getStore() {
+        return store;
+    }
+
+    /**
+     * 满足条件的记录下标。有日期条件时按该日期升序，否则按原有顺序
+     */
+    public int[] query(AgreementQuery query) {
+        int department = idOf(store.getDepartments(), query.getDepartment());
+        int person = idOf(store.getPersons(), query.getPerson());
+        int progress = idOf(store.getProgresses(), query.getProgress());
+        if (department == MISSING || person == MISSING || progress == MISSING) {
+            return new int[0];
+        }
+
+        SortedDays days = query.getDateField() != null ? dates[query.getDateField().ordinal()] : null;
+        int fromDay = query.getFrom() != null ? (int) query.getFrom().toEpochDay() : Integer.MIN_VALUE;
+        int toDay = query.getTo() != null ? (int) query.getTo().toEpochDay() : Integer.MAX_VALUE;
+        int lo = 0;
+        int hi = 0;
+        if (days != null) {
+            if (fromDay > toDay) {
+                return new int[0]; // 起止日期颠倒
+            }
+            lo = days.lowerBound(fromDay);
+            hi = toDay == Integer.MAX_VALUE ? days.rows.length : days.lowerBound(toDay + 1);
+            if (hi <= lo) {
+                return new int[0];
+            }
+        }
+
+        // 选候选最少的条件
+        int[] candidates = null;
+        int start = 0;
+        int end = store.size();
+        int best = Integer.MAX_VALUE;
+        if (days != null) {
+            candidates = days.rows;
+            start = lo;
+            end = hi;
+            best = hi - lo;
+        }
+        Postings[] postings = {departments, persons, progresses};
+        int[] ids = {department, person, progress};
+        for (int p = 0; p < postings.length; p++) {
+            if (ids[p] != UNSET && postings[p].size(ids[p]) < best) {
+                candidates = postings[p].rows;
+                start = postings[p].offsets[ids[p]];
+                end = postings[p].offsets[ids[p] + 1];
+                best = end - start;
+            }
+        }
+
+        int[] departmentIds = store.getDepartmentIds();
+        int[] personIds = store.getPersonIds();
+        int[] progressIds = store.getProgressIds();
+        int[] result = new int[end - start];
+        int count = 0;
+        for (int k = start; k < end; k++) {
+            int i = candidates != null ? candidates[k] : k;
+            if (department != UNSET && departmentIds[i] != department) continue;
+            if (person != UNSET && personIds[i] != person) continue;
+            if (progress != UNSET && progressIds[i] != progress) continue;
+            if (days != null && candidates != days.rows) {
+                int day = query.getDateField().dayOf(store, i);
+                if (day == CompactAgreementStore.NO_DATE || day < fromDay || day > toDay) continue;
+            }
+            result[count++] = i;
+        }
+        result = Arrays.copyOf(result, count);
+
+        if (days != null && candidates != days.rows) {
+            sortByDay(result, query.getDateField());
+        }
+        return result;
+    }
+
+    public List<FrameworkAgreement> find(AgreementQuery query) {
+        int[] rows = query(query);
+        List<FrameworkAgreement> agreements = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            agreements.add(store.get(row));
+        }
+        return agreements;
+    }
+
+    private void sortByDay(int[] rows, DueDateField field) {
+        long[] keys = new long[rows.length];
+        for (int k = 0; k < rows.length; k++) {
+            keys[k] = pack(field.dayOf(store, rows[k]), rows[k]);
+        }
+        Arrays.sort(keys);
+        for (int k = 0; k < rows.length; k++) {
+            rows[k] = (int) keys[k];
+        }
+    }
+
+    private static int idOf(StringDictionary dictionary, String value) {
+        if (value == null) {
+            return UNSET;
+        }
+        int id = dictionary.find(value);
+        return id != StringDictionary.NULL_ID ? id : MISSING;
+    }
+
+    /**
+     * 按日期、下标排序用的键：高32位为epoch day，低32位为下标
+     */
+    private static long pack(int day, int row) {
+        return ((long) day << 32) | (row & 0xffffffffL);
+    }
+
+    /**
+     * 字典编号 → 记录下标，编号id的记录为rows[offsets[id], offsets[id + 1])，按原有顺序
+     */
+    private static class Postings {
+        final int[] offsets;
+        final int[] rows;
+
+        Postings(int[] ids, int size, int idCount) {
+            offsets = new int[idCount + 1];
+            for (int i = 0; i < size; i++) {
+                if (ids[i] != StringDictionary.NULL_ID) {
+                    offsets[ids[i] + 1]++;
+                }
+            }
+            for (int id = 0; id < idCount; id++) {
+                offsets[id + 1] += offsets[id];
+            }
+            int[] next = Arrays.copyOf(offsets, idCount);
+            rows = new int[offsets[idCount]];
+            for (int i = 0; i < size; i++) {
+                if (ids[i] != StringDictionary.NULL_ID) {
+                    rows[next[ids[i]]++] = i;
+                }
+            }
+        }
+
+        int size(int id) {
+            return offsets[id + 1] - offsets[id];
+        }
+    }
+
+    /**
+     * 有日期的记录按(日期, 下标)排序
+     */
+    private static class SortedDays {
+        final int[] days;
+        final int[] rows;
+
+        SortedDays(CompactAgreementStore store, DueDateField field) {
+            long[] keys = new long[store.size()];
+            int count = 0;
+            for (int i = 0; i < store.size(); i++) {
+                int day = field.dayOf(store, i);
+                if (day != CompactAgreementStore.NO_DATE) {
+                    keys[count++] = pack(day, i);
+                }
+            }
+            Arrays.sort(keys, 0, count);
+            days = new int[count];
+            rows = new int[count];
+            for (int k = 0; k < count; k++) {
+                days[k] = (int) (keys[k] >> 32);
+                rows[k] = (int) keys[k];
+            }
+        }
+
+        /**
+         * 第一个日期不小于day的位置
+         */
+        int lowerBound(int day) {
+            int lo = 0;
+            int hi = days.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (days[mid] < day) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.framework.alert.service;
+
+import java.time.LocalDate;
+
+/**
+ * 查询条件，未设置的条件不参与过滤。日期范围为闭区间，只设置一端时另一端不限。
+ */
+public class AgreementQuery {
+    private String department;
+    private String person;
+    private String progress;
+    private DueDateField dateField;
+    private LocalDate from;
+    private LocalDate to;
+
+    public AgreementQuery department(String department) {
+        this.department = department;
+        return this;
+    }
+
+    public AgreementQuery person(String person) {
+        this.person = person;
+        return this;
+    }
+
+    public AgreementQuery progress(String progress) {
+        this.progress = progress;
+        return this;
+    }
+
+    public AgreementQuery due(DueDateField dateField, LocalDate from, LocalDate to) {
+        this.dateField = dateField;
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public String getPerson() {
+        return person;
+    }
+
+    public String getProgress() {
+        return progress;
+    }
+
+    public DueDateField getDateField() {
+        return dateField;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+}
@@ -0,0 +1,40 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.CompactAgreementStore;
+import com.framework.alert.model.FrameworkAgreement;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 协议清单的数据来源。不同格式的文件（xlsx、xls、csv）读取为同样的记录，交给同一个AlertAnalyzer分析。
+ */
+public interface AgreementSource {
+
+    /**
+     * 按文件中的顺序读取全部记录
+     */
+    List<FrameworkAgreement> readAgreements(String filePath) throws Exception;
+
+    /**
+     * 读取为紧凑的列式存储
+     */
+    CompactAgreementStore readCompact(String filePath) throws Exception;
+
+    default RunMetrics getMetrics() {
+        return RunMetrics.NONE;
+    }
+
+    /**
+     * 按扩展名选择读取方式：.csv为CSV，.xls为旧版Excel，其余按xlsx读取
+     */
+    static SheetAgreementSource forFile(String filePath) {
+        String name = filePath.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return new CsvAgreementSource();
+        } else if (name.endsWith(".xls")) {
+            return new XlsAgreementSource();
+        }
+        return new ExcelReader();
+    }
+}
@@ -1,7 +1,12 @@
 package com.framework.alert.service;
 
+import com.framework.alert.config.AlertRules;
+import com.framework.alert.config.StageRule;
+import com.framework.alert.model.CompactAgreementStore;
 import com.framework.alert.model.FrameworkAgreement;
 import com.framework.alert.model.MailContent;
+import com.framework.alert.model.StageAlert;
+import com.framework.alert.model.StringDictionary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,171 +15,334 @@ import java.util.stream.Collectors;
 
 public class AlertAnalyzer {
     private static final Logger logger = LoggerFactory.getLogger(AlertAnalyzer.class);
-    
+
+    private final CompiledAlertRules rules;
+    private RunMetrics metrics = RunMetrics.NONE;
+
+    /**
+     * 使用classpath中的默认提醒规则
+     */
+    public AlertAnalyzer() {
+        this(AlertRules.defaults());
+    }
+
+    public AlertAnalyzer(AlertRules rules) {
+        this.rules = new CompiledAlertRules(rules);
+    }
+
+    public AlertRules getRules() {
+        return rules.getRules();
+    }
+
+    /**
+     * 记录分析和排序的耗时，以及各阶段的提醒人数
+     */
+    public void setMetrics(RunMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public MailContent analyzeAlerts(List<FrameworkAgreement> allAgreements) {
-        // 过滤出运营业务开发科的记录
-        List<FrameworkAgreement> targetAgreements = allAgreements.stream()
-                .filter(a -> "运营业务开发科".equals(a.getResponsibleDepartment()))
-                .collect(Collectors.toList());
-        
-        logger.info("找到 {} 条运营业务开发科的记录", targetAgreements.size());
-        
-        // 计算紧急程度
-        calculateUrgencyLevel(targetAgreements);
-        
-        // 生成提醒
-        MailContent mailContent = new MailContent();
-        mailContent.setSubject("人月框架协议进度提醒 - " + new Date());
-        mailContent.setNeedDataAlert(generateNeedDataAlert(targetAgreements));
-        mailContent.setNeedApprovalAlert(generateNeedApprovalAlert(targetAgreements));
-        mailContent.setNeedPurchaseAlert(generateNeedPurchaseAlert(targetAgreements));
-        mailContent.setNeedSealAlert(generateNeedSealAlert(targetAgreements));
-        
-        // 排序表格数据（按紧急程度，已完成放最后）
-        mailContent.setTableData(sortAgreements(targetAgreements));
-        
-        return mailContent;
+        return analyzeAlerts(allAgreements, new Date());
     }
-    
-    private void calculateUrgencyLevel(List<FrameworkAgreement> agreements) {
-        Date now = new Date();
-        
-        for (FrameworkAgreement agreement : agreements) {
-            Date referenceDate = getReferenceDate(agreement);
-            if (referenceDate == null) {
-                agreement.setAlertLevel(5); // 最低优先级
-                continue;
-            }
-            
-            long diffDays = (referenceDate.getTime() - now.getTime()) / (1000 * 60 * 60 * 24);
-            
-            if (diffDays < 7) { // 7天内
-                agreement.setAlertLevel(1);
-            } else if (diffDays < 14) { // 7-14天
-                agreement.setAlertLevel(2);
-            } else if (diffDays < 30) { // 14-30天
-                agreement.setAlertLevel(3);
-            } else if (diffDays < 90) { // 30-90天
-                agreement.setAlertLevel(4);
-            } else {
-                agreement.setAlertLevel(5);
-            }
+
+    /**
+     * 单次遍历完成过滤、紧急程度计算和所有阶段的提醒，所有阶段使用同一个"当前时间"
+     */
+    public MailContent analyzeAlerts(List<FrameworkAgreement> allAgreements, Date now) {
+        RunMetrics.Recorder recorder = metrics.recorder();
+        RunMetrics.Stage outer = recorder.switchTo(RunMetrics.Stage.ANALYZE);
+        try {
+            MailContent mailContent = analyzeList(allAgreements, now, recorder);
+            recordAlerts(mailContent);
+            return mailContent;
+        } finally {
+            recorder.switchTo(outer);
         }
     }
-    
-    private Date getReferenceDate(FrameworkAgreement agreement) {
-        Date referenceDate = agreement.getPreviousAgreementExpiry();
-        if (referenceDate == null) {
-            referenceDate = agreement.getPlannedApprovalDate();
+
+    private MailContent analyzeList(List<FrameworkAgreement> allAgreements, Date now, RunMetrics.Recorder recorder) {
+        AlertRules config = rules.getRules();
+        AlertEvaluator evaluator = rules.evaluatorAt(now);
+
+        List<FrameworkAgreement> targetAgreements = new ArrayList<>();
+        List<Set<String>> stageNames = new ArrayList<>();
+        for (int i = 0; i < rules.getStageCount(); i++) {
+            stageNames.add(new HashSet<>());
         }
-        return referenceDate;
-    }
-    
-    private List<String> generateNeedDataAlert(List<FrameworkAgreement> agreements) {
-        Set<String> names = new HashSet<>();
-        Date now = new Date();
-        Calendar calendar = Calendar.getInstance();
-        
-        for (FrameworkAgreement agreement : agreements) {
+
+        for (FrameworkAgreement agreement : allAgreements) {
+            // 过滤出规则中配置的责任科室
+            if (!config.includesDepartment(agreement.getResponsibleDepartment())) continue;
+            targetAgreements.add(agreement);
+
             Date referenceDate = getReferenceDate(agreement);
-            if (referenceDate == null) continue;
-            
-            calendar.setTime(referenceDate);
-            calendar.add(Calendar.MONTH, -3);
-            Date threeMonthsBefore = calendar.getTime();
-            
-            // 前三个月内
-            if (now.after(threeMonthsBefore) && now.before(referenceDate)) {
-                String progress = agreement.getCurrentProgress();
-                if (progress == null || progress.isEmpty() || "资料整理中".equals(progress)) {
-                    names.add(agreement.getResponsiblePerson());
+            agreement.setAlertLevel(evaluator.urgencyLevel(referenceDate));
+
+            int stages = evaluator.stages(referenceDate, agreement.getCurrentProgress());
+            for (int i = 0; stages != 0; i++, stages >>>= 1) {
+                if ((stages & 1) != 0) {
+                    stageNames.get(i).add(agreement.getResponsiblePerson());
                 }
             }
         }
-        return new ArrayList<>(names);
+
+        logger.info("找到 {} 条{}的记录", targetAgreements.size(), config.getDepartmentLabel());
+
+        recorder.switchTo(RunMetrics.Stage.SORT);
+        List<FrameworkAgreement> sorted = sortAgreements(targetAgreements);
+        recorder.switchTo(RunMetrics.Stage.ANALYZE);
+        return buildMailContent(now, config.getDepartmentLabel(), stageNames, sorted);
     }
-    
-    private List<String> generateNeedApprovalAlert(List<FrameworkAgreement> agreements) {
-        Set<String> names = new HashSet<>();
-        Date now = new Date();
-        Calendar calendar = Calendar.getInstance();
-        
-        for (FrameworkAgreement agreement : agreements) {
-            Date referenceDate = getReferenceDate(agreement);
-            if (referenceDate == null) continue;
-            
-            calendar.setTime(referenceDate);
-            calendar.add(Calendar.MONTH, -2);
-            Date twoMonthsBefore = calendar.getTime();
-            
-            // 前两个月内
-            if (now.after(twoMonthsBefore) && now.before(referenceDate)) {
-                String progress = agreement.getCurrentProgress();
-                if (progress == null || progress.isEmpty() || 
-                    "资料整理中".equals(progress) || 
-                    "发起事财权阶段".equals(progress)) {
-                    names.add(agreement.getResponsiblePerson());
+
+    public MailContent analyzeAlerts(CompactAgreementStore store) {
+        return analyzeAlerts(store, new Date());
+    }
+
+    /**
+     * 在列式存储上分析：科室过滤、进度bit都按字典编号预先算好，逐条只做数组访问和整数比较。
+     * 紧急程度写回存储，表格数据按需生成FrameworkAgreement。
+     */
+    public MailContent analyzeAlerts(CompactAgreementStore store, Date now) {
+        AlertRules config = rules.getRules();
+
+        RunMetrics.Recorder recorder = metrics.recorder();
+        RunMetrics.Stage outer = recorder.switchTo(RunMetrics.Stage.ANALYZE);
+        try {
+            int[] targets = targetRows(store);
+            logger.info("找到 {} 条{}的记录", targets.length, config.getDepartmentLabel());
+
+            MailContent mailContent = analyzeRows(store, targets, targets.length, config.getDepartmentLabel(), evaluatorAt(now), null);
+            recordAlerts(mailContent);
+            return mailContent;
+        } finally {
+            recorder.switchTo(outer);
+        }
+    }
+
+    /**
+     * 与已发送提醒日志比较后的提醒：阶段提醒中只列出有新提醒（新进入阶段，或紧急程度升高）的经办人，表格不变。
+     * 本次的提醒记入sentLog，调用方在提醒成功生成或发送后调用sentLog.finishRun()写入文件，
+     * 不再满足条件的提醒届时从日志中清除，之后再次进入阶段时重新提醒。
+     * 所有阶段都没有新提醒时，各阶段的名单为空（见hasAlerts）
+     */
+    public MailContent analyzeNewAlerts(CompactAgreementStore store, Date now, SentAlertLog sentLog) {
+        AlertRules config = rules.getRules();
+
+        RunMetrics.Recorder recorder = metrics.recorder();
+        RunMetrics.Stage outer = recorder.switchTo(RunMetrics.Stage.ANALYZE);
+        try {
+            int[] targets = targetRows(store);
+            logger.info("找到 {} 条{}的记录", targets.length, config.getDepartmentLabel());
+
+            AlertEvaluator evaluator = evaluatorAt(now);
+            PersonIndex.Builder builder = new PersonIndex.Builder(store, targets.length);
+            MailContent mailContent = analyzeRows(store, targets, targets.length, config.getDepartmentLabel(), evaluator, builder);
+            PersonIndex index = builder.build();
+
+            List<Set<String>> newNames = new ArrayList<>();
+            for (int i = 0; i < rules.getStageCount(); i++) {
+                newNames.add(new HashSet<>());
+            }
+            int today = store.toEpochDay(now);
+            int suppressed = 0;
+            for (int person = StringDictionary.NULL_ID; person < index.getPersonCount(); person++) {
+                String name = index.personName(person);
+                for (int k = 0; k < index.rowCount(person); k++) {
+                    int row = index.row(person, k);
+                    String agreement = store.agreementKey(row);
+                    int stages = index.stages(person, k);
+                    for (int stage = 0; stages != 0; stage++, stages >>>= 1) {
+                        if ((stages & 1) == 0) continue;
+                        if (sentLog.offer(agreement, config.getStages().get(stage).getKey(), name, store.getAlertLevel(row), today)) {
+                            newNames.get(stage).add(name);
+                        } else {
+                            suppressed++;
+                        }
+                    }
                 }
             }
+            logger.info("已提醒过、本次不再提醒的事项: {} 个", suppressed);
+
+            for (int i = 0; i < rules.getStageCount(); i++) {
+                // 同一个人在这个阶段还有其他已提醒过的事项时，只要有一条是新的就提醒
+                mailContent.getStageAlerts().get(i).setNames(new ArrayList<>(newNames.get(i)));
+            }
+            recordAlerts(mailContent); // 只统计本次实际提醒的人数
+            return mailContent;
+        } finally {
+            recorder.switchTo(outer);
         }
-        return new ArrayList<>(names);
     }
-    
-    private List<String> generateNeedPurchaseAlert(List<FrameworkAgreement> agreements) {
-        Set<String> names = new HashSet<>();
-        Date now = new Date();
-        Calendar calendar = Calendar.getInstance();
-        
-        for (FrameworkAgreement agreement : agreements) {
-            Date referenceDate = getReferenceDate(agreement);
-            if (referenceDate == null) continue;
-            
-            calendar.setTime(referenceDate);
-            calendar.add(Calendar.MONTH, -1);
-            Date oneMonthBefore = calendar.getTime();
-            
-            // 前一个月内
-            if (now.after(oneMonthBefore) && now.before(referenceDate)) {
-                String progress = agreement.getCurrentProgress();
-                if (progress == null || progress.isEmpty() || 
-                    "资料整理中".equals(progress) || 
-                    "发起事财权阶段".equals(progress) ||
-                    "合同采购阶段".equals(progress)) {
-                    names.add(agreement.getResponsiblePerson());
-                }
+
+    /**
+     * 是否有任何阶段需要提醒
+     */
+    public static boolean hasAlerts(MailContent mailContent) {
+        for (StageAlert stageAlert : mailContent.getStageAlerts()) {
+            if (!stageAlert.getNames().isEmpty()) {
+                return true;
             }
         }
-        return new ArrayList<>(names);
+        return false;
     }
-    
-    private List<String> generateNeedSealAlert(List<FrameworkAgreement> agreements) {
-        Set<String> names = new HashSet<>();
-        Date now = new Date();
-        Calendar calendar = Calendar.getInstance();
-        
-        for (FrameworkAgreement agreement : agreements) {
-            Date referenceDate = getReferenceDate(agreement);
-            if (referenceDate == null) continue;
-            
-            calendar.setTime(referenceDate);
-            calendar.add(Calendar.DAY_OF_MONTH, -14);
-            Date twoWeeksBefore = calendar.getTime();
-            
-            // 前两周内
-            if (now.after(twoWeeksBefore) && now.before(referenceDate)) {
-                String progress = agreement.getCurrentProgress();
-                if (progress == null || progress.isEmpty() || 
-                    "资料整理中".equals(progress) || 
-                    "发起事财权阶段".equals(progress) ||
-                    "合同采购阶段".equals(progress) ||
-                    "合同用印阶段".equals(progress)) {
-                    names.add(agreement.getResponsiblePerson());
+
+    /**
+     * 规则中配置的责任科室的记录下标，按原有顺序
+     */
+    int[] targetRows(CompactAgreementStore store) {
+        AlertRules config = rules.getRules();
+
+        StringDictionary departments = store.getDepartments();
+        boolean[] includedDepartments = new boolean[departments.size()];
+        for (int id = 0; id < includedDepartments.length; id++) {
+            includedDepartments[id] = config.includesDepartment(departments.valueOf(id));
+        }
+        boolean includeNullDepartment = config.includesDepartment(null);
+
+        int[] departmentIds = store.getDepartmentIds();
+        int[] targets = new int[store.size()];
+        int targetCount = 0;
+        for (int i = 0; i < store.size(); i++) {
+            int department = departmentIds[i];
+            if (department == StringDictionary.NULL_ID ? !includeNullDepartment : !includedDepartments[department]) continue;
+            targets[targetCount++] = i;
+        }
+        return Arrays.copyOf(targets, targetCount);
+    }
+
+    AlertEvaluator evaluatorAt(Date now) {
+        return rules.evaluatorAt(now);
+    }
+
+    CompiledAlertRules getCompiledRules() {
+        return rules;
+    }
+
+    /**
+     * 分析存储中的指定记录（rows的前rowCount个下标，按原有顺序），department作为报告中的科室名称。
+     * 只写这些记录的紧急程度，不同线程可以同时分析互不重叠的记录。
+     * personIndex不为null时，按表格顺序把每条记录和它所属的阶段交给它，用于建立经办人索引。
+     */
+    MailContent analyzeRows(CompactAgreementStore store, int[] rows, int rowCount, String department,
+                            AlertEvaluator evaluator, PersonIndex.Builder personIndex) {
+        RunMetrics.Recorder recorder = metrics.recorder();
+        RunMetrics.Stage outer = recorder.switchTo(RunMetrics.Stage.ANALYZE);
+        try {
+            return analyzeRows(store, rows, rowCount, department, evaluator, personIndex, recorder);
+        } finally {
+            recorder.switchTo(outer);
+        }
+    }
+
+    private MailContent analyzeRows(CompactAgreementStore store, int[] rows, int rowCount, String department,
+                                    AlertEvaluator evaluator, PersonIndex.Builder personIndex,
+                                    RunMetrics.Recorder recorder) {
+        StringDictionary progresses = store.getProgresses();
+        long[] progressBits = new long[progresses.size()];
+        boolean[] completed = new boolean[progresses.size()];
+        for (int id = 0; id < progressBits.length; id++) {
+            progressBits[id] = rules.bitOf(progresses.valueOf(id));
+            completed[id] = "已完成".equals(progresses.valueOf(id));
+        }
+        long nullProgressBit = rules.bitOf(null);
+
+        List<Set<String>> stageNames = new ArrayList<>();
+        for (int i = 0; i < rules.getStageCount(); i++) {
+            stageNames.add(new HashSet<>());
+        }
+
+        int[] progressIds = store.getProgressIds();
+        int[] personIds = store.getPersonIds();
+
+        // 排序键：未完成在前，同组内按紧急程度（1-5）；按键计数排序，保持原有顺序
+        int[] counts = new int[13];
+        int[] keys = new int[rowCount];
+        int[] rowStages = personIndex != null ? new int[rowCount] : null;
+
+        for (int t = 0; t < rowCount; t++) {
+            int i = rows[t];
+            int referenceDay = store.referenceDay(i);
+            int level = evaluator.urgencyLevel(referenceDay);
+            store.setAlertLevel(i, level);
+
+            int progress = progressIds[i];
+            int stages = evaluator.stages(referenceDay, progress == StringDictionary.NULL_ID ? nullProgressBit : progressBits[progress]);
+            if (rowStages != null) {
+                rowStages[t] = stages;
+            }
+            for (int stage = 0; stages != 0; stage++, stages >>>= 1) {
+                if ((stages & 1) != 0) {
+                    stageNames.get(stage).add(store.getPersons().valueOf(personIds[i]));
                 }
             }
+
+            boolean done = progress != StringDictionary.NULL_ID && completed[progress];
+            keys[t] = (done ? 6 : 0) + level;
+            counts[keys[t] + 1]++;
         }
-        return new ArrayList<>(names);
+
+        recorder.switchTo(RunMetrics.Stage.SORT);
+        for (int k = 1; k < counts.length; k++) {
+            counts[k] += counts[k - 1];
+        }
+        FrameworkAgreement[] sorted = new FrameworkAgreement[rowCount];
+        for (int t = 0; t < rowCount; t++) {
+            int position = counts[keys[t]]++;
+            sorted[position] = store.get(rows[t]);
+            if (personIndex != null) {
+                personIndex.add(position, rows[t], rowStages[t]);
+            }
+        }
+        recorder.switchTo(RunMetrics.Stage.ANALYZE);
+
+        return buildMailContent(evaluator.getNow(), department, stageNames, Arrays.asList(sorted));
+    }
+
+    MailContent buildMailContent(Date now, String department, List<Set<String>> stageNames,
+                                 List<FrameworkAgreement> tableData) {
+        AlertRules config = rules.getRules();
+
+        // 生成提醒
+        MailContent mailContent = new MailContent();
+        mailContent.setSubject("人月框架协议进度提醒 - " + now);
+        mailContent.setDepartment(department);
+
+        List<StageAlert> stageAlerts = new ArrayList<>();
+        for (int i = 0; i < rules.getStageCount(); i++) {
+            StageRule rule = config.getStages().get(i);
+            StageAlert stageAlert = new StageAlert();
+            stageAlert.setKey(rule.getKey());
+            stageAlert.setName(rule.getName());
+            stageAlert.setTitle(rule.getTitle());
+            stageAlert.setNames(new ArrayList<>(stageNames.get(i)));
+            stageAlerts.add(stageAlert);
+        }
+        mailContent.setStageAlerts(stageAlerts);
+
+        // 排序表格数据（按紧急程度，已完成放最后）
+        mailContent.setTableData(tableData);
+
+        return mailContent;
     }
-    
+
+    /**
+     * 把各阶段的提醒人数计入运行指标。由各入口在名单确定后对每份提醒调用一次，
+     * analyzeRows和buildMailContent不计数，建立索引等中间步骤不会重复统计
+     */
+    void recordAlerts(MailContent mailContent) {
+        for (StageAlert stageAlert : mailContent.getStageAlerts()) {
+            metrics.addAlerts(stageAlert.getKey(), stageAlert.getNames().size());
+        }
+    }
+
+    private Date getReferenceDate(FrameworkAgreement agreement) {
+        Date referenceDate = agreement.getPreviousAgreementExpiry();
+        if (referenceDate == null) {
+            referenceDate = agreement.getPlannedApprovalDate();
+        }
+        return referenceDate;
+    }
+
     private List<FrameworkAgreement> sortAgreements(List<FrameworkAgreement> agreements) {
         return agreements.stream()
                 .sorted(Comparator
@@ -0,0 +1,199 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.CompactAgreementStore;
+import com.framework.alert.model.MailContent;
+import com.framework.alert.model.StageAlert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 常驻模式：监视工作簿文件，保存后（合并debounce时间内的多次事件）重新读取并生成提醒。
+ * 进程常驻，POI等类只加载一次；工作簿内容未变化时不做任何处理。
+ * 每次读取后按记录哈希与上次比较，记录新增、修改和删除的条数；表格行通过RowFragmentCache复用，
+ * 提醒内容与上次相同时不重新生成文件。
+ */
+public class AlertDaemon {
+    private static final Logger logger = LoggerFactory.getLogger(AlertDaemon.class);
+
+    private final Path workbook;
+    private final SnapshotCache snapshotCache;
+    private final AlertAnalyzer analyzer;
+    private final EmailGenerator emailGenerator;
+    private final Path outputDirectory;
+    private final boolean gzip;
+    private final long debounceMillis;
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss").withZone(ZoneId.systemDefault());
+
+    private volatile WatchService watchService;
+    private byte[] lastHash;
+    private long[] lastRowHashes = new long[0];
+    private MailContent lastContent;
+
+    public AlertDaemon(Path workbook, AgreementSource source, AlertAnalyzer analyzer, Path outputDirectory,
+                       boolean gzip, long debounceMillis) {
+        this.workbook = workbook.toAbsolutePath();
+        this.snapshotCache = new SnapshotCache(source);
+        this.analyzer = analyzer;
+        this.emailGenerator = new EmailGenerator(new RowFragmentCache(10000));
+        this.outputDirectory = outputDirectory;
+        this.gzip = gzip;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * 先处理一次当前的工作簿，然后监视文件变化直到stop()
+     */
+    public void run() throws IOException, InterruptedException {
+        Path directory = workbook.getParent();
+        Path fileName = workbook.getFileName();
+
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            watchService = watcher;
+            // 编辑器保存时常常先写临时文件再改名，所以同时监视创建事件
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            refresh();
+            logger.info("开始监视: {}", workbook);
+
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean changed = drain(key, fileName);
+
+                // 等到debounce时间内没有新事件再处理，避免保存过程中读到不完整的文件
+                while (true) {
+                    WatchKey next = watcher.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                    if (next == null) break;
+                    changed |= drain(next, fileName);
+                }
+                if (changed) {
+                    refresh();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.info("停止监视: {}", workbook);
+        }
+    }
+
+    private static boolean drain(WatchKey key, Path fileName) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    public void stop() {
+        WatchService watcher = watchService;
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                logger.warn("关闭文件监视失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 重新读取工作簿，有变化时重新分析并生成提醒，返回是否生成了新文件
+     */
+    synchronized boolean refresh() {
+        try {
+            long start = System.nanoTime();
+            byte[] hash = SnapshotCache.contentHash(workbook);
+            if (Arrays.equals(hash, lastHash)) {
+                logger.debug("工作簿内容未变化: {}", workbook);
+                return false;
+            }
+
+            CompactAgreementStore store = snapshotCache.read(workbook.toString(), hash);
+            lastHash = hash;
+            logChanges(store);
+
+            Date now = new Date();
+            MailContent content = analyzer.analyzeAlerts(store, now);
+            if (sameAlerts(lastContent, content)) {
+                logger.info("提醒内容无变化，不重新生成");
+                return false;
+            }
+            lastContent = content;
+
+            Path output = outputDirectory.resolve(FILE_TIMESTAMP.format(now.toInstant()) + (gzip ? ".html.gz" : ".html"));
+            emailGenerator.writeHtml(content, output, gzip);
+            logger.info("提醒邮件已生成: {}，耗时 {} 毫秒", output, (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (Exception e) {
+            // 文件可能仍在写入，保留上次的结果，等待下一次变化
+            logger.warn("处理工作簿失败，等待下一次修改: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 按记录哈希与上次读取的结果比较（多重集合），输出新增和删除的条数；修改的记录表现为一条删除加一条新增
+     */
+    private void logChanges(CompactAgreementStore store) {
+        long[] hashes = new long[store.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = store.rowHash(i);
+        }
+        Arrays.sort(hashes);
+
+        int added = 0;
+        int removed = 0;
+        int a = 0;
+        int b = 0;
+        while (a < lastRowHashes.length || b < hashes.length) {
+            if (b == hashes.length || (a < lastRowHashes.length && lastRowHashes[a] < hashes[b])) {
+                removed++;
+                a++;
+            } else if (a == lastRowHashes.length || hashes[b] < lastRowHashes[a]) {
+                added++;
+                b++;
+            } else {
+                a++;
+                b++;
+            }
+        }
+        logger.info("读取 {} 条记录，与上次相比: 新增或修改 {} 条，删除或修改前 {} 条", store.size(), added, removed);
+        lastRowHashes = hashes;
+    }
+
+    private static boolean sameAlerts(MailContent previous, MailContent current) {
+        if (previous == null
+                || !Objects.equals(previous.getDepartment(), current.getDepartment())
+                || !Objects.equals(previous.getTableData(), current.getTableData())) {
+            return false;
+        }
+        List<StageAlert> before = previous.getStageAlerts();
+        List<StageAlert> after = current.getStageAlerts();
+        if (before.size() != after.size()) {
+            return false;
+        }
+        for (int i = 0; i < before.size(); i++) {
+            if (!Objects.equals(before.get(i).getKey(), after.get(i).getKey())
+                    || !new HashSet<>(before.get(i).getNames()).equals(new HashSet<>(after.get(i).getNames()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
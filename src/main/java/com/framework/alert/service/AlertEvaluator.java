@@ -0,0 +1,203 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.CompactAgreementStore;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Date;
+
+/**
+ * 一次计算紧急程度和各提醒阶段的评估器。
+ * 所有阈值在构造时按同一个"当前时间"算好，评估单条记录只需要几次long比较和按位与，不再创建Calendar/Date。
+ * 表格中的日期都是自然日（零点），阶段窗口按自然日计算，与Calendar逐条减月份的结果一致。
+ */
+public class AlertEvaluator {
+    private static final long DAY_MILLIS = 1000L * 60 * 60 * 24;
+    // 紧急程度1-4的边界（距参考日期的天数）
+    static final int[] URGENCY_DAYS = {7, 14, 30, 90};
+
+    private final CompiledAlertRules rules;
+    private final long nowMillis;
+    private final long level1Limit;
+    private final long level2Limit;
+    private final long level3Limit;
+    private final long level4Limit;
+    private final long[] stageWindowEnds;
+
+    // 以epoch day表示的同一组阈值，供列式存储使用（日期为当天零点）
+    private final int today;
+    private final int level1Day;
+    private final int level2Day;
+    private final int level3Day;
+    private final int level4Day;
+    private final int[] stageWindowEndDays;
+
+    AlertEvaluator(CompiledAlertRules rules, Date now) {
+        this(rules, now, ZoneId.systemDefault());
+    }
+
+    AlertEvaluator(CompiledAlertRules rules, Date now, ZoneId zone) {
+        this.rules = rules;
+        this.nowMillis = now.getTime();
+
+        // 紧急程度：(参考日期 - 当前时间)的天数 < 7/14/30/90
+        this.level1Limit = nowMillis + URGENCY_DAYS[0] * DAY_MILLIS;
+        this.level2Limit = nowMillis + URGENCY_DAYS[1] * DAY_MILLIS;
+        this.level3Limit = nowMillis + URGENCY_DAYS[2] * DAY_MILLIS;
+        this.level4Limit = nowMillis + URGENCY_DAYS[3] * DAY_MILLIS;
+
+        // 阶段窗口："当前时间晚于(参考日期 - 窗口)"等价于"参考日期早于某个固定时刻"
+        ZonedDateTime current = Instant.ofEpochMilli(nowMillis).atZone(zone);
+        LocalDate lastStartDay = current.toLocalDate();
+        if (current.toLocalTime().toNanoOfDay() == 0) {
+            lastStartDay = lastStartDay.minusDays(1); // 恰好零点时"晚于"当天零点不成立
+        }
+        this.stageWindowEnds = new long[rules.getStageCount()];
+        this.stageWindowEndDays = new int[rules.getStageCount()];
+        for (int i = 0; i < stageWindowEnds.length; i++) {
+            LocalDate endDay = windowEnd(lastStartDay, rules.stageWindow(i));
+            stageWindowEnds[i] = endDay.atStartOfDay(zone).toInstant().toEpochMilli();
+            stageWindowEndDays[i] = (int) endDay.toEpochDay();
+        }
+
+        // 零点时刻严格晚于当前时间的日期都晚于今天
+        this.today = (int) current.toLocalDate().toEpochDay();
+        this.level1Day = firstDayNotBefore(level1Limit, zone);
+        this.level2Day = firstDayNotBefore(level2Limit, zone);
+        this.level3Day = firstDayNotBefore(level3Limit, zone);
+        this.level4Day = firstDayNotBefore(level4Limit, zone);
+    }
+
+    /**
+     * 零点不早于指定时刻的第一天
+     */
+    private static int firstDayNotBefore(long millis, ZoneId zone) {
+        ZonedDateTime time = Instant.ofEpochMilli(millis).atZone(zone);
+        LocalDate day = time.toLocalDate();
+        if (day.atStartOfDay(zone).toInstant().toEpochMilli() < millis) {
+            day = day.plusDays(1);
+        }
+        return (int) day.toEpochDay();
+    }
+
+    /**
+     * 参考日期满足"参考日期 - 窗口 <= lastStartDay"的最晚一天的次日。
+     * 减月份时月末会被截断（5月31日减3个月是2月28日），所以从lastStartDay + 窗口向后多找几天。
+     */
+    private static LocalDate windowEnd(LocalDate lastStartDay, Period window) {
+        LocalDate last = lastStartDay.plus(window);
+        while (!last.plusDays(1).minus(window).isAfter(lastStartDay)) {
+            last = last.plusDays(1);
+        }
+        return last.plusDays(1);
+    }
+
+    /**
+     * 参考日期为referenceDay、进度bit为progressBit的记录，在after之后紧急程度或所属阶段第一次可能变化的时刻（毫秒），
+     * 之后不再变化时返回Long.MAX_VALUE。变化只发生在以下时刻之后：
+     * 参考日期前7/14/30/90天（紧急程度）、参考日期减阶段窗口当天零点（进入阶段）、参考日期当天零点（离开所有阶段）。
+     */
+    static long nextChange(CompiledAlertRules rules, int referenceDay, long progressBit, long after, ZoneId zone) {
+        if (referenceDay == CompactAgreementStore.NO_DATE) {
+            return Long.MAX_VALUE;
+        }
+        LocalDate reference = LocalDate.ofEpochDay(referenceDay);
+        long referenceMillis = reference.atStartOfDay(zone).toInstant().toEpochMilli();
+
+        long next = Long.MAX_VALUE;
+        for (int days : URGENCY_DAYS) {
+            next = earliestAfter(next, referenceMillis - days * DAY_MILLIS + 1, after);
+        }
+        if (progressBit != 0) {
+            for (int i = 0; i < rules.getStageCount(); i++) {
+                if ((rules.stageMask(i) & progressBit) != 0) {
+                    long start = reference.minus(rules.stageWindow(i)).atStartOfDay(zone).toInstant().toEpochMilli();
+                    next = earliestAfter(next, start + 1, after);
+                }
+            }
+            next = earliestAfter(next, referenceMillis, after);
+        }
+        return next;
+    }
+
+    private static long earliestAfter(long current, long candidate, long after) {
+        return candidate > after && candidate < current ? candidate : current;
+    }
+
+    public Date getNow() {
+        return new Date(nowMillis);
+    }
+
+    /**
+     * 紧急程度：1=7天内，2=7-14天，3=14-30天，4=30-90天，5=90天以上或无参考日期
+     */
+    public int urgencyLevel(Date referenceDate) {
+        if (referenceDate == null) {
+            return 5; // 最低优先级
+        }
+        long ref = referenceDate.getTime();
+        if (ref < level1Limit) return 1;
+        if (ref < level2Limit) return 2;
+        if (ref < level3Limit) return 3;
+        if (ref < level4Limit) return 4;
+        return 5;
+    }
+
+    /**
+     * 返回该记录所属的提醒阶段，第i位对应规则中的第i个阶段，不属于任何阶段时返回0
+     */
+    public int stages(Date referenceDate, String progress) {
+        if (referenceDate == null) {
+            return 0;
+        }
+        long ref = referenceDate.getTime();
+        if (ref <= nowMillis) {
+            return 0; // 已过参考日期
+        }
+        long progressBit = rules.bitOf(progress);
+        if (progressBit == 0) {
+            return 0;
+        }
+
+        int stages = 0;
+        for (int i = 0; i < stageWindowEnds.length; i++) {
+            if ((rules.stageMask(i) & progressBit) != 0 && ref < stageWindowEnds[i]) {
+                stages |= 1 << i;
+            }
+        }
+        return stages;
+    }
+
+    /**
+     * 同urgencyLevel(Date)，参考日期为epoch day，NO_DATE表示无参考日期
+     */
+    public int urgencyLevel(int referenceDay) {
+        if (referenceDay == CompactAgreementStore.NO_DATE) {
+            return 5;
+        }
+        if (referenceDay < level1Day) return 1;
+        if (referenceDay < level2Day) return 2;
+        if (referenceDay < level3Day) return 3;
+        if (referenceDay < level4Day) return 4;
+        return 5;
+    }
+
+    /**
+     * 同stages(Date, String)，参考日期为epoch day，进度为CompiledAlertRules中的bit
+     */
+    public int stages(int referenceDay, long progressBit) {
+        if (referenceDay == CompactAgreementStore.NO_DATE || referenceDay <= today || progressBit == 0) {
+            return 0;
+        }
+        int stages = 0;
+        for (int i = 0; i < stageWindowEndDays.length; i++) {
+            if ((rules.stageMask(i) & progressBit) != 0 && referenceDay < stageWindowEndDays[i]) {
+                stages |= 1 << i;
+            }
+        }
+        return stages;
+    }
+}
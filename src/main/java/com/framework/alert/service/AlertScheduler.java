@@ -0,0 +1,232 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.CompactAgreementStore;
+import com.framework.alert.model.FrameworkAgreement;
+import com.framework.alert.model.StringDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.LongSupplier;
+
+/**
+ * 按阈值时刻调度的提醒：每条记录的紧急程度和阶段只在可以预先算出的时刻变化（见AlertEvaluator.nextChange），
+ * 把每条记录的下一个变化时刻放入优先队列，睡眠到最早的时刻，只重新评估到期的记录，有变化时通知监听器。
+ * 两次变化之间不做任何计算。
+ */
+public class AlertScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(AlertScheduler.class);
+
+    /**
+     * 一条记录的紧急程度或阶段发生的变化
+     */
+    public static final class Transition {
+        private final int row;
+        private final FrameworkAgreement agreement;
+        private final int previousLevel;
+        private final int level;
+        private final int previousStages;
+        private final int stages;
+
+        Transition(int row, FrameworkAgreement agreement, int previousLevel, int level, int previousStages, int stages) {
+            this.row = row;
+            this.agreement = agreement;
+            this.previousLevel = previousLevel;
+            this.level = level;
+            this.previousStages = previousStages;
+            this.stages = stages;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public FrameworkAgreement getAgreement() {
+            return agreement;
+        }
+
+        public int getPreviousLevel() {
+            return previousLevel;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public int getPreviousStages() {
+            return previousStages;
+        }
+
+        public int getStages() {
+            return stages;
+        }
+
+        /**
+         * 新进入的阶段，第i位对应第i个阶段
+         */
+        public int getEnteredStages() {
+            return stages & ~previousStages;
+        }
+    }
+
+    public interface Listener {
+        void onTransitions(Date time, List<Transition> transitions);
+    }
+
+    private static final class Crossing implements Comparable<Crossing> {
+        final long time;
+        final int row;
+
+        Crossing(long time, int row) {
+            this.time = time;
+            this.row = row;
+        }
+
+        @Override
+        public int compareTo(Crossing other) {
+            return time != other.time ? Long.compare(time, other.time) : Integer.compare(row, other.row);
+        }
+    }
+
+    private final CompiledAlertRules rules;
+    private final CompactAgreementStore store;
+    private final Listener listener;
+    private final LongSupplier clock;
+    private final long[] progressBits;
+    private final int[] stages; // 按存储下标，未调度的记录为0
+    private final PriorityQueue<Crossing> queue = new PriorityQueue<>();
+    private final Object lock = new Object();
+    private volatile boolean stopped; // 只会从false变为true，run()之前调用stop()也有效
+
+    public AlertScheduler(AlertAnalyzer analyzer, CompactAgreementStore store, Listener listener) {
+        this(analyzer, store, listener, System::currentTimeMillis);
+    }
+
+    /**
+     * clock为当前时间（毫秒）的来源，构造时以它为起点评估所有记录
+     */
+    public AlertScheduler(AlertAnalyzer analyzer, CompactAgreementStore store, Listener listener, LongSupplier clock) {
+        this.rules = analyzer.getCompiledRules();
+        this.store = store;
+        this.listener = listener;
+        this.clock = clock;
+
+        StringDictionary progresses = store.getProgresses();
+        this.progressBits = new long[progresses.size()];
+        for (int id = 0; id < progressBits.length; id++) {
+            progressBits[id] = rules.bitOf(progresses.valueOf(id));
+        }
+        this.stages = new int[store.size()];
+
+        long now = clock.getAsLong();
+        AlertEvaluator evaluator = new AlertEvaluator(rules, new Date(now), store.getZone());
+        for (int row : analyzer.targetRows(store)) {
+            int referenceDay = store.referenceDay(row);
+            store.setAlertLevel(row, evaluator.urgencyLevel(referenceDay));
+            stages[row] = evaluator.stages(referenceDay, progressBit(row));
+            schedule(row, now);
+        }
+        logger.info("已调度 {} 条记录，下一次变化: {}", queue.size(), describe(nextWakeup()));
+    }
+
+    private long progressBit(int row) {
+        int progress = store.getProgressIds()[row];
+        return progress == StringDictionary.NULL_ID ? rules.bitOf(null) : progressBits[progress];
+    }
+
+    private void schedule(int row, long after) {
+        long next = AlertEvaluator.nextChange(rules, store.referenceDay(row), progressBit(row), after, store.getZone());
+        if (next != Long.MAX_VALUE) {
+            queue.add(new Crossing(next, row));
+        }
+    }
+
+    /**
+     * 最早的变化时刻，没有待处理的变化时返回Long.MAX_VALUE
+     */
+    public long nextWakeup() {
+        synchronized (lock) {
+            Crossing first = queue.peek();
+            return first != null ? first.time : Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * 记录当前所属的阶段
+     */
+    public int stagesOf(int row) {
+        synchronized (lock) {
+            return stages[row];
+        }
+    }
+
+    /**
+     * 处理时刻不晚于time的所有变化，以time重新评估到期的记录，有变化时通知监听器并返回这些变化
+     */
+    public List<Transition> advanceTo(long time) {
+        List<Transition> transitions = new ArrayList<>();
+        synchronized (lock) {
+            if (queue.isEmpty() || queue.peek().time > time) {
+                return transitions;
+            }
+            AlertEvaluator evaluator = new AlertEvaluator(rules, new Date(time), store.getZone());
+            while (!queue.isEmpty() && queue.peek().time <= time) {
+                int row = queue.poll().row;
+                int referenceDay = store.referenceDay(row);
+                int level = evaluator.urgencyLevel(referenceDay);
+                int rowStages = evaluator.stages(referenceDay, progressBit(row));
+
+                int previousLevel = store.getAlertLevel(row);
+                int previousStages = stages[row];
+                if (level != previousLevel || rowStages != previousStages) {
+                    store.setAlertLevel(row, level);
+                    stages[row] = rowStages;
+                    transitions.add(new Transition(row, store.get(row), previousLevel, level, previousStages, rowStages));
+                }
+                schedule(row, time);
+            }
+        }
+        if (!transitions.isEmpty()) {
+            listener.onTransitions(new Date(time), transitions);
+        }
+        return transitions;
+    }
+
+    /**
+     * 在当前线程中运行，直到stop()。没有到期的变化时一直等待，不占用CPU
+     */
+    public void run() throws InterruptedException {
+        while (!stopped) {
+            long now = clock.getAsLong();
+            advanceTo(now);
+
+            long next = nextWakeup();
+            logger.debug("下一次变化: {}", describe(next));
+            synchronized (lock) {
+                if (stopped) break;
+                if (next == Long.MAX_VALUE) {
+                    lock.wait();
+                } else {
+                    long wait = next - clock.getAsLong();
+                    if (wait > 0) {
+                        lock.wait(wait);
+                    }
+                }
+            }
+        }
+    }
+
+    public void stop() {
+        synchronized (lock) {
+            stopped = true;
+            lock.notifyAll();
+        }
+    }
+
+    private static String describe(long time) {
+        return time == Long.MAX_VALUE ? "无" : new Date(time).toString();
+    }
+}
@@ -0,0 +1,102 @@
+package com.framework.alert.service;
+
+import com.framework.alert.config.AlertOptions;
+import com.framework.alert.model.CompactAgreementStore;
+import com.framework.alert.model.MailContent;
+
+import java.util.Date;
+
+/**
+ * 供其他程序嵌入使用的入口：读取工作簿、分析提醒并生成HTML，一次调用完成。
+ *
+ * 线程安全：实例只保存不可变的AlertOptions，每次调用使用自己的读取器、列式存储、分析器和HTML生成器，
+ * 调用之间没有共享的可变状态，同一个实例可以被任意多个线程同时调用。
+ * 同时读取同一个工作簿时快照文件可能被写入多次，快照先写临时文件再替换，不会读到不完整的快照。
+ */
+public final class AlertService {
+
+    /**
+     * 一次调用的结果
+     */
+    public static final class Result {
+        private final MailContent content;
+        private final String html;
+        private final int rowCount;
+        private final RunMetrics metrics;
+
+        Result(MailContent content, String html, int rowCount, RunMetrics metrics) {
+            this.content = content;
+            this.html = html;
+            this.rowCount = rowCount;
+            this.metrics = metrics;
+        }
+
+        public MailContent getContent() {
+            return content;
+        }
+
+        /**
+         * 提醒邮件的HTML，选项renderHtml为false时为null
+         */
+        public String getHtml() {
+            return html;
+        }
+
+        /**
+         * 工作簿中读取到的记录数
+         */
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * 本次调用的运行指标，选项metrics为false时为RunMetrics.NONE
+         */
+        public RunMetrics getMetrics() {
+            return metrics;
+        }
+    }
+
+    private final AlertOptions options;
+
+    public AlertService(AlertOptions options) {
+        if (options.getRules() == null) {
+            throw new IllegalArgumentException("没有指定提醒规则");
+        }
+        this.options = options;
+    }
+
+    public AlertOptions getOptions() {
+        return options;
+    }
+
+    public Result run(String filePath) throws Exception {
+        return run(filePath, new Date());
+    }
+
+    /**
+     * 读取filePath（xlsx、xls或csv），以now为当前时间分析提醒
+     */
+    public Result run(String filePath, Date now) throws Exception {
+        RunMetrics metrics = options.isMetrics() ? new RunMetrics() : RunMetrics.NONE;
+
+        SheetAgreementSource source = AgreementSource.forFile(filePath);
+        source.setDecodeThreads(options.getDecodeThreads());
+        source.setMetrics(metrics);
+        CompactAgreementStore store = options.isSnapshot()
+                ? new SnapshotCache(source).read(filePath)
+                : source.readCompact(filePath);
+
+        AlertAnalyzer analyzer = new AlertAnalyzer(options.getRules());
+        analyzer.setMetrics(metrics);
+        MailContent content = analyzer.analyzeAlerts(store, now);
+
+        String html = null;
+        if (options.isRenderHtml()) {
+            EmailGenerator emailGenerator = new EmailGenerator();
+            emailGenerator.setMetrics(metrics);
+            html = emailGenerator.generateHtmlContent(content);
+        }
+        return new Result(content, html, store.size(), metrics);
+    }
+}
@@ -0,0 +1,11 @@
+package com.framework.alert.service;
+
+/**
+ * 把单元格解码为某种类型的值，每列在读取前选定一个解码器
+ */
+public interface CellDecoder<T> {
+    /**
+     * @param cell 单元格，文件中不存在时为null
+     */
+    T decode(SheetCell cell);
+}
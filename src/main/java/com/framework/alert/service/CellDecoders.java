@@ -0,0 +1,120 @@
+package com.framework.alert.service;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * 常用的单元格解码器。公式单元格直接按缓存结果类型取值，不再用异常试探。
+ */
+public final class CellDecoders {
+    private static final Logger logger = LoggerFactory.getLogger(CellDecoders.class);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private CellDecoders() {
+    }
+
+    /**
+     * 文本：字符串去首尾空格，日期格式化为yyyy-MM-dd，整数去掉小数部分，公式取缓存的字符串或数字
+     */
+    public static final CellDecoder<String> STRING = cell -> {
+        if (cell == null) return "";
+
+        switch (cell.getCellType()) {
+            case STRING:
+                return cell.getStringValue().trim();
+            case NUMERIC:
+                if (cell.isDateFormatted()) {
+                    return DATE_FORMAT.format(cell.getDateCellValue().toInstant().atZone(ZoneId.systemDefault()));
+                }
+                // 如果是整数，去掉小数部分
+                double num = cell.getNumericValue();
+                if (num == (int) num) {
+                    return String.valueOf((int) num);
+                }
+                return String.valueOf(num);
+            case BOOLEAN:
+                return String.valueOf(cell.getBooleanValue());
+            case FORMULA:
+                if (cell.getCachedFormulaResultType() == CellType.STRING) {
+                    return cell.getStringValue();
+                } else if (cell.getCachedFormulaResultType() == CellType.NUMERIC) {
+                    return String.valueOf(cell.getNumericValue());
+                }
+                return "";
+            default:
+                return "";
+        }
+    };
+
+    /**
+     * 整数：数字取整，字符串按十进制解析，其他情况为0
+     */
+    public static final CellDecoder<Integer> INTEGER = cell -> {
+        if (cell == null) return 0;
+
+        if (cell.getCellType() == CellType.NUMERIC) {
+            return (int) cell.getNumericValue();
+        } else if (cell.getCellType() == CellType.STRING) {
+            try {
+                return Integer.parseInt(cell.getStringValue().trim());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    };
+
+    /**
+     * 日期：日期格式的数字（含公式结果）直接转换，字符串交给DateStringParser，其他情况为null
+     */
+    public static CellDecoder<Date> date(DateStringParser dateParser) {
+        return date(dateParser, RunMetrics.NONE);
+    }
+
+    /**
+     * 同date(dateParser)，无法得到日期的非空单元格按原因计入metrics
+     */
+    public static CellDecoder<Date> date(DateStringParser dateParser, RunMetrics metrics) {
+        return cell -> {
+            if (cell == null) return null;
+
+            CellType type = cell.getCellType();
+            if (type == CellType.FORMULA) {
+                type = cell.getCachedFormulaResultType();
+                if (type != CellType.NUMERIC) {
+                    if (type != CellType.BLANK) {
+                        metrics.dateFailure(RunMetrics.DateFailure.UNSUPPORTED_TYPE);
+                    }
+                    return null;
+                }
+            }
+
+            if (type == CellType.NUMERIC) {
+                if (!cell.isDateFormatted()) {
+                    metrics.dateFailure(RunMetrics.DateFailure.NOT_DATE_FORMATTED);
+                    return null;
+                }
+                return cell.getDateCellValue();
+            } else if (type == CellType.STRING) {
+                // 空值、"上期未签订"、"N/A"返回null
+                String dateStr = cell.getStringValue().trim();
+                long millis = dateParser.parseMillis(dateStr);
+                if (DateStringParser.isInvalid(millis)) {
+                    logger.warn("无法解析日期字符串: {}", dateStr);
+                    metrics.dateFailure(millis == DateStringParser.INVALID_DATE
+                            ? RunMetrics.DateFailure.INVALID_DATE : RunMetrics.DateFailure.INVALID_FORMAT);
+                    return null;
+                }
+                return millis == DateStringParser.NO_DATE ? null : new Date(millis);
+            } else if (type == CellType.BOOLEAN || type == CellType.ERROR) {
+                metrics.dateFailure(RunMetrics.DateFailure.UNSUPPORTED_TYPE);
+            }
+            return null;
+        };
+    }
+}
@@ -0,0 +1,147 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.CompactAgreementStore;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static com.framework.alert.service.ReportTemplate.*;
+
+/**
+ * 把WorkbookDiff生成HTML变更报告：概况、修改的项目（逐字段列出旧值和新值）、新增和删除的项目。
+ * 样式和输出方式与EmailGenerator相同
+ */
+public class ChangeReportGenerator {
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    public String generateHtmlContent(WorkbookDiff diff, String beforeName, String afterName) {
+        StringWriter html = new StringWriter();
+        try {
+            render(diff, beforeName, afterName, HtmlOutput.of(html));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringWriter不会抛出IOException
+        }
+        return html.toString();
+    }
+
+    /**
+     * 生成HTML写入文件，gzip为true时写出gzip压缩的内容。beforeName和afterName是报告中显示的两个版本的名称
+     */
+    public void writeHtml(WorkbookDiff diff, String beforeName, String afterName, Path path, boolean gzip) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+            OutputStream buffered = new BufferedOutputStream(gzipOut != null ? gzipOut : out, BUFFER_SIZE);
+            render(diff, beforeName, afterName, HtmlOutput.of(buffered));
+            if (gzipOut != null) {
+                gzipOut.finish();
+            }
+        }
+    }
+
+    private void render(WorkbookDiff diff, String beforeName, String afterName, HtmlOutput html) throws IOException {
+        html.write(DIFF_DOCUMENT_START);
+        html.write(beforeName);
+        html.write(DIFF_ARROW);
+        html.write(afterName);
+        html.write(DIFF_GENERATED);
+        html.write(new Date().toString());
+        html.write(HEADER_END);
+
+        List<WorkbookDiff.Change> changes = diff.getChanges();
+        html.write(DIFF_SUMMARY_START);
+        html.write(String.valueOf(diff.getAdded().length));
+        html.write(DIFF_SUMMARY_REMOVED);
+        html.write(String.valueOf(diff.getRemoved().length));
+        html.write(DIFF_SUMMARY_CHANGED);
+        html.write(String.valueOf(changes.size()));
+        html.write(DIFF_SUMMARY_PROGRESS);
+        html.write(String.valueOf(diff.countChanged(WorkbookDiff.Field.CURRENT_PROGRESS)));
+        html.write(DIFF_SUMMARY_UNCHANGED);
+        html.write(String.valueOf(diff.getUnchangedCount()));
+        html.write(DIFF_SUMMARY_END);
+
+        if (diff.isEmpty()) {
+            html.write(NO_CHANGES);
+        }
+
+        CompactAgreementStore before = diff.getBefore();
+        CompactAgreementStore after = diff.getAfter();
+        StringBuilder row = new StringBuilder(256);
+        if (!changes.isEmpty()) {
+            html.write(CHANGED_TITLE_START);
+            html.write(String.valueOf(changes.size()));
+            html.write(CHANGED_TABLE_START);
+            for (WorkbookDiff.Change change : changes) {
+                row.setLength(0);
+                int i = change.getAfterRow();
+                // 进度有变化的行单独标色，不用表示"已完成"的绿色
+                row.append(change.getFields().contains(WorkbookDiff.Field.CURRENT_PROGRESS)
+                        ? "<tr class=\"progress-changed\">" : "<tr>");
+                appendCell(row, WorkbookDiff.Field.ID.valueOf(after, i));
+                appendCell(row, WorkbookDiff.Field.SYSTEM_NAME.valueOf(after, i));
+                appendCell(row, WorkbookDiff.Field.RESPONSIBLE_PERSON.valueOf(after, i));
+                row.append("<td>");
+                boolean first = true;
+                for (WorkbookDiff.Field field : change.getFields()) {
+                    if (!first) {
+                        row.append("<br>");
+                    }
+                    first = false;
+                    row.append(field.getLabel()).append(": ")
+                            .append(OLD_VALUE_START.text).append(display(field.valueOf(before, change.getBeforeRow()))).append(VALUE_END.text)
+                            .append(DIFF_ARROW.text)
+                            .append(NEW_VALUE_START.text).append(display(field.valueOf(after, i))).append(VALUE_END.text);
+                }
+                row.append("</td></tr>");
+                html.write(row.toString());
+            }
+            html.write(TABLE_END);
+        }
+
+        writeRows(html, ADDED_TITLE_START, after, diff.getAdded(), "added", row);
+        writeRows(html, REMOVED_TITLE_START, before, diff.getRemoved(), "removed", row);
+
+        html.write(DOCUMENT_END);
+        html.flush();
+    }
+
+    private void writeRows(HtmlOutput html, Segment title, CompactAgreementStore store, int[] rows, String rowClass,
+                           StringBuilder row) throws IOException {
+        if (rows.length == 0) {
+            return;
+        }
+        html.write(title);
+        html.write(String.valueOf(rows.length));
+        html.write(ROWS_TABLE_START);
+        for (int i : rows) {
+            row.setLength(0);
+            row.append("<tr class=\"").append(rowClass).append("\">");
+            appendCell(row, WorkbookDiff.Field.ID.valueOf(store, i));
+            appendCell(row, WorkbookDiff.Field.SYSTEM_NAME.valueOf(store, i));
+            appendCell(row, WorkbookDiff.Field.RESPONSIBLE_PERSON.valueOf(store, i));
+            appendCell(row, WorkbookDiff.Field.CURRENT_PROGRESS.valueOf(store, i));
+            appendCell(row, display(WorkbookDiff.Field.PREVIOUS_EXPIRY.valueOf(store, i)));
+            appendCell(row, display(WorkbookDiff.Field.PLANNED_APPROVAL.valueOf(store, i)));
+            appendCell(row, WorkbookDiff.Field.RESPONSIBLE_DEPARTMENT.valueOf(store, i));
+            row.append("</tr>");
+            html.write(row.toString());
+        }
+        html.write(TABLE_END);
+    }
+
+    private static void appendCell(StringBuilder row, String value) {
+        row.append("<td>").append(value != null ? value : "").append("</td>");
+    }
+
+    private static String display(String value) {
+        return value != null ? value : "-";
+    }
+}
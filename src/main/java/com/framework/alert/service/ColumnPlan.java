@@ -0,0 +1,125 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.FrameworkAgreement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * 列计划：按表头名称定位需要读取的列，而不是写死列索引。
+ * 读取时先用表头行解析出RowDecoder，之后只解码计划中的列，其余单元格直接跳过。
+ * 找不到表头时使用当前模板的默认列位置。
+ */
+public class ColumnPlan {
+    private static final Logger logger = LoggerFactory.getLogger(ColumnPlan.class);
+
+    private static class Column<T> {
+        final String header;
+        final int defaultIndex;
+        final CellDecoder<T> decoder;
+        final BiConsumer<FrameworkAgreement, T> setter;
+
+        Column(String header, int defaultIndex, CellDecoder<T> decoder, BiConsumer<FrameworkAgreement, T> setter) {
+            this.header = header;
+            this.defaultIndex = defaultIndex;
+            this.decoder = decoder;
+            this.setter = setter;
+        }
+
+        void bindTo(RowDecoder rowDecoder, int index) {
+            rowDecoder.bind(index, decoder, setter);
+        }
+    }
+
+    private final List<Column<?>> columns = new ArrayList<>();
+
+    /**
+     * 人月框架协议sheet需要的列，默认位置为2026年模板中的位置
+     */
+    public static ColumnPlan standard(DateStringParser dateParser) {
+        return standard(dateParser, RunMetrics.NONE);
+    }
+
+    /**
+     * 同standard(dateParser)，日期解析失败计入metrics
+     */
+    public static ColumnPlan standard(DateStringParser dateParser, RunMetrics metrics) {
+        CellDecoder<Date> date = CellDecoders.date(dateParser, metrics);
+        return new ColumnPlan()
+                .column("序号", 0, CellDecoders.INTEGER, FrameworkAgreement::setId)
+                .column("系统名称", 1, CellDecoders.STRING, FrameworkAgreement::setSystemName)
+                .column("业务归口管理部门", 2, CellDecoders.STRING, FrameworkAgreement::setBusinessDepartment)
+                .column("责任科室", 3, CellDecoders.STRING, FrameworkAgreement::setResponsibleDepartment)
+                .column("责任经办", 16, CellDecoders.STRING, FrameworkAgreement::setResponsiblePerson)
+                .column("当前进度", 17, CellDecoders.STRING, FrameworkAgreement::setCurrentProgress)
+                .column("上期协议到期", 12, date, FrameworkAgreement::setPreviousAgreementExpiry)
+                .column("计划完成立项日期", 13, date, FrameworkAgreement::setPlannedApprovalDate)
+                .column("计划完成采购日期", 14, date, FrameworkAgreement::setPlannedPurchaseDate)
+                .column("计划合同签订日期", 15, date, FrameworkAgreement::setPlannedContractDate);
+    }
+
+    public <T> ColumnPlan column(String header, int defaultIndex, CellDecoder<T> decoder,
+                                 BiConsumer<FrameworkAgreement, T> setter) {
+        columns.add(new Column<>(header, defaultIndex, decoder, setter));
+        return this;
+    }
+
+    /**
+     * 按默认列位置创建解码器
+     */
+    public RowDecoder defaults() {
+        RowDecoder rowDecoder = new RowDecoder();
+        for (Column<?> column : columns) {
+            column.bindTo(rowDecoder, column.defaultIndex);
+        }
+        return rowDecoder;
+    }
+
+    /**
+     * 按表头行定位各列：先找完全相同的表头，再找包含该名称的表头（表头中常带有"(yyyy/mm/dd)"等说明）
+     */
+    public RowDecoder resolve(SheetRow headerRow) {
+        List<String> headers = new ArrayList<>();
+        for (int i = 0; i < headerRow.getLastCellNum(); i++) {
+            headers.add(normalize(CellDecoders.STRING.decode(headerRow.getCell(i))));
+        }
+
+        RowDecoder rowDecoder = new RowDecoder();
+        for (Column<?> column : columns) {
+            int index = headers.indexOf(column.header);
+            if (index < 0) {
+                for (int i = 0; i < headers.size(); i++) {
+                    if (headers.get(i).contains(column.header)) {
+                        index = i;
+                        break;
+                    }
+                }
+            }
+            if (index < 0) {
+                index = column.defaultIndex;
+                logger.warn("表头中未找到'{}'列，使用默认位置: 列{}", column.header, columnLetter(index));
+            } else if (index != column.defaultIndex) {
+                logger.info("'{}'列位置变化: 列{} -> 列{}", column.header, columnLetter(column.defaultIndex), columnLetter(index));
+            }
+            column.bindTo(rowDecoder, index);
+        }
+        return rowDecoder;
+    }
+
+    private static String normalize(String header) {
+        return header.replaceAll("\\s+", "");
+    }
+
+    static String columnLetter(int index) {
+        StringBuilder result = new StringBuilder();
+        while (index >= 0) {
+            result.insert(0, (char) ('A' + index % 26));
+            index = index / 26 - 1;
+        }
+        return result.toString();
+    }
+}
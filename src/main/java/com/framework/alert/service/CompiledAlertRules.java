@@ -0,0 +1,90 @@
+package com.framework.alert.service;
+
+import com.framework.alert.config.AlertRules;
+import com.framework.alert.config.StageRule;
+
+import java.time.Period;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 启动时把提醒规则编译成位掩码：每种当前进度对应一个bit，每个阶段对应一个允许进度的掩码。
+ * 判断一条记录是否属于某阶段只需一次查表和按位与，不再逐个比较字符串。
+ */
+public class CompiledAlertRules {
+    static final long BLANK_PROGRESS = 1L; // 当前进度为空
+
+    private final AlertRules rules;
+    private final Map<String, Long> progressBits = new HashMap<>();
+    private final long[] stageMasks;
+    private final Period[] stageWindows;
+
+    public CompiledAlertRules(AlertRules rules) {
+        List<StageRule> stages = rules.getStages();
+        if (stages.size() > Integer.SIZE) {
+            throw new IllegalArgumentException("提醒阶段最多支持 " + Integer.SIZE + " 个，当前配置了 " + stages.size() + " 个");
+        }
+        this.rules = rules;
+        this.stageMasks = new long[stages.size()];
+        this.stageWindows = new Period[stages.size()];
+
+        for (int i = 0; i < stages.size(); i++) {
+            StageRule stage = stages.get(i);
+            long mask = stage.isBlankProgress() ? BLANK_PROGRESS : 0L;
+            for (String progress : stage.getProgressStates()) {
+                mask |= progressBit(progress);
+            }
+            stageMasks[i] = mask;
+            stageWindows[i] = stage.getWindow();
+        }
+    }
+
+    private long progressBit(String progress) {
+        Long bit = progressBits.get(progress);
+        if (bit == null) {
+            int ordinal = progressBits.size() + 1; // bit 0 留给空进度
+            if (ordinal >= Long.SIZE) {
+                throw new IllegalArgumentException("提醒规则中的当前进度种类过多（最多 " + (Long.SIZE - 1) + " 种）");
+            }
+            bit = 1L << ordinal;
+            progressBits.put(progress, bit);
+        }
+        return bit;
+    }
+
+    public AlertRules getRules() {
+        return rules;
+    }
+
+    public int getStageCount() {
+        return stageMasks.length;
+    }
+
+    /**
+     * 当前进度对应的bit，规则中未出现的进度返回0（不属于任何阶段）
+     */
+    long bitOf(String progress) {
+        if (progress == null || progress.isEmpty()) {
+            return BLANK_PROGRESS;
+        }
+        Long bit = progressBits.get(progress);
+        return bit != null ? bit : 0L;
+    }
+
+    long stageMask(int stage) {
+        return stageMasks[stage];
+    }
+
+    Period stageWindow(int stage) {
+        return stageWindows[stage];
+    }
+
+    /**
+     * 以指定时间为"当前时间"创建评估器，本次运行的所有阈值在此时算好
+     */
+    public AlertEvaluator evaluatorAt(Date now) {
+        return new AlertEvaluator(this, now);
+    }
+}
@@ -0,0 +1,48 @@
+package com.framework.alert.service;
+
+/**
+ * 从CSV文件读取协议清单（UTF-8编码，可带BOM），文件内容为人月框架协议sheet另存的结果。
+ * 表头不要求在第2行：第一个含有"系统名称"的行即为表头，之后的行为数据，表头之前的标题行忽略。
+ */
+public class CsvAgreementSource extends SheetAgreementSource {
+    private static final String HEADER_MARKER = "系统名称";
+
+    private char delimiter = ',';
+    private boolean excelDates = true;
+
+    public void setDelimiter(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * 是否把m/d/yy格式的字段当作日期格式的单元格，默认开启；关闭后所有字段都作为文本交给DateStringParser
+     */
+    public void setExcelDates(boolean excelDates) {
+        this.excelDates = excelDates;
+    }
+
+    @Override
+    protected void readSheet(String filePath, StreamingSheetReader.RowHandler handler) throws Exception {
+        new CsvSheetReader(delimiter, excelDates, getMetrics()).read(filePath, handler);
+    }
+
+    @Override
+    protected boolean isHeaderRow(SheetRow row) {
+        for (int i = 0; i < row.getLastCellNum(); i++) {
+            SheetCell cell = row.getCell(i);
+            if (cell != null && cell.getStringValue() != null
+                    && HEADER_MARKER.equals(cell.getStringValue().replaceAll("\\s+", ""))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 找到表头之前没有数据行
+     */
+    @Override
+    protected int firstDataRow() {
+        return Integer.MAX_VALUE;
+    }
+}
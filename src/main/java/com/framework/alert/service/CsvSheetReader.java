@@ -0,0 +1,274 @@
+package com.framework.alert.service;
+
+import org.apache.poi.ss.usermodel.CellType;
+
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * 内存映射方式读取UTF-8编码的CSV文件，逐条记录回调，与StreamingSheetReader使用相同的SheetRow。
+ *
+ * 文件按窗口映射到内存，扫描时只记录每个字段在缓冲区中的起止位置，只有列投影中需要的字段才解码为字符串。
+ * 支持双引号包围的字段（""表示一个引号，字段内可以换行）、开头的UTF-8 BOM和\r\n换行。
+ * 第几条记录即为行号，空行（包括只有分隔符的行）不回调但占用行号，与从工作簿另存的CSV行号一致；空字段视为不存在的单元格。
+ */
+public class CsvSheetReader {
+    private static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final double EXCEL_EPOCH_DAY = LocalDate.of(1899, 12, 30).toEpochDay();
+
+    private final char delimiter;
+    private final boolean excelDates;
+    private final int windowSize;
+    private final RunMetrics metrics;
+    private final int twoDigitYearStart = LocalDate.now().getYear() - 80;
+
+    // 当前记录各字段在窗口中的位置
+    private int[] fieldStart = new int[32];
+    private int[] fieldEnd = new int[32];
+    private boolean[] fieldEscaped = new boolean[32];
+    private int fieldCount;
+    private byte[] scratch = new byte[256];
+
+    /**
+     * @param delimiter  字段分隔符，须为ASCII字符
+     * @param excelDates 是否把m/d/yy、m/d/yyyy格式的字段当作日期格式的数字（Excel另存为CSV时日期列的默认写法，两位年份见excelDate）
+     */
+    public CsvSheetReader(char delimiter, boolean excelDates, RunMetrics metrics) {
+        this(delimiter, excelDates, DEFAULT_WINDOW_SIZE, metrics);
+    }
+
+    CsvSheetReader(char delimiter, boolean excelDates, int windowSize, RunMetrics metrics) {
+        if (delimiter > 0x7F || delimiter == '"' || delimiter == '\r' || delimiter == '\n') {
+            throw new IllegalArgumentException("不支持的分隔符: " + delimiter);
+        }
+        this.delimiter = delimiter;
+        this.excelDates = excelDates;
+        this.windowSize = windowSize;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 读取文件，每条非空记录回调一次。打开文件的时间记为OPEN，扫描的时间记为READ（回调中切换的阶段除外）
+     */
+    public void read(String filePath, StreamingSheetReader.RowHandler handler) throws Exception {
+        RunMetrics.Recorder recorder = metrics.recorder();
+        RunMetrics.Stage outer = recorder.switchTo(RunMetrics.Stage.OPEN);
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            recorder.switchTo(RunMetrics.Stage.READ);
+
+            SheetRow row = new SheetRow(false);
+            int rowNum = 0;
+            long base = 0;
+            int window = windowSize;
+
+            while (base < size) {
+                int length = (int) Math.min(window, size - base);
+                boolean last = base + length == size;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, base, length);
+
+                int pos = 0;
+                if (base == 0 && length >= 3 && (buffer.get(0) & 0xFF) == 0xEF
+                        && (buffer.get(1) & 0xFF) == 0xBB && (buffer.get(2) & 0xFF) == 0xBF) {
+                    pos = 3;
+                }
+
+                while (pos < length) {
+                    int next = scanRecord(buffer, pos, length, last);
+                    if (next < 0) break; // 记录跨越窗口末尾，从记录开头重新映射
+
+                    if (!blankRecord()) {
+                        fillRow(row, rowNum, buffer);
+                        handler.handleRow(row);
+                    }
+                    rowNum++;
+                    pos = next;
+                }
+
+                if (pos == 0 && !last) {
+                    // 一条记录比整个窗口还大
+                    window = (int) Math.min(Integer.MAX_VALUE, (long) window * 2);
+                } else {
+                    window = windowSize;
+                }
+                base += pos;
+            }
+        } finally {
+            recorder.switchTo(outer);
+        }
+    }
+
+    /**
+     * 从pos开始扫描一条记录，记下各字段位置，返回下一条记录的开始位置；记录在窗口内不完整时返回-1
+     */
+    private int scanRecord(MappedByteBuffer buffer, int pos, int limit, boolean last) {
+        fieldCount = 0;
+        while (true) {
+            int start;
+            int end;
+            boolean escaped = false;
+
+            if (pos < limit && buffer.get(pos) == '"') {
+                start = ++pos;
+                while (true) {
+                    if (pos >= limit) {
+                        if (!last) return -1;
+                        end = pos; // 引号未闭合，取到文件末尾
+                        break;
+                    }
+                    if (buffer.get(pos) == '"') {
+                        if (pos + 1 >= limit && !last) return -1;
+                        if (pos + 1 < limit && buffer.get(pos + 1) == '"') {
+                            escaped = true;
+                            pos += 2;
+                            continue;
+                        }
+                        end = pos++;
+                        break;
+                    }
+                    pos++;
+                }
+                // 闭合引号之后到分隔符之前的内容忽略
+                while (pos < limit && !isBoundary(buffer.get(pos))) {
+                    pos++;
+                }
+            } else {
+                start = pos;
+                while (pos < limit && !isBoundary(buffer.get(pos))) {
+                    pos++;
+                }
+                end = pos;
+            }
+            if (pos >= limit && !last) return -1;
+
+            addField(start, end, escaped);
+
+            if (pos >= limit) {
+                return pos;
+            }
+            byte b = buffer.get(pos++);
+            if (b == '\n') {
+                return pos;
+            } else if (b == '\r') {
+                if (pos >= limit) {
+                    return last ? pos : -1;
+                }
+                return buffer.get(pos) == '\n' ? pos + 1 : pos;
+            }
+            // 分隔符，继续下一个字段
+        }
+    }
+
+    /**
+     * 空行或只有分隔符的行（Excel另存时工作表中间的空行写为",,,"）
+     */
+    private boolean blankRecord() {
+        for (int i = 0; i < fieldCount; i++) {
+            if (fieldEnd[i] > fieldStart[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isBoundary(byte b) {
+        return b == delimiter || b == '\n' || b == '\r';
+    }
+
+    private void addField(int start, int end, boolean escaped) {
+        if (fieldCount == fieldStart.length) {
+            int size = fieldCount * 2;
+            int[] newStart = new int[size];
+            int[] newEnd = new int[size];
+            boolean[] newEscaped = new boolean[size];
+            System.arraycopy(fieldStart, 0, newStart, 0, fieldCount);
+            System.arraycopy(fieldEnd, 0, newEnd, 0, fieldCount);
+            System.arraycopy(fieldEscaped, 0, newEscaped, 0, fieldCount);
+            fieldStart = newStart;
+            fieldEnd = newEnd;
+            fieldEscaped = newEscaped;
+        }
+        fieldStart[fieldCount] = start;
+        fieldEnd[fieldCount] = end;
+        fieldEscaped[fieldCount] = escaped;
+        fieldCount++;
+    }
+
+    /**
+     * 把列投影中需要的非空字段解码到row
+     */
+    private void fillRow(SheetRow row, int rowNum, MappedByteBuffer buffer) {
+        row.start(rowNum);
+        for (int column = 0; column < fieldCount; column++) {
+            int length = fieldEnd[column] - fieldStart[column];
+            if (length == 0 || !row.wants(column)) continue;
+
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.position(fieldStart[column]);
+            buffer.get(scratch, 0, length);
+            String text = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            if (fieldEscaped[column]) {
+                text = text.replace("\"\"", "\"");
+            }
+
+            SheetCell cell = row.cellAt(column);
+            double serial = excelDates ? excelDate(text, twoDigitYearStart) : -1;
+            if (serial >= 0) {
+                cell.setNumericValue(serial);
+                cell.setDateFormatted(true);
+                cell.set(CellType.NUMERIC, CellType.BLANK);
+            } else {
+                cell.setStringValue(text);
+                cell.set(CellType.STRING, CellType.BLANK);
+            }
+        }
+    }
+
+    /**
+     * 解析m/d/yy或m/d/yyyy格式的日期，返回Excel日期序号，不是该格式时返回-1。
+     * 两位年份与SimpleDateFormat的规则相同，取twoDigitYearStart（当前年份之前80年）起100年内的年份，
+     * 清单中常有几年后到期的日期
+     */
+    static double excelDate(String text, int twoDigitYearStart) {
+        int length = text.length();
+        if (length < 6 || length > 10) return -1;
+
+        int[] parts = new int[3];
+        int[] digits = new int[3];
+        int part = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                parts[part] = parts[part] * 10 + (c - '0');
+                digits[part]++;
+            } else if (c == '/' && part < 2 && digits[part] > 0) {
+                part++;
+            } else {
+                return -1;
+            }
+        }
+        if (part != 2 || digits[0] > 2 || digits[1] > 2 || (digits[2] != 2 && digits[2] != 4)) {
+            return -1;
+        }
+
+        int year = parts[2];
+        if (digits[2] == 2) {
+            year += twoDigitYearStart - twoDigitYearStart % 100;
+            if (year < twoDigitYearStart) {
+                year += 100;
+            }
+        }
+        try {
+            return LocalDate.of(year, parts[0], parts[1]).toEpochDay() - EXCEL_EPOCH_DAY;
+        } catch (DateTimeException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.framework.alert.service;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+import java.util.function.IntFunction;
+
+/**
+ * 按单元格样式索引缓存"是否为日期格式"的判断结果。
+ * DateUtil.isADateFormat需要分析格式字符串，同一个样式在整张表里只判断一次。
+ * 多线程同时填充时最多重复判断几次，结果相同，不需要加锁。
+ */
+public class DateFormatCache {
+    private static final byte UNKNOWN = 0;
+    private static final byte DATE = 1;
+    private static final byte NOT_DATE = 2;
+
+    private final IntFunction<CellStyle> styleAt;
+    private final int styleCount;
+    private final byte[] states;
+
+    public DateFormatCache(IntFunction<CellStyle> styleAt, int styleCount) {
+        this.styleAt = styleAt;
+        this.styleCount = styleCount;
+        this.states = new byte[styleCount];
+    }
+
+    public boolean isDateFormat(int styleIndex) {
+        if (styleIndex < 0 || styleIndex >= styleCount) {
+            return false;
+        }
+        byte state = states[styleIndex];
+        if (state == UNKNOWN) {
+            CellStyle style = styleAt.apply(styleIndex);
+            boolean date = style != null && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+            state = date ? DATE : NOT_DATE;
+            states[styleIndex] = state;
+        }
+        return state == DATE;
+    }
+}
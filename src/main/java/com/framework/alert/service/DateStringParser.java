@@ -0,0 +1,187 @@
+package com.framework.alert.service;
+
+import java.text.ParsePosition;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 文本日期解析，线程安全。
+ * 根据年份后面的分隔符直接选定唯一的格式，不再逐个尝试SimpleDateFormat、用ParseException做流程控制；
+ * 解析过的字符串结果缓存起来，表格中重复出现的日期只解析一次。
+ *
+ * 支持的格式与原来一致：yyyy-MM-dd [HH:mm:ss]、yyyy/MM/dd [HH:mm:ss]、yyyy年MM月dd日、yyyy.MM.dd，
+ * 各数字段位数不限（与SimpleDateFormat一致），日期之后多余的内容忽略，不存在的日期（如2月30日）视为无法解析。
+ */
+public class DateStringParser {
+    public static final long NO_DATE = Long.MIN_VALUE;          // 空值或"上期未签订"等占位内容
+    public static final long INVALID = Long.MIN_VALUE + 1;      // 无法识别的格式
+    public static final long INVALID_DATE = Long.MIN_VALUE + 2; // 格式正确但日期不存在（如2月30日）或时间超出范围
+
+    private static final Set<String> SENTINELS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList("上期未签订", "N/A")));
+
+    private static final DateTimeFormatter DASH_DATE = dateFormatter("-", "-", "");
+    private static final DateTimeFormatter DASH_DATE_TIME = dateTimeFormatter("-");
+    private static final DateTimeFormatter SLASH_DATE = dateFormatter("/", "/", "");
+    private static final DateTimeFormatter SLASH_DATE_TIME = dateTimeFormatter("/");
+    private static final DateTimeFormatter CHINESE_DATE = dateFormatter("年", "月", "日");
+    private static final DateTimeFormatter DOT_DATE = dateFormatter(".", ".", "");
+
+    private final ZoneId zone;
+    private final int cacheSize;
+    private final ConcurrentHashMap<String, Long> cache = new ConcurrentHashMap<>();
+
+    public DateStringParser() {
+        this(ZoneId.systemDefault(), 4096);
+    }
+
+    public DateStringParser(ZoneId zone, int cacheSize) {
+        this.zone = zone;
+        this.cacheSize = cacheSize;
+    }
+
+    private static DateTimeFormatterBuilder datePart(String first, String second, String suffix) {
+        DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder()
+                .appendValue(ChronoField.YEAR, 1, 9, SignStyle.NORMAL)
+                .appendLiteral(first)
+                .appendValue(ChronoField.MONTH_OF_YEAR, 1, 9, SignStyle.NOT_NEGATIVE)
+                .appendLiteral(second)
+                .appendValue(ChronoField.DAY_OF_MONTH, 1, 9, SignStyle.NOT_NEGATIVE);
+        if (!suffix.isEmpty()) {
+            builder.appendLiteral(suffix);
+        }
+        return builder;
+    }
+
+    private static DateTimeFormatter dateFormatter(String first, String second, String suffix) {
+        return datePart(first, second, suffix).toFormatter();
+    }
+
+    private static DateTimeFormatter dateTimeFormatter(String separator) {
+        return datePart(separator, separator, "")
+                .appendLiteral(' ')
+                .appendValue(ChronoField.HOUR_OF_DAY, 1, 9, SignStyle.NOT_NEGATIVE)
+                .appendLiteral(':')
+                .appendValue(ChronoField.MINUTE_OF_HOUR, 1, 9, SignStyle.NOT_NEGATIVE)
+                .appendLiteral(':')
+                .appendValue(ChronoField.SECOND_OF_MINUTE, 1, 9, SignStyle.NOT_NEGATIVE)
+                .toFormatter();
+    }
+
+    /**
+     * 是否为表示"没有日期"的占位内容
+     */
+    public boolean isSentinel(String text) {
+        return text == null || text.isEmpty() || SENTINELS.contains(text);
+    }
+
+    /**
+     * 是否为解析失败的结果（INVALID或INVALID_DATE）
+     */
+    public static boolean isInvalid(long millis) {
+        return millis == INVALID || millis == INVALID_DATE;
+    }
+
+    /**
+     * 解析为毫秒时间戳；空值和占位内容返回NO_DATE，无法识别的格式返回INVALID，日期不存在返回INVALID_DATE
+     */
+    public long parseMillis(String text) {
+        if (text == null) {
+            return NO_DATE;
+        }
+        text = text.trim();
+        if (isSentinel(text)) {
+            return NO_DATE;
+        }
+
+        Long cached = cache.get(text);
+        if (cached != null) {
+            return cached;
+        }
+        long millis = parseUncached(text);
+        if (cache.size() < cacheSize) {
+            cache.put(text, millis);
+        }
+        return millis;
+    }
+
+    private long parseUncached(String text) {
+        int i = 0;
+        while (i < text.length() && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            i++;
+        }
+        if (i == 0 || i == text.length()) {
+            return INVALID;
+        }
+
+        switch (text.charAt(i)) {
+            case '-':
+                return parseDateOrDateTime(text, DASH_DATE_TIME, DASH_DATE);
+            case '/':
+                return parseDateOrDateTime(text, SLASH_DATE_TIME, SLASH_DATE);
+            case '年':
+                return toMillis(parse(text, CHINESE_DATE), false);
+            case '.':
+                return toMillis(parse(text, DOT_DATE), false);
+            default:
+                return INVALID;
+        }
+    }
+
+    private long parseDateOrDateTime(String text, DateTimeFormatter dateTime, DateTimeFormatter date) {
+        if (text.indexOf(':') > 0) {
+            long millis = toMillis(parse(text, dateTime), true);
+            if (!isInvalid(millis)) {
+                return millis;
+            }
+        }
+        // 没有时间部分，或时间部分不完整时只取日期
+        return toMillis(parse(text, date), false);
+    }
+
+    /**
+     * 从开头解析，允许后面有多余内容；格式不符时返回null而不是抛出异常
+     */
+    private static TemporalAccessor parse(String text, DateTimeFormatter formatter) {
+        ParsePosition position = new ParsePosition(0);
+        TemporalAccessor parsed = formatter.parseUnresolved(text, position);
+        return position.getErrorIndex() >= 0 ? null : parsed;
+    }
+
+    private long toMillis(TemporalAccessor parsed, boolean withTime) {
+        if (parsed == null) {
+            return INVALID;
+        }
+        long year = parsed.getLong(ChronoField.YEAR);
+        long month = parsed.getLong(ChronoField.MONTH_OF_YEAR);
+        long day = parsed.getLong(ChronoField.DAY_OF_MONTH);
+        if (year < 1 || year > 9999 || month < 1 || month > 12 || day < 1
+                || day > LocalDate.of((int) year, (int) month, 1).lengthOfMonth()) {
+            return INVALID_DATE;
+        }
+        LocalDate date = LocalDate.of((int) year, (int) month, (int) day);
+        if (!withTime) {
+            return date.atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+
+        long hour = parsed.getLong(ChronoField.HOUR_OF_DAY);
+        long minute = parsed.getLong(ChronoField.MINUTE_OF_HOUR);
+        long second = parsed.getLong(ChronoField.SECOND_OF_MINUTE);
+        if (hour > 23 || minute > 59 || second > 59) {
+            return INVALID_DATE;
+        }
+        return LocalDateTime.of(date.getYear(), date.getMonthValue(), date.getDayOfMonth(),
+                (int) hour, (int) minute, (int) second).atZone(zone).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,200 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.CompactAgreementStore;
+import com.framework.alert.model.MailContent;
+import com.framework.alert.model.StringDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 一次读取，为每个责任科室分别生成报告。
+ * 先按科室把记录下标分组（一次遍历），再在有界线程池中并行完成各科室的分析和HTML生成，每个科室一个文件。
+ * 不使用规则中的科室过滤，阶段规则照常生效；责任科室为空的记录不生成报告。
+ * 去掉不允许的字符后文件名相同的科室依次加上"_2"、"_3"等后缀，不会互相覆盖。
+ */
+public class DepartmentReportFanout {
+    private static final Logger logger = LoggerFactory.getLogger(DepartmentReportFanout.class);
+
+    private final AlertAnalyzer analyzer;
+    private final EmailGenerator emailGenerator;
+    private final int threads;
+
+    public DepartmentReportFanout(AlertAnalyzer analyzer, EmailGenerator emailGenerator, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("线程数必须大于0: " + threads);
+        }
+        this.analyzer = analyzer;
+        this.emailGenerator = emailGenerator;
+        this.threads = threads;
+    }
+
+    /**
+     * 按责任科室分组后的记录下标，同一科室内保持原有顺序
+     */
+    static final class DepartmentGroups {
+        final int[] rows;    // 按科室排列的记录下标
+        final int[] offsets; // 科室编号id的记录为rows[offsets[id], offsets[id + 1])
+        final int unassigned; // 责任科室为空的记录数
+
+        DepartmentGroups(int[] rows, int[] offsets, int unassigned) {
+            this.rows = rows;
+            this.offsets = offsets;
+            this.unassigned = unassigned;
+        }
+
+        int size(int department) {
+            return offsets[department + 1] - offsets[department];
+        }
+    }
+
+    static DepartmentGroups group(CompactAgreementStore store) {
+        int[] departmentIds = store.getDepartmentIds();
+        int departmentCount = store.getDepartments().size();
+
+        int[] offsets = new int[departmentCount + 1];
+        int unassigned = 0;
+        for (int i = 0; i < store.size(); i++) {
+            int department = departmentIds[i];
+            if (department == StringDictionary.NULL_ID) {
+                unassigned++;
+            } else {
+                offsets[department + 1]++;
+            }
+        }
+        for (int id = 0; id < departmentCount; id++) {
+            offsets[id + 1] += offsets[id];
+        }
+
+        int[] next = new int[departmentCount];
+        System.arraycopy(offsets, 0, next, 0, departmentCount);
+        int[] rows = new int[offsets[departmentCount]];
+        for (int i = 0; i < store.size(); i++) {
+            int department = departmentIds[i];
+            if (department != StringDictionary.NULL_ID) {
+                rows[next[department]++] = i;
+            }
+        }
+        return new DepartmentGroups(rows, offsets, unassigned);
+    }
+
+    /**
+     * 分析所有科室，返回科室名称到提醒内容的映射，按科室首次出现的顺序
+     */
+    public Map<String, MailContent> analyzeAll(CompactAgreementStore store, Date now) throws InterruptedException {
+        return run(store, now, (department, fileName, content) -> content);
+    }
+
+    /**
+     * 为每个科室生成报告文件（文件名为"前缀_科室.html"），返回科室名称到文件路径的映射
+     */
+    public Map<String, Path> writeReports(CompactAgreementStore store, Date now, Path outputDirectory,
+                                          String filePrefix, boolean gzip) throws InterruptedException {
+        return run(store, now, (department, fileName, content) -> {
+            Path path = outputDirectory.resolve(filePrefix + "_" + fileName + (gzip ? ".html.gz" : ".html"));
+            emailGenerator.writeHtml(content, path, gzip);
+            return path;
+        });
+    }
+
+    private interface DepartmentTask<T> {
+        T complete(String department, String fileName, MailContent content) throws Exception;
+    }
+
+    private <T> Map<String, T> run(CompactAgreementStore store, Date now, DepartmentTask<T> task)
+            throws InterruptedException {
+        DepartmentGroups groups = group(store);
+        if (groups.unassigned > 0) {
+            logger.warn("{} 条记录没有责任科室，不生成报告", groups.unassigned);
+        }
+
+        // 所有科室使用同一个"当前时间"
+        AlertEvaluator evaluator = analyzer.evaluatorAt(now);
+        StringDictionary departments = store.getDepartments();
+
+        List<String> names = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < departments.size(); id++) {
+            if (groups.size(id) == 0) continue; // 只作为业务归口部门出现
+            String department = departments.valueOf(id);
+            if (department.trim().isEmpty()) {
+                logger.warn("{} 条记录的责任科室为空白，不生成报告", groups.size(id));
+                continue;
+            }
+            names.add(department);
+            ids.add(id);
+        }
+        // 文件名在提交前按科室顺序分配，同名时的后缀与线程执行顺序无关
+        Map<String, String> fileNames = fileNames(names);
+
+        List<Future<T>> futures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, names.size())));
+        try {
+            for (int i = 0; i < names.size(); i++) {
+                String department = names.get(i);
+                int id = ids.get(i);
+                int[] rows = Arrays.copyOfRange(groups.rows, groups.offsets[id], groups.offsets[id + 1]);
+                futures.add(executor.submit(() -> {
+                    MailContent content = analyzer.analyzeRows(store, rows, rows.length, department, evaluator, null);
+                    analyzer.recordAlerts(content);
+                    return task.complete(department, fileNames.get(department), content);
+                }));
+            }
+
+            Map<String, T> results = new LinkedHashMap<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.put(names.get(i), futures.get(i).get());
+                } catch (ExecutionException e) {
+                    logger.error("生成科室报告失败: {}", names.get(i), e.getCause());
+                }
+            }
+            logger.info("已完成 {} 个科室的报告", results.size());
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 去掉文件名中不允许的字符
+     */
+    static String safeFileName(String department) {
+        return department.trim().replaceAll("[\\\\/:*?\"<>|\\s]+", "_");
+    }
+
+    /**
+     * 按names的顺序为每个名称分配文件名：去掉不允许的字符，与前面的文件名相同（不区分大小写）时依次加上"_2"、"_3"……
+     */
+    static Map<String, String> fileNames(List<String> names) {
+        Map<String, String> fileNames = new HashMap<>();
+        Set<String> used = new HashSet<>();
+        for (String name : names) {
+            String base = safeFileName(name);
+            String fileName = base;
+            for (int n = 2; !used.add(fileName.toLowerCase(Locale.ROOT)); n++) {
+                fileName = base + "_" + n;
+            }
+            if (!fileName.equals(base)) {
+                logger.warn("{} 的文件名与其他名称相同，改用 {}", name, fileName);
+            }
+            fileNames.put(name, fileName);
+        }
+        return fileNames;
+    }
+}
@@ -0,0 +1,33 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.CompactAgreementStore;
+
+/**
+ * 可按日期范围查询的日期字段
+ */
+public enum DueDateField {
+    REFERENCE("参考日期"),        // 上期协议到期，没有时取计划完成立项日期
+    PURCHASE("计划完成采购日期"),
+    CONTRACT("计划合同签订日期");
+
+    private final String label;
+
+    DueDateField(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * 第i条记录该字段的epoch day，没有日期时为NO_DATE
+     */
+    public int dayOf(CompactAgreementStore store, int i) {
+        switch (this) {
+            case PURCHASE: return store.getPlannedPurchaseDays()[i];
+            case CONTRACT: return store.getPlannedContractDays()[i];
+            default: return store.referenceDay(i);
+        }
+    }
+}
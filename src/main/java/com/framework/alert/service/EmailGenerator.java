@@ -2,162 +2,267 @@ package com.framework.alert.service;
 
 import com.framework.alert.model.FrameworkAgreement;
 import com.framework.alert.model.MailContent;
+import com.framework.alert.model.MailMessage;
+import com.framework.alert.model.StageAlert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.text.SimpleDateFormat;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
+import static com.framework.alert.service.ReportTemplate.*;
+
+/**
+ * 生成提醒邮件的HTML。没有共享的可变状态（日期格式化用不可变的DateTimeFormatter），
+ * setMetrics之后多个线程可以同时使用同一个实例；RowFragmentCache本身是线程安全的
+ */
 public class EmailGenerator {
     private static final Logger logger = LoggerFactory.getLogger(EmailGenerator.class);
-    private static final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-    
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneId.systemDefault());
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final RowFragmentCache rowCache;
+    private RunMetrics metrics = RunMetrics.NONE;
+
+    public EmailGenerator() {
+        this(null);
+    }
+
+    /**
+     * rowCache不为null时复用之前生成过的表格行，适合常驻进程或一次生成多份报告
+     */
+    public EmailGenerator(RowFragmentCache rowCache) {
+        this.rowCache = rowCache;
+    }
+
+    /**
+     * 记录生成HTML和写出文件的耗时
+     */
+    public void setMetrics(RunMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public String generateHtmlContent(MailContent mailContent) {
-        StringBuilder html = new StringBuilder();
-
-        html.append("<html>");
-        html.append("<head>");
-        html.append("<style>");
-        html.append("body { font-family: 'Microsoft YaHei', Arial, sans-serif; margin: 20px; line-height: 1.6; }");
-        html.append(".alert-section { margin: 20px 0; padding: 15px; background-color: #f8f9fa; border-left: 4px solid #007bff; border-radius: 4px; }");
-        html.append(".alert-title { font-weight: bold; color: #333; margin-bottom: 10px; font-size: 16px; }");
-        html.append(".alert-content { color: #666; }");
-        html.append(".person-name { color: #e74c3c; font-weight: bold; }");
-        html.append("table { border-collapse: collapse; width: 100%; margin-top: 30px; box-shadow: 0 2px 5px rgba(0,0,0,0.1); }");
-        html.append("th, td { border: 1px solid #ddd; padding: 12px; text-align: left; }");
-        html.append("th { background-color: #2c3e50; color: white; font-weight: bold; }");
-        html.append("tr:nth-child(even) { background-color: #f9f9f9; }");
-        html.append("tr:hover { background-color: #f5f5f5; }");
-        html.append(".urgent { background-color: #ffe6e6 !important; }");
-        html.append(".completed { background-color: #e6ffe6 !important; }");
-        html.append(".level-1 { color: #e74c3c; font-weight: bold; }");
-        html.append(".level-2 { color: #e67e22; }");
-        html.append(".level-3 { color: #f1c40f; }");
-        html.append(".level-4 { color: #3498db; }");
-        html.append(".level-5 { color: #95a5a6; }");
-        html.append(".header { background-color: #34495e; color: white; padding: 20px; border-radius: 5px; margin-bottom: 20px; }");
-        html.append(".footer { margin-top: 30px; padding-top: 20px; border-top: 1px solid #eee; color: #7f8c8d; font-size: 12px; }");
-        html.append("</style>");
-        html.append("</head>");
-        html.append("<body>");
+        StringWriter html = new StringWriter();
+        try {
+            render(mailContent, html);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringWriter不会抛出IOException
+        }
+        return html.toString();
+    }
+
+    /**
+     * 生成发送给recipients的邮件，label用于日志
+     */
+    public MailMessage createMessage(MailContent mailContent, String label, List<String> recipients) {
+        MailMessage message = new MailMessage();
+        message.setLabel(label);
+        message.setRecipients(recipients);
+        message.setSubject(mailContent.getSubject());
+        message.setHtml(generateHtmlContent(mailContent));
+        return message;
+    }
+
+    /**
+     * 生成HTML写入文件，gzip为true时写出gzip压缩的内容
+     */
+    public void writeHtml(MailContent mailContent, Path path, boolean gzip) throws IOException {
+        RunMetrics.Recorder recorder = metrics.recorder();
+        RunMetrics.Stage outer = recorder.switchTo(RunMetrics.Stage.WRITE);
+        try (OutputStream out = metrics.timed(RunMetrics.Stage.WRITE, Files.newOutputStream(path))) {
+            render(mailContent, out, gzip);
+        } finally {
+            recorder.switchTo(outer);
+        }
+    }
 
+    /**
+     * 以UTF-8编码写入输出流，边生成边写出，内存占用与表格行数无关。
+     * 写完后刷新（gzip时结束压缩流），但不关闭out
+     */
+    public void render(MailContent mailContent, OutputStream out, boolean gzip) throws IOException {
+        RunMetrics.Recorder recorder = metrics.recorder();
+        RunMetrics.Stage outer = recorder.switchTo(RunMetrics.Stage.RENDER);
+        try {
+            GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+            OutputStream buffered = new BufferedOutputStream(gzipOut != null ? gzipOut : out, BUFFER_SIZE);
+            render(mailContent, HtmlOutput.of(buffered));
+            if (gzipOut != null) {
+                gzipOut.finish();
+            }
+        } finally {
+            recorder.switchTo(outer);
+        }
+    }
+
+    /**
+     * 把HTML写入writer，调用方负责缓冲和关闭
+     */
+    public void render(MailContent mailContent, Writer html) throws IOException {
+        RunMetrics.Recorder recorder = metrics.recorder();
+        RunMetrics.Stage outer = recorder.switchTo(RunMetrics.Stage.RENDER);
+        try {
+            render(mailContent, HtmlOutput.of(html));
+        } finally {
+            recorder.switchTo(outer);
+        }
+    }
+
+    private void render(MailContent mailContent, HtmlOutput html) throws IOException {
         // 头部
-        html.append("<div class=\"header\">");
-        html.append("<h1>人月框架协议进度提醒</h1>");
-        html.append("<p>生成时间: ").append(new Date()).append("</p>");
-        html.append("</div>");
+        html.write(DOCUMENT_START);
+        html.write(new Date().toString());
+        html.write(HEADER_END);
 
         // 提醒部分
-        List<String> needDataAlert = mailContent.getNeedDataAlert();
-        List<String> needApprovalAlert = mailContent.getNeedApprovalAlert();
-        List<String> needPurchaseAlert = mailContent.getNeedPurchaseAlert();
-        List<String> needSealAlert = mailContent.getNeedSealAlert();
-
-        if (!needDataAlert.isEmpty() || !needApprovalAlert.isEmpty() ||
-                !needPurchaseAlert.isEmpty() || !needSealAlert.isEmpty()) {
-            html.append("<h2>📢 待办事项提醒</h2>");
-
-            addAlertSection(html, "📋 以下同事请及时整理人月框架协议资料：", needDataAlert);
-            addAlertSection(html, "📝 以下同事请及时完成事财权审批：", needApprovalAlert);
-            addAlertSection(html, "🛒 以下同事请及时完成合同采购：", needPurchaseAlert);
-            addAlertSection(html, "🖋️ 以下同事请及时完成合同用印：", needSealAlert);
+        List<StageAlert> stageAlerts = mailContent.getStageAlerts();
+        boolean hasAlert = false;
+        for (StageAlert stageAlert : stageAlerts) {
+            hasAlert |= !stageAlert.getNames().isEmpty();
+        }
+
+        if (hasAlert) {
+            html.write(ALERTS_HEADING);
+
+            for (StageAlert stageAlert : stageAlerts) {
+                addAlertSection(html, stageAlert.getTitle(), stageAlert.getNames());
+            }
         } else {
-            html.append("<div class=\"alert-section\">");
-            html.append("<div class=\"alert-title\">✅ 所有事项正常</div>");
-            html.append("<div class=\"alert-content\">目前没有需要紧急处理的事项。</div>");
-            html.append("</div>");
+            html.write(NO_ALERTS);
         }
 
         // 表格部分
         List<FrameworkAgreement> tableData = mailContent.getTableData();
         if (tableData != null && !tableData.isEmpty()) {
-            html.append("<h2>📊 运营业务开发科项目清单（共").append(tableData.size()).append("项）</h2>");
-            html.append("<table>");
-            html.append("<tr>");
-            html.append("<th width=\"5%\">序号</th>");
-            html.append("<th width=\"25%\">系统名称</th>");
-            html.append("<th width=\"10%\">责任经办</th>");
-            html.append("<th width=\"15%\">当前进度</th>");
-            html.append("<th width=\"15%\">上期协议到期</th>");
-            html.append("<th width=\"15%\">计划立项日期</th>");
-            html.append("<th width=\"15%\">紧急程度</th>");
-            html.append("</tr>");
+            html.write(TABLE_TITLE_START);
+            html.write(mailContent.getDepartment());
+            html.write(TABLE_TITLE_COUNT);
+            html.write(String.valueOf(tableData.size()));
+            html.write(TABLE_TITLE_END);
+            html.write(TABLE_START);
 
+            // 统计信息在输出行的同时累计
+            long completedCount = 0;
+            long urgentCount = 0;
+            StringBuilder row = new StringBuilder(256);
             for (FrameworkAgreement agreement : tableData) {
-                String rowClass = "";
-                String currentProgress = agreement.getCurrentProgress();
-
-                if (currentProgress != null && currentProgress.contains("已完成")) {
-                    rowClass = "completed";
-                } else if (agreement.getAlertLevel() != null && agreement.getAlertLevel() <= 2) {
-                    rowClass = "urgent";
+                if (isCompleted(agreement)) {
+                    completedCount++;
                 }
-
-                html.append("<tr class=\"").append(rowClass).append("\">");
-                html.append("<td>").append(agreement.getId() != null ? agreement.getId() : "").append("</td>");
-                html.append("<td>").append(agreement.getSystemName() != null ? agreement.getSystemName() : "").append("</td>");
-                html.append("<td>").append(agreement.getResponsiblePerson() != null ?
-                        agreement.getResponsiblePerson() : "").append("</td>");
-                html.append("<td>").append(currentProgress != null ? currentProgress : "").append("</td>");
-                html.append("<td>").append(formatDate(agreement.getPreviousAgreementExpiry())).append("</td>");
-                html.append("<td>").append(formatDate(agreement.getPlannedApprovalDate())).append("</td>");
-                html.append("<td class=\"level-").append(agreement.getAlertLevel() != null ?
-                        agreement.getAlertLevel() : 5).append("\">");
-                html.append(getUrgencyText(agreement.getAlertLevel())).append("</td>");
-                html.append("</tr>");
+                if (isUrgent(agreement)) {
+                    urgentCount++;
+                }
+                writeRow(html, agreement, row);
             }
 
-            html.append("</table>");
-
-            // 统计信息
-            long completedCount = tableData.stream()
-                    .filter(a -> a.getCurrentProgress() != null && a.getCurrentProgress().contains("已完成"))
-                    .count();
-            long urgentCount = tableData.stream()
-                    .filter(a -> a.getAlertLevel() != null && a.getAlertLevel() <= 2)
-                    .count();
-
-            html.append("<div class=\"footer\">");
-            html.append("<p>📈 统计信息：总计 ").append(tableData.size()).append(" 项");
-            html.append(" | 已完成 ").append(completedCount).append(" 项");
-            html.append(" | 紧急待办 ").append(urgentCount).append(" 项</p>");
-            html.append("<p>📋 紧急程度说明：非常紧急(7天内) | 紧急(7-14天) | 中等(14-30天) | 一般(30-90天) | 较低(90天以上)</p>");
-            html.append("<p>✅ 绿色行：已完成项目 | 🔴 红色背景：紧急项目</p>");
-            html.append("</div>");
+            html.write(TABLE_END);
+
+            html.write(FOOTER_START);
+            html.write(String.valueOf(tableData.size()));
+            html.write(FOOTER_COMPLETED);
+            html.write(String.valueOf(completedCount));
+            html.write(FOOTER_URGENT);
+            html.write(String.valueOf(urgentCount));
+            html.write(FOOTER_END);
         } else {
-            html.append("<div class=\"alert-section\">");
-            html.append("<div class=\"alert-title\">⚠️ 未找到相关记录</div>");
-            html.append("<div class=\"alert-content\">未找到'运营业务开发科'的相关项目记录。</div>");
-            html.append("</div>");
+            html.write(NOT_FOUND_START);
+            html.write(mailContent.getDepartment());
+            html.write(NOT_FOUND_END);
         }
 
-        html.append("</body>");
-        html.append("</html>");
+        html.write(DOCUMENT_END);
+        html.flush();
 
-        return html.toString();
+        if (rowCache != null) {
+            logger.debug("表格行缓存: 命中 {} 次, 未命中 {} 次, 当前 {} 行",
+                    rowCache.getHits(), rowCache.getMisses(), rowCache.size());
+        }
+    }
+
+    private void writeRow(HtmlOutput html, FrameworkAgreement agreement, StringBuilder row) throws IOException {
+        if (rowCache == null) {
+            row.setLength(0);
+            html.write(renderRow(agreement, row).toString());
+            return;
+        }
+
+        RowFragmentCache.RowKey key = new RowFragmentCache.RowKey(agreement);
+        Segment cached = rowCache.get(key);
+        if (cached == null) {
+            row.setLength(0);
+            cached = new Segment(renderRow(agreement, row).toString());
+            rowCache.put(key, cached);
+        }
+        html.write(cached);
     }
-    
-    private void addAlertSection(StringBuilder html, String title, List<String> names) {
+
+    private StringBuilder renderRow(FrameworkAgreement agreement, StringBuilder html) {
+        String rowClass = "";
+        String currentProgress = agreement.getCurrentProgress();
+
+        if (isCompleted(agreement)) {
+            rowClass = "completed";
+        } else if (isUrgent(agreement)) {
+            rowClass = "urgent";
+        }
+
+        html.append("<tr class=\"").append(rowClass).append("\">");
+        html.append("<td>").append(agreement.getId() != null ? agreement.getId() : "").append("</td>");
+        html.append("<td>").append(agreement.getSystemName() != null ? agreement.getSystemName() : "").append("</td>");
+        html.append("<td>").append(agreement.getResponsiblePerson() != null ?
+                agreement.getResponsiblePerson() : "").append("</td>");
+        html.append("<td>").append(currentProgress != null ? currentProgress : "").append("</td>");
+        html.append("<td>").append(formatDate(agreement.getPreviousAgreementExpiry())).append("</td>");
+        html.append("<td>").append(formatDate(agreement.getPlannedApprovalDate())).append("</td>");
+        html.append("<td class=\"level-").append(agreement.getAlertLevel() != null ?
+                agreement.getAlertLevel() : 5).append("\">");
+        html.append(getUrgencyText(agreement.getAlertLevel())).append("</td>");
+        html.append("</tr>");
+        return html;
+    }
+
+    private static boolean isCompleted(FrameworkAgreement agreement) {
+        String currentProgress = agreement.getCurrentProgress();
+        return currentProgress != null && currentProgress.contains("已完成");
+    }
+
+    private static boolean isUrgent(FrameworkAgreement agreement) {
+        return agreement.getAlertLevel() != null && agreement.getAlertLevel() <= 2;
+    }
+
+    private void addAlertSection(HtmlOutput html, String title, List<String> names) throws IOException {
         if (!names.isEmpty()) {
-            html.append("<div class=\"alert-section\">");
-            html.append("<div class=\"alert-title\">").append(title).append("</div>");
-            html.append("<div class=\"alert-content\">");
+            html.write(SECTION_START);
+            html.write(title);
+            html.write(SECTION_TITLE_END);
             for (int i = 0; i < names.size(); i++) {
-                html.append("<span class=\"person-name\">@").append(names.get(i)).append("</span>");
+                html.write(NAME_START);
+                html.write(names.get(i));
+                html.write(NAME_END);
                 if (i < names.size() - 1) {
-                    html.append(", ");
+                    html.write(NAME_SEPARATOR);
                 }
             }
-            html.append("</div>");
-            html.append("</div>");
+            html.write(SECTION_END);
         }
     }
-    
+
     private String formatDate(Date date) {
-        return date != null ? sdf.format(date) : "-";
+        return date != null ? DATE_FORMAT.format(date.toInstant()) : "-";
     }
-    
+
     private String getUrgencyText(Integer level) {
         if (level == null) return "较低";
         switch (level) {
@@ -169,4 +274,4 @@ public class EmailGenerator {
             default: return "较低";
         }
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 // ExcelReader.java - 修正列索引版本
 package com.framework.alert.service;
 
+import com.framework.alert.model.CompactAgreementStore;
 import com.framework.alert.model.FrameworkAgreement;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
@@ -8,198 +9,119 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.FileInputStream;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
-public class ExcelReader {
+/**
+ * 读取xlsx格式的协议清单，默认流式读取，失败时改用XSSFWorkbook完整加载
+ */
+public class ExcelReader extends SheetAgreementSource {
     private static final Logger logger = LoggerFactory.getLogger(ExcelReader.class);
-    private static final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-    private static final SimpleDateFormat sdf2 = new SimpleDateFormat("yyyy/MM/dd");
 
-    public List<FrameworkAgreement> readExcel(String filePath) throws Exception {
-        List<FrameworkAgreement> agreements = new ArrayList<>();
-
-        try (FileInputStream fis = new FileInputStream(filePath);
-             Workbook workbook = new XSSFWorkbook(fis)) {
-
-            Sheet sheet = workbook.getSheetAt(1); // 第二个sheet
-
-            for (int i = 2; i <= sheet.getLastRowNum(); i++) { // 从第3行开始
-                Row row = sheet.getRow(i);
-                if (row == null) continue;
+    private boolean streamingEnabled = true;
 
-                FrameworkAgreement agreement = parseRow(row);
-                if (agreement != null) {
-                    agreements.add(agreement);
-                }
-            }
-        }
-
-        logger.info("成功读取 {} 条记录", agreements.size());
-        return agreements;
+    /**
+     * 是否使用流式（SAX事件模型）读取，默认开启；关闭后使用XSSFWorkbook完整加载
+     */
+    public void setStreamingEnabled(boolean streamingEnabled) {
+        this.streamingEnabled = streamingEnabled;
     }
 
-    private FrameworkAgreement parseRow(Row row) {
-        try {
-            FrameworkAgreement agreement = new FrameworkAgreement();
-
-            // 序号 (A列, 索引0)
-            agreement.setId(getIntValue(row.getCell(0)));
-
-            // 系统名称 (B列, 索引1)
-            agreement.setSystemName(getStringValue(row.getCell(1)));
-
-            // 业务归口管理部门 (C列, 索引2)
-            agreement.setBusinessDepartment(getStringValue(row.getCell(2)));
-
-            // 责任科室 (D列, 索引3) - 关键过滤列
-            String responsibleDept = getStringValue(row.getCell(3));
-            agreement.setResponsibleDepartment(responsibleDept);
-
-            // 责任经办 (Q列, 索引16) ⭐ 修正：从15改为16
-            agreement.setResponsiblePerson(getStringValue(row.getCell(16)));
-
-            // 当前进度 (R列, 索引17) ⭐ 修正：从16改为17
-            agreement.setCurrentProgress(getStringValue(row.getCell(17)));
-
-            // 上期协议到期 (M列, 索引12) ⭐ 修正：从11改为12
-            agreement.setPreviousAgreementExpiry(parseDateCell(row.getCell(12)));
-
-            // 计划完成立项日期 (N列, 索引13)
-            agreement.setPlannedApprovalDate(parseDateCell(row.getCell(13)));
-
-            // 计划完成采购日期 (O列, 索引14)
-            agreement.setPlannedPurchaseDate(parseDateCell(row.getCell(14)));
+    @Override
+    public List<FrameworkAgreement> readAgreements(String filePath) throws Exception {
+        return readExcel(filePath);
+    }
 
-            // 计划合同签订日期 (P列, 索引15)
-            agreement.setPlannedContractDate(parseDateCell(row.getCell(15)));
+    @Override
+    public CompactAgreementStore readCompact(String filePath) throws Exception {
+        return readExcelCompact(filePath);
+    }
 
-            // 调试输出运营业务开发科的记录
-            if ("运营业务开发科".equals(responsibleDept)) {
-                logger.debug("运营业务开发科记录: ID={}, 系统={}, 经办={}, 进度={}",
-                        agreement.getId(), agreement.getSystemName(),
-                        agreement.getResponsiblePerson(), agreement.getCurrentProgress());
+    public List<FrameworkAgreement> readExcel(String filePath) throws Exception {
+        if (streamingEnabled) {
+            try {
+                return readExcelStreaming(filePath);
+            } catch (Exception e) {
+                logger.warn("流式读取Excel失败，改用完整加载方式: {}", e.getMessage());
             }
-
-            return agreement;
-
-        } catch (Exception e) {
-            logger.error("解析Excel行数据失败，行号: {}", row.getRowNum() + 1, e);
-            return null;
         }
+        return readExcelWithWorkbook(filePath);
     }
 
-    private String getStringValue(Cell cell) {
-        if (cell == null) return "";
-
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue().trim();
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    return sdf.format(cell.getDateCellValue());
-                }
-                // 如果是整数，去掉小数部分
-                double num = cell.getNumericCellValue();
-                if (num == (int) num) {
-                    return String.valueOf((int) num);
-                }
-                return String.valueOf(num);
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
-                try {
-                    return cell.getStringCellValue();
-                } catch (Exception e) {
-                    try {
-                        return String.valueOf(cell.getNumericCellValue());
-                    } catch (Exception e2) {
-                        return "";
-                    }
-                }
-            default:
-                return "";
-        }
+    /**
+     * 流式读取：逐行解析sheet的XML，内存占用与行数无关
+     */
+    public List<FrameworkAgreement> readExcelStreaming(String filePath) throws Exception {
+        return super.readAgreements(filePath);
     }
 
-    private Integer getIntValue(Cell cell) {
-        if (cell == null) return 0;
-
-        if (cell.getCellType() == CellType.NUMERIC) {
-            return (int) cell.getNumericCellValue();
-        } else if (cell.getCellType() == CellType.STRING) {
+    /**
+     * 读取为紧凑的列式存储，逐行解析后立即编码，不保留FrameworkAgreement列表
+     */
+    public CompactAgreementStore readExcelCompact(String filePath) throws Exception {
+        if (streamingEnabled) {
             try {
-                return Integer.parseInt(cell.getStringCellValue().trim());
-            } catch (NumberFormatException e) {
-                return 0;
+                return super.readCompact(filePath);
+            } catch (Exception e) {
+                logger.warn("流式读取Excel失败，改用完整加载方式: {}", e.getMessage());
             }
         }
-        return 0;
+        return CompactAgreementStore.from(readExcelWithWorkbook(filePath));
     }
 
-    private Date parseDateCell(Cell cell) {
-        if (cell == null) return null;
+    /**
+     * 流式解析第二个sheet
+     */
+    @Override
+    protected void readSheet(String filePath, StreamingSheetReader.RowHandler handler) throws Exception {
+        new StreamingSheetReader(getMetrics()).read(filePath, 1, handler); // 第二个sheet
+    }
 
-        try {
-            // 1. 处理数字格式的日期
-            if (cell.getCellType() == CellType.NUMERIC && DateUtil.isCellDateFormatted(cell)) {
-                return cell.getDateCellValue();
-            }
-            // 2. 处理字符串格式的日期
-            else if (cell.getCellType() == CellType.STRING) {
-                String dateStr = cell.getStringCellValue().trim();
-                if (dateStr.isEmpty() || "上期未签订".equals(dateStr) || "N/A".equals(dateStr)) {
-                    return null;
-                }
+    /**
+     * 完整加载工作簿后读取，作为流式读取失败时的后备方式
+     */
+    public List<FrameworkAgreement> readExcelWithWorkbook(String filePath) throws Exception {
+        List<FrameworkAgreement> agreements = new ArrayList<>();
+        RunMetrics metrics = getMetrics();
+        RunMetrics.Recorder recorder = metrics.recorder();
+        RunMetrics.Stage outer = recorder.switchTo(RunMetrics.Stage.OPEN);
 
-                // 处理日期字符串
-                return parseDateString(dateStr);
-            }
-            // 3. 处理可能是公式的单元格
-            else if (cell.getCellType() == CellType.FORMULA) {
-                try {
-                    if (DateUtil.isCellDateFormatted(cell)) {
-                        return cell.getDateCellValue();
-                    }
-                } catch (Exception e) {
-                    // 忽略，尝试其他方式
-                }
+        try (FileInputStream fis = new FileInputStream(filePath);
+             XSSFWorkbook workbook = new XSSFWorkbook(fis)) {
+
+            recorder.switchTo(RunMetrics.Stage.READ);
+            Sheet sheet = workbook.getSheetAt(1); // 第二个sheet
+            DateFormatCache dateFormats = new DateFormatCache(workbook::getCellStyleAt, workbook.getNumCellStyles());
+            SheetRow sheetRow = new SheetRow(workbook.isDate1904());
+
+            RowDecoder rowDecoder = defaultColumns();
+            Row headerRow = sheet.getRow(HEADER_ROW);
+            if (headerRow != null) {
+                sheetRow.load(headerRow, dateFormats);
+                rowDecoder = resolveColumns(sheetRow);
             }
-        } catch (Exception e) {
-            logger.warn("解析日期单元格失败: {}", cell, e);
-        }
-        return null;
-    }
 
-    private Date parseDateString(String dateStr) {
-        if (dateStr == null || dateStr.trim().isEmpty()) {
-            return null;
-        }
+            for (int i = FIRST_DATA_ROW; i <= sheet.getLastRowNum(); i++) {
+                Row row = sheet.getRow(i);
+                if (row == null) {
+                    metrics.rowSkipped(RunMetrics.SkipReason.EMPTY, 1);
+                    continue;
+                }
 
-        // 支持的日期格式
-        String[] dateFormats = {
-                "yyyy-MM-dd HH:mm:ss",
-                "yyyy-MM-dd",
-                "yyyy/MM/dd HH:mm:ss",
-                "yyyy/MM/dd",
-                "yyyy年MM月dd日",
-                "yyyy.MM.dd"
-        };
-
-        for (String format : dateFormats) {
-            try {
-                SimpleDateFormat sdf = new SimpleDateFormat(format);
-                sdf.setLenient(false); // 严格模式
-                return sdf.parse(dateStr);
-            } catch (ParseException e) {
-                // 继续尝试下一个格式
+                sheetRow.load(row, dateFormats);
+                recorder.switchTo(RunMetrics.Stage.PARSE);
+                FrameworkAgreement agreement = parseRow(rowDecoder, sheetRow);
+                if (agreement != null) {
+                    agreements.add(agreement);
+                }
+                recorder.switchTo(RunMetrics.Stage.READ);
             }
+        } finally {
+            recorder.switchTo(outer);
         }
 
-        logger.warn("无法解析日期字符串: {}", dateStr);
-        return null;
+        metrics.addRowsRead(agreements.size());
+        logger.info("成功读取 {} 条记录", agreements.size());
+        return agreements;
     }
-}
\ No newline at end of file
+}
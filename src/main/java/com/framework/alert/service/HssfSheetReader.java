@@ -0,0 +1,242 @@
+package com.framework.alert.service;
+
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BlankRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.DateWindow1904Record;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+import java.io.File;
+
+/**
+ * 基于HSSF事件模型的xls读取器，逐条处理BIFF记录，不构建HSSFWorkbook，与StreamingSheetReader使用相同的SheetRow。
+ * 单元格记录按行的顺序出现，行号变化或sheet结束时回调上一行；读完指定sheet后不再处理后面的记录。
+ */
+public class HssfSheetReader {
+
+    // FormulaRecord.getCachedResultType()返回CellType的整数编码，CellType.forInt和getCode都已弃用，这里直接比较编码
+    private static final int CACHED_NUMERIC = 0;
+    private static final int CACHED_STRING = 1;
+    private static final int CACHED_BOOLEAN = 4;
+    private static final int CACHED_ERROR = 5;
+
+    private final RunMetrics metrics;
+
+    public HssfSheetReader() {
+        this(RunMetrics.NONE);
+    }
+
+    /**
+     * 打开文件的时间记为OPEN，处理记录的时间记为READ（回调中切换的阶段除外）
+     */
+    public HssfSheetReader(RunMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * 读取指定sheet（0开始），每读完一行回调一次
+     */
+    public void read(String filePath, int sheetIndex, StreamingSheetReader.RowHandler handler) throws Exception {
+        RunMetrics.Recorder recorder = metrics.recorder();
+        RunMetrics.Stage outer = recorder.switchTo(RunMetrics.Stage.OPEN);
+        try (POIFSFileSystem fs = new POIFSFileSystem(new File(filePath), true)) {
+            recorder.switchTo(RunMetrics.Stage.READ);
+            SheetListener listener = new SheetListener(sheetIndex, handler);
+            HSSFRequest request = new HSSFRequest();
+            request.addListenerForAllRecords(listener);
+            new HSSFEventFactory().abortableProcessWorkbookEvents(request, fs);
+
+            if (listener.failure != null) {
+                throw listener.failure;
+            }
+            if (!listener.found) {
+                throw new IllegalArgumentException("工作簿中不存在第 " + (sheetIndex + 1) + " 个sheet: " + filePath);
+            }
+        } finally {
+            recorder.switchTo(outer);
+        }
+    }
+
+    private static class SheetListener extends AbortableHSSFListener {
+        private final int sheetIndex;
+        private final StreamingSheetReader.RowHandler handler;
+        private final FormatTrackingHSSFListener formats = new FormatTrackingHSSFListener(record -> { });
+
+        private SSTRecord sharedStrings;
+        private boolean date1904;
+        private int worksheets;
+        private int depth;       // 目标sheet中嵌套的BOF层数（图表等）
+        private boolean inSheet;
+        private boolean found;
+        private Exception failure;
+
+        private SheetRow row;
+        private int currentRow = -1;
+        private SheetCell pendingString; // 结果为字符串的公式，值在随后的StringRecord中
+
+        SheetListener(int sheetIndex, StreamingSheetReader.RowHandler handler) {
+            this.sheetIndex = sheetIndex;
+            this.handler = handler;
+        }
+
+        @Override
+        public short abortableProcessRecord(Record record) {
+            formats.processRecord(record);
+            try {
+                return process(record) ? (short) 0 : (short) 1;
+            } catch (Exception e) {
+                failure = e;
+                return 1;
+            }
+        }
+
+        /**
+         * 处理一条记录，返回false表示不再需要后面的记录
+         */
+        private boolean process(Record record) throws Exception {
+            switch (record.getSid()) {
+                case BOFRecord.sid:
+                    if (inSheet) {
+                        depth++;
+                    } else if (((BOFRecord) record).getType() == BOFRecord.TYPE_WORKSHEET && worksheets++ == sheetIndex) {
+                        inSheet = true;
+                        found = true;
+                        row = new SheetRow(date1904);
+                    }
+                    return true;
+                case EOFRecord.sid:
+                    if (inSheet) {
+                        if (depth > 0) {
+                            depth--;
+                            return true;
+                        }
+                        flush();
+                        return false;
+                    }
+                    return true;
+                case SSTRecord.sid:
+                    sharedStrings = (SSTRecord) record;
+                    return true;
+                case DateWindow1904Record.sid:
+                    date1904 = ((DateWindow1904Record) record).getWindowing() == 1;
+                    return true;
+                default:
+                    break;
+            }
+            if (!inSheet || depth > 0) {
+                return true;
+            }
+
+            if (record instanceof StringRecord) {
+                if (pendingString != null) {
+                    pendingString.setStringValue(((StringRecord) record).getString());
+                    pendingString = null;
+                }
+                return true;
+            }
+            if (record instanceof MulBlankRecord) {
+                MulBlankRecord blanks = (MulBlankRecord) record;
+                startRow(blanks.getRow());
+                for (int column = blanks.getFirstColumn(); column <= blanks.getLastColumn(); column++) {
+                    if (row.wants(column)) {
+                        row.cellAt(column).set(CellType.BLANK, CellType.BLANK);
+                    }
+                }
+                return true;
+            }
+            if (record instanceof CellValueRecordInterface) {
+                CellValueRecordInterface value = (CellValueRecordInterface) record;
+                startRow(value.getRow());
+                pendingString = null;
+                if (row.wants(value.getColumn())) {
+                    fillCell(row.cellAt(value.getColumn()), record);
+                }
+            }
+            return true;
+        }
+
+        private void startRow(int rowNum) throws Exception {
+            if (rowNum != currentRow) {
+                flush();
+                row.start(rowNum);
+                currentRow = rowNum;
+            }
+        }
+
+        private void flush() throws Exception {
+            if (currentRow >= 0) {
+                handler.handleRow(row);
+                currentRow = -1;
+            }
+        }
+
+        /**
+         * 按照HSSFCell的取值规则还原单元格类型和值
+         */
+        private void fillCell(SheetCell cell, Record record) {
+            if (record instanceof LabelSSTRecord) {
+                cell.setStringValue(sharedStrings.getString(((LabelSSTRecord) record).getSSTIndex()).getString());
+                cell.set(CellType.STRING, CellType.BLANK);
+            } else if (record instanceof LabelRecord) {
+                cell.setStringValue(((LabelRecord) record).getValue());
+                cell.set(CellType.STRING, CellType.BLANK);
+            } else if (record instanceof NumberRecord) {
+                NumberRecord number = (NumberRecord) record;
+                setNumber(cell, number.getValue(), number);
+                cell.set(CellType.NUMERIC, CellType.BLANK);
+            } else if (record instanceof FormulaRecord) {
+                FormulaRecord formula = (FormulaRecord) record;
+                int resultCode = formula.getCachedResultType();
+                CellType resultType;
+                if (formula.hasCachedResultString() || resultCode == CACHED_STRING) {
+                    resultType = CellType.STRING;
+                    cell.setStringValue("");
+                    pendingString = cell;
+                } else if (resultCode == CACHED_NUMERIC) {
+                    resultType = CellType.NUMERIC;
+                    setNumber(cell, formula.getValue(), formula);
+                } else if (resultCode == CACHED_BOOLEAN) {
+                    resultType = CellType.BOOLEAN;
+                    cell.setBooleanValue(formula.getCachedBooleanValue());
+                } else if (resultCode == CACHED_ERROR) {
+                    resultType = CellType.ERROR;
+                } else {
+                    resultType = CellType.BLANK;
+                }
+                cell.set(CellType.FORMULA, resultType);
+            } else if (record instanceof BoolErrRecord) {
+                BoolErrRecord boolErr = (BoolErrRecord) record;
+                if (boolErr.isBoolean()) {
+                    cell.setBooleanValue(boolErr.getBooleanValue());
+                    cell.set(CellType.BOOLEAN, CellType.BLANK);
+                } else {
+                    cell.set(CellType.ERROR, CellType.BLANK);
+                }
+            } else if (record instanceof BlankRecord) {
+                cell.set(CellType.BLANK, CellType.BLANK);
+            }
+        }
+
+        private void setNumber(SheetCell cell, double value, CellValueRecordInterface record) {
+            cell.setNumericValue(value);
+            cell.setDateFormatted(DateUtil.isValidExcelDate(value)
+                    && DateUtil.isADateFormat(formats.getFormatIndex(record), formats.getFormatString(record)));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.framework.alert.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 报告的输出目标：固定段落写出预编码的内容，动态文本按需编码
+ */
+abstract class HtmlOutput {
+
+    abstract void write(ReportTemplate.Segment segment) throws IOException;
+
+    abstract void write(String text) throws IOException;
+
+    abstract void flush() throws IOException;
+
+    static HtmlOutput of(Writer writer) {
+        return new WriterOutput(writer);
+    }
+
+    /**
+     * 直接写UTF-8字节，out应已带缓冲
+     */
+    static HtmlOutput of(OutputStream out) {
+        return new ByteOutput(out);
+    }
+
+    private static class WriterOutput extends HtmlOutput {
+        private final Writer writer;
+
+        WriterOutput(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        void write(ReportTemplate.Segment segment) throws IOException {
+            writer.write(segment.text);
+        }
+
+        @Override
+        void write(String text) throws IOException {
+            writer.write(String.valueOf(text));
+        }
+
+        @Override
+        void flush() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private static class ByteOutput extends HtmlOutput {
+        private final OutputStream out;
+
+        ByteOutput(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        void write(ReportTemplate.Segment segment) throws IOException {
+            out.write(segment.bytes);
+        }
+
+        @Override
+        void write(String text) throws IOException {
+            out.write(String.valueOf(text).getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
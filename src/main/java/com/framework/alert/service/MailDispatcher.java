@@ -0,0 +1,252 @@
+package com.framework.alert.service;
+
+import com.framework.alert.config.MailSettings;
+import com.framework.alert.model.MailMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步发送邮件：提交的邮件进入有界队列（满时提交方等待），发送线程每次取出一批，用连接池中的同一个连接连续发送，
+ * 握手的代价由多封邮件分摊。临时失败（4xx应答、网络错误）按指数退避重新排队，永久失败（5xx应答）不重试。
+ * 发送线程数与连接池大小相同。close等待所有邮件（包括等待重试的）发送完成或最终失败后再退出。
+ */
+public class MailDispatcher implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(MailDispatcher.class);
+
+    private static final int BATCH_SIZE = 32;
+
+    private final MailSettings settings;
+    private final RunMetrics metrics;
+    private final SmtpConnectionPool pool;
+    private final BlockingQueue<Delivery> queue;
+    private final ScheduledExecutorService retryTimer;
+    private final List<Thread> workers = new ArrayList<>();
+
+    private final Object lock = new Object();
+    private int pending;     // 已提交、尚未成功或最终失败的邮件数
+    private boolean closed;
+
+    private static final class Delivery {
+        final MailMessage message;
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        int attempts;  // 失败的次数
+
+        Delivery(MailMessage message) {
+            this.message = message;
+        }
+    }
+
+    public MailDispatcher(MailSettings settings) {
+        this(settings, RunMetrics.NONE);
+    }
+
+    /**
+     * 发送时间记为SEND阶段，每封邮件的发送结果计入metrics
+     */
+    public MailDispatcher(MailSettings settings, RunMetrics metrics) {
+        this.settings = settings;
+        this.metrics = metrics;
+        this.pool = new SmtpConnectionPool(settings);
+        this.queue = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+        this.retryTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mail-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < settings.getConnections(); i++) {
+            Thread worker = new Thread(this::work, "mail-sender-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * 提交一封邮件，队列满时等待。返回的Future在发送成功时完成，最终失败时以最后一次的异常完成
+     */
+    public CompletableFuture<Void> submit(MailMessage message) throws InterruptedException {
+        Delivery delivery = new Delivery(message);
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("邮件发送已关闭");
+            }
+            pending++;
+        }
+        try {
+            queue.put(delivery);
+        } catch (InterruptedException e) {
+            finished();
+            throw e;
+        }
+        return delivery.result;
+    }
+
+    /**
+     * 建立过的SMTP连接数
+     */
+    public int getConnectionsOpened() {
+        return pool.getOpenedCount();
+    }
+
+    private void work() {
+        RunMetrics.Recorder recorder = metrics.recorder();
+        List<Delivery> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                recorder.switchTo(RunMetrics.Stage.SEND);
+                sendBatch(batch);
+                recorder.switchTo(null); // 等待队列的时间不计入
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // close时所有邮件都已处理完，线程在队列上等待时被中断
+        } finally {
+            recorder.switchTo(null);
+        }
+    }
+
+    /**
+     * 一批邮件用同一个连接依次发送；连接出错或达到单个会话的邮件数时换一个连接继续
+     */
+    private void sendBatch(List<Delivery> batch) throws InterruptedException {
+        SmtpConnection connection = null;
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                Delivery delivery = batch.get(i);
+                if (connection != null && connection.getMessagesSent() >= settings.getMessagesPerSession()) {
+                    pool.release(connection);
+                    connection = null;
+                }
+                if (connection == null) {
+                    try {
+                        connection = pool.borrow();
+                    } catch (IOException | RuntimeException e) {
+                        // 连不上服务器（或地址配置有误）时这一批都不可能发出去
+                        for (int j = i; j < batch.size(); j++) {
+                            failed(batch.get(j), e);
+                        }
+                        return;
+                    }
+                }
+
+                try {
+                    connection.send(delivery.message);
+                    metrics.mailDelivery(RunMetrics.MailOutcome.SENT);
+                    delivery.result.complete(null);
+                    finished();
+                } catch (IOException | RuntimeException e) {
+                    failed(delivery, e);
+                    if (!connection.isUsable(Long.MAX_VALUE)) {
+                        pool.release(connection);
+                        connection = null;
+                    }
+                }
+            }
+        } finally {
+            if (connection != null) {
+                pool.release(connection);
+            }
+        }
+    }
+
+    /**
+     * 一次发送失败：可以重试时等待一段时间后重新排队，否则以失败结束
+     */
+    private void failed(Delivery delivery, Exception e) {
+        delivery.attempts++;
+        boolean permanent = e instanceof SmtpException ? !((SmtpException) e).isTransient()
+                : !(e instanceof IOException); // 地址非法等不会因为重试而成功
+        if (permanent || delivery.attempts >= settings.getMaxAttempts()) {
+            logger.error("邮件发送失败: {}（已尝试 {} 次）: {}", delivery.message.getLabel(), delivery.attempts, e.getMessage());
+            metrics.mailDelivery(RunMetrics.MailOutcome.FAILED);
+            delivery.result.completeExceptionally(e);
+            finished();
+            return;
+        }
+
+        long delay = backoff(delivery.attempts);
+        logger.warn("邮件发送失败，{} 毫秒后重试: {}: {}", delay, delivery.message.getLabel(), e.getMessage());
+        metrics.mailDelivery(RunMetrics.MailOutcome.RETRIED);
+        retryTimer.schedule(() -> {
+            try {
+                queue.put(delivery);
+            } catch (InterruptedException interrupted) {
+                delivery.result.completeExceptionally(e);
+                finished();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 第n次失败后的等待时间：backoff * 2^(n-1)，不超过maxBackoff
+     */
+    private long backoff(int attempts) {
+        long delay = settings.getBackoffMillis();
+        for (int i = 1; i < attempts && delay < settings.getMaxBackoffMillis(); i++) {
+            delay *= 2;
+        }
+        return Math.min(delay, settings.getMaxBackoffMillis());
+    }
+
+    private void finished() {
+        synchronized (lock) {
+            if (--pending == 0) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 不再接受新邮件，等待已提交的邮件全部处理完后停止发送线程并关闭连接。
+     * 等待时被中断则不再等待，队列中尚未发送的邮件以失败结束，并保留线程的中断状态
+     */
+    @Override
+    public void close() {
+        boolean interrupted = false;
+        synchronized (lock) {
+            closed = true;
+            while (pending > 0 && !interrupted) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            if (interrupted) break;
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        retryTimer.shutdownNow();
+        pool.close();
+
+        if (interrupted) {
+            List<Delivery> abandoned = new ArrayList<>();
+            queue.drainTo(abandoned);
+            for (Delivery delivery : abandoned) {
+                delivery.result.completeExceptionally(new IOException("邮件发送被中断"));
+                metrics.mailDelivery(RunMetrics.MailOutcome.FAILED);
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+}
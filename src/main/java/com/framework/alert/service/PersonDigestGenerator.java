@@ -0,0 +1,176 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.CompactAgreementStore;
+import com.framework.alert.model.FrameworkAgreement;
+import com.framework.alert.model.MailContent;
+import com.framework.alert.model.StringDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 按经办人生成个人提醒：只包含本人负责的记录和本人需要处理的阶段。没有任何阶段提醒的经办人不生成提醒。
+ * 分析一次（同时建立经办人索引），之后每个人的内容只取索引中自己的记录，HTML在有界线程池中并行生成，
+ * 模板的固定部分所有人共用（见ReportTemplate）。
+ */
+public class PersonDigestGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(PersonDigestGenerator.class);
+
+    private final AlertAnalyzer analyzer;
+    private final EmailGenerator emailGenerator;
+    private final int threads;
+
+    public PersonDigestGenerator(AlertAnalyzer analyzer, EmailGenerator emailGenerator, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("线程数必须大于0: " + threads);
+        }
+        this.analyzer = analyzer;
+        this.emailGenerator = emailGenerator;
+        this.threads = threads;
+    }
+
+    /**
+     * 分析规则中配置的责任科室的记录，并建立经办人索引
+     */
+    public PersonIndex buildIndex(CompactAgreementStore store, Date now) {
+        int[] rows = analyzer.targetRows(store);
+        PersonIndex.Builder builder = new PersonIndex.Builder(store, rows.length);
+        analyzer.analyzeRows(store, rows, rows.length, null, analyzer.evaluatorAt(now), builder);
+        return builder.build();
+    }
+
+    /**
+     * 一个经办人的提醒内容：阶段提醒只列出本人，表格只包含本人负责的记录（顺序与科室报告一致）
+     */
+    public MailContent digest(PersonIndex index, int person, Date now) {
+        String name = index.personName(person);
+        int stageCount = analyzer.getRules().getStages().size();
+        int mask = index.stageMask(person);
+
+        List<Set<String>> stageNames = new ArrayList<>();
+        for (int i = 0; i < stageCount; i++) {
+            stageNames.add((mask & (1 << i)) != 0 ? Collections.singleton(name) : new HashSet<>());
+        }
+
+        CompactAgreementStore store = index.getStore();
+        List<FrameworkAgreement> tableData = new ArrayList<>(index.rowCount(person));
+        for (int k = 0; k < index.rowCount(person); k++) {
+            tableData.add(store.get(index.row(person, k)));
+        }
+        return analyzer.buildMailContent(now, name + "负责的", stageNames, tableData);
+    }
+
+    /**
+     * 所有有提醒的经办人的提醒内容，按经办人首次出现的顺序。
+     * 得到的内容可以既写成文件又发送（writeDigests、sendDigests），不需要再分析一次
+     */
+    public Map<String, MailContent> analyzeAll(CompactAgreementStore store, Date now) {
+        PersonIndex index = buildIndex(store, now);
+        int unassigned = index.rowCount(StringDictionary.NULL_ID);
+        if (unassigned > 0) {
+            logger.warn("{} 条记录没有责任经办，不生成个人提醒", unassigned);
+        }
+
+        Map<String, MailContent> digests = new LinkedHashMap<>();
+        int withoutAlerts = 0;
+        for (int person = 0; person < index.getPersonCount(); person++) {
+            if (index.rowCount(person) == 0) continue; // 不在本次分析的科室中
+            if (index.stageMask(person) == 0) {
+                withoutAlerts++; // 本人没有需要处理的阶段，不生成也不发送
+                continue;
+            }
+            String name = index.personName(person);
+            if (name.trim().isEmpty()) {
+                logger.warn("{} 条记录的责任经办为空白，不生成个人提醒", index.rowCount(person));
+                continue;
+            }
+            MailContent content = digest(index, person, now);
+            analyzer.recordAlerts(content);
+            digests.put(name, content);
+        }
+        if (withoutAlerts > 0) {
+            logger.info("{} 位经办人没有需要处理的事项，不生成个人提醒", withoutAlerts);
+        }
+        return digests;
+    }
+
+    /**
+     * 为每个经办人生成提醒文件（文件名为"前缀_经办人.html"），返回经办人到文件路径的映射
+     */
+    public Map<String, Path> writeDigests(Map<String, MailContent> digests, Path outputDirectory,
+                                          String filePrefix, boolean gzip) throws InterruptedException {
+        Map<String, String> fileNames = DepartmentReportFanout.fileNames(new ArrayList<>(digests.keySet()));
+        return run(digests, (name, content) -> {
+            Path path = outputDirectory.resolve(filePrefix + "_" + fileNames.get(name) + (gzip ? ".html.gz" : ".html"));
+            emailGenerator.writeHtml(content, path, gzip);
+            return path;
+        });
+    }
+
+    /**
+     * 把每个经办人的提醒交给dispatcher发送到addresses中配置的邮箱，提交后即返回，不等待发送完成。
+     * 返回经办人到发送结果的映射；没有配置邮箱的经办人不发送，也不在结果中
+     */
+    public Map<String, CompletableFuture<Void>> sendDigests(Map<String, MailContent> digests, MailDispatcher dispatcher,
+                                                           Map<String, String> addresses) throws InterruptedException {
+        Map<String, CompletableFuture<Void>> results = run(digests, (name, content) -> {
+            String address = addresses.get(name);
+            if (address == null) {
+                return null;
+            }
+            return dispatcher.submit(emailGenerator.createMessage(content, name, Collections.singletonList(address)));
+        });
+        List<String> missing = new ArrayList<>();
+        results.entrySet().removeIf(entry -> entry.getValue() == null && missing.add(entry.getKey()));
+        if (!missing.isEmpty()) {
+            logger.warn("{} 位经办人没有配置邮箱，不发送个人提醒: {}", missing.size(), String.join("、", missing));
+        }
+        return results;
+    }
+
+    private interface PersonTask<T> {
+        T complete(String name, MailContent content) throws Exception;
+    }
+
+    /**
+     * 在有界线程池中对每个经办人的提醒执行task（生成HTML），结果按digests的顺序
+     */
+    private <T> Map<String, T> run(Map<String, MailContent> digests, PersonTask<T> task) throws InterruptedException {
+        List<String> names = new ArrayList<>(digests.keySet());
+        List<Future<T>> futures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, names.size())));
+        try {
+            for (String name : names) {
+                MailContent content = digests.get(name);
+                futures.add(executor.submit(() -> task.complete(name, content)));
+            }
+
+            Map<String, T> results = new LinkedHashMap<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.put(names.get(i), futures.get(i).get());
+                } catch (ExecutionException e) {
+                    logger.error("生成个人提醒失败: {}", names.get(i), e.getCause());
+                }
+            }
+            logger.info("已完成 {} 位经办人的提醒", results.size());
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
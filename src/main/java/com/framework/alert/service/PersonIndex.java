@@ -0,0 +1,123 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.CompactAgreementStore;
+import com.framework.alert.model.StringDictionary;
+
+/**
+ * 经办人倒排索引：经办人 → 负责的记录（按表格顺序）及每条记录所属的提醒阶段。
+ * 在分析时顺带建立（见AlertAnalyzer.analyzeRows），建立后只读，可在多个线程中使用。
+ */
+public class PersonIndex {
+    private final CompactAgreementStore store;
+    private final int[] offsets; // 经办人编号id的记录为rows[offsets[id], offsets[id + 1])，最后一组为经办人为空的记录
+    private final int[] rows;
+    private final int[] stages;
+
+    private PersonIndex(CompactAgreementStore store, int[] offsets, int[] rows, int[] stages) {
+        this.store = store;
+        this.offsets = offsets;
+        this.rows = rows;
+        this.stages = stages;
+    }
+
+    public CompactAgreementStore getStore() {
+        return store;
+    }
+
+    /**
+     * 经办人编号的个数，编号与store.getPersons()一致
+     */
+    public int getPersonCount() {
+        return offsets.length - 2;
+    }
+
+    public String personName(int person) {
+        return store.getPersons().valueOf(person);
+    }
+
+    /**
+     * 经办人负责的记录数，person为NULL_ID时返回没有经办人的记录数
+     */
+    public int rowCount(int person) {
+        int slot = slot(person);
+        return offsets[slot + 1] - offsets[slot];
+    }
+
+    /**
+     * 经办人负责的第k条记录在存储中的下标
+     */
+    public int row(int person, int k) {
+        return rows[offsets[slot(person)] + k];
+    }
+
+    /**
+     * 经办人负责的第k条记录所属的阶段，第i位对应第i个阶段
+     */
+    public int stages(int person, int k) {
+        return stages[offsets[slot(person)] + k];
+    }
+
+    /**
+     * 经办人需要处理的全部阶段
+     */
+    public int stageMask(int person) {
+        int slot = slot(person);
+        int mask = 0;
+        for (int k = offsets[slot]; k < offsets[slot + 1]; k++) {
+            mask |= stages[k];
+        }
+        return mask;
+    }
+
+    private int slot(int person) {
+        return person == StringDictionary.NULL_ID ? offsets.length - 2 : person;
+    }
+
+    /**
+     * 按表格位置收集记录，build时按经办人分组，同一经办人内保持表格顺序
+     */
+    static class Builder {
+        private final CompactAgreementStore store;
+        private final int[] rowsByPosition;
+        private final int[] stagesByPosition;
+
+        Builder(CompactAgreementStore store, int rowCount) {
+            this.store = store;
+            this.rowsByPosition = new int[rowCount];
+            this.stagesByPosition = new int[rowCount];
+        }
+
+        void add(int position, int row, int stages) {
+            rowsByPosition[position] = row;
+            stagesByPosition[position] = stages;
+        }
+
+        PersonIndex build() {
+            int[] personIds = store.getPersonIds();
+            int personCount = store.getPersons().size();
+
+            int[] offsets = new int[personCount + 2];
+            for (int row : rowsByPosition) {
+                offsets[slotOf(personIds[row], personCount) + 1]++;
+            }
+            for (int slot = 0; slot <= personCount; slot++) {
+                offsets[slot + 1] += offsets[slot];
+            }
+
+            int[] next = new int[personCount + 1];
+            System.arraycopy(offsets, 0, next, 0, personCount + 1);
+            int[] rows = new int[rowsByPosition.length];
+            int[] stages = new int[rowsByPosition.length];
+            for (int position = 0; position < rowsByPosition.length; position++) {
+                int k = next[slotOf(personIds[rowsByPosition[position]], personCount)]++;
+                rows[k] = rowsByPosition[position];
+                stages[k] = stagesByPosition[position];
+            }
+            return new PersonIndex(store, offsets, rows, stages);
+        }
+
+        private static int slotOf(int person, int personCount) {
+            return person == StringDictionary.NULL_ID ? personCount : person;
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.CompactAgreementStore;
+import com.framework.alert.model.StringDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 进度历史：每次运行把所有记录的(标识, 经办人, 进度, 紧急程度, 参考日期)作为一个块追加到历史文件，
+ * 用于统计各进度阶段的停留时间和经办人的逾期情况，不需要保留和重新解析旧的工作簿。
+ *
+ * 块内按列存储，每列单独用Deflate压缩并带CRC32，查询只解压需要的列；字符串（记录标识、经办人、进度）用全局字典编号，
+ * 每个块只写本次新出现的字符串。块头是块索引：运行时间、行数和各列的位置，打开时只读块头和字典列，
+ * 查询按时间范围选出块后再读取数据。
+ *
+ * 文件布局：魔数、版本，然后是块序列。块：块长度（不含这4个字节）、运行时间(epoch millis)、运行日期(epoch day)、
+ * 行数、各列的压缩长度/原始长度/CRC32，然后是各列的压缩数据。写到一半的块在下次追加时截掉，只读打开时忽略。
+ */
+public class ProgressHistory {
+    private static final Logger logger = LoggerFactory.getLogger(ProgressHistory.class);
+
+    public static final String SUFFIX = ".history";
+
+    private static final int MAGIC = 0x46414831; // "FAH1"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_LENGTH = 8;
+
+    /**
+     * 块中的列，查询时用列的位组合指定需要读取哪些列
+     */
+    public enum Column {
+        STRINGS,        // 本块新增的字符串：个数、每个的长度和UTF-8字节（varint）
+        AGREEMENT,      // 记录标识的字符串编号（varint）
+        PERSON,         // 经办人的字符串编号+1，0表示为空（varint）
+        PROGRESS,       // 进度的字符串编号+1，0表示为空（varint）
+        ALERT_LEVEL,    // 紧急程度（1个字节）
+        REFERENCE_DAY;  // 参考日期相对运行日期的天数（zigzag varint）+1，0表示为空
+
+        public int bit() {
+            return 1 << ordinal();
+        }
+    }
+
+    private static final int COLUMN_COUNT = Column.values().length;
+    private static final int BLOCK_HEADER_LENGTH = 8 + 4 + 4 + COLUMN_COUNT * 12;
+
+    /**
+     * 一次运行的块索引
+     */
+    public static final class Block {
+        private final long runMillis;
+        private final int runDay;
+        private final int rowCount;
+        private final long[] offsets = new long[COLUMN_COUNT];  // 各列压缩数据在文件中的位置
+        private final int[] compressedLengths = new int[COLUMN_COUNT];
+        private final int[] rawLengths = new int[COLUMN_COUNT];
+        private final int[] checksums = new int[COLUMN_COUNT];
+
+        private Block(long runMillis, int runDay, int rowCount) {
+            this.runMillis = runMillis;
+            this.runDay = runDay;
+            this.rowCount = rowCount;
+        }
+
+        public long getRunMillis() {
+            return runMillis;
+        }
+
+        public int getRunDay() {
+            return runDay;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+    }
+
+    /**
+     * 一次运行中读取的列，没有请求的列为null
+     */
+    public static final class Run {
+        private final Block block;
+        int[] agreements;
+        int[] persons;        // 字符串编号，-1表示为空
+        int[] progresses;     // 字符串编号，-1表示为空
+        byte[] alertLevels;
+        int[] referenceDays;  // NO_DATE表示为空
+
+        Run(Block block) {
+            this.block = block;
+        }
+
+        public Block getBlock() {
+            return block;
+        }
+
+        public int size() {
+            return block.rowCount;
+        }
+
+        public int[] getAgreements() {
+            return agreements;
+        }
+
+        public int[] getPersons() {
+            return persons;
+        }
+
+        public int[] getProgresses() {
+            return progresses;
+        }
+
+        public byte[] getAlertLevels() {
+            return alertLevels;
+        }
+
+        public int[] getReferenceDays() {
+            return referenceDays;
+        }
+    }
+
+    public interface RunVisitor {
+        void visit(Run run) throws IOException;
+    }
+
+    private final Path path;
+    private final ByteBuffer data;   // 整个文件的只读映射
+    private final List<Block> blocks;
+    private final StringDictionary strings;
+
+    private ProgressHistory(Path path, ByteBuffer data, List<Block> blocks, StringDictionary strings) {
+        this.path = path;
+        this.data = data;
+        this.blocks = blocks;
+        this.strings = strings;
+    }
+
+    /**
+     * 工作簿对应的历史文件（工作簿文件名加.history后缀）
+     */
+    public static Path historyPath(Path workbook) {
+        return workbook.resolveSibling(workbook.getFileName() + SUFFIX);
+    }
+
+    /**
+     * 只读打开：读取块索引和字符串字典，不解压其他列。文件不存在时没有任何块
+     */
+    public static ProgressHistory open(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return new ProgressHistory(path, ByteBuffer.allocate(0), Collections.<Block>emptyList(), new StringDictionary());
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            StringDictionary strings = new StringDictionary();
+            List<Block> blocks = readIndex(path, data, strings);
+            return new ProgressHistory(path, data, blocks, strings);
+        }
+    }
+
+    /**
+     * 读取所有完整块的索引，同时按顺序把每个块新增的字符串加入strings
+     */
+    private static List<Block> readIndex(Path path, ByteBuffer data, StringDictionary strings) throws IOException {
+        List<Block> blocks = new ArrayList<>();
+        if (data.limit() < FILE_HEADER_LENGTH) {
+            return blocks;
+        }
+        if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IOException("不是进度历史文件或版本不支持: " + path);
+        }
+        long position = FILE_HEADER_LENGTH;
+        while (position + 4 + BLOCK_HEADER_LENGTH <= data.limit()) {
+            int length = data.getInt((int) position);
+            if (length < BLOCK_HEADER_LENGTH || position + 4 + length > data.limit()) {
+                break; // 写到一半的块
+            }
+            ByteBuffer header = data.duplicate();
+            header.position((int) position + 4);
+            Block block = new Block(header.getLong(), header.getInt(), header.getInt());
+            long offset = position + 4 + BLOCK_HEADER_LENGTH;
+            for (int c = 0; c < COLUMN_COUNT; c++) {
+                block.offsets[c] = offset;
+                block.compressedLengths[c] = header.getInt();
+                block.rawLengths[c] = header.getInt();
+                block.checksums[c] = header.getInt();
+                offset += block.compressedLengths[c];
+            }
+            if (offset != position + 4 + length) {
+                throw new IOException("进度历史文件的块长度不一致: " + path + " @" + position);
+            }
+            ByteBuffer newStrings = column(path, data, block, Column.STRINGS);
+            int count = readVarint(newStrings);
+            for (int i = 0; i < count; i++) {
+                byte[] bytes = new byte[readVarint(newStrings)];
+                newStrings.get(bytes);
+                strings.idOf(new String(bytes, StandardCharsets.UTF_8));
+            }
+            blocks.add(block);
+            position = offset;
+        }
+        return blocks;
+    }
+
+    /**
+     * 把store的当前状态作为一次运行追加到历史文件（不存在时创建）。紧急程度取store中已经计算的值，应在分析之后调用
+     */
+    public static void append(Path path, CompactAgreementStore store, Date runTime) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            FileLock lock = channel.tryLock(); // 关闭channel时释放
+            if (lock == null) {
+                throw new IOException("进度历史文件正被其他进程写入: " + path);
+            }
+
+            StringDictionary strings = new StringDictionary();
+            long end = FILE_HEADER_LENGTH;
+            if (channel.size() < FILE_HEADER_LENGTH) {
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_LENGTH).putInt(MAGIC).putInt(VERSION);
+                header.flip();
+                channel.truncate(0);
+                channel.write(header, 0);
+            } else {
+                ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                List<Block> blocks = readIndex(path, data, strings);
+                if (!blocks.isEmpty()) {
+                    Block last = blocks.get(blocks.size() - 1);
+                    end = last.offsets[COLUMN_COUNT - 1] + last.compressedLengths[COLUMN_COUNT - 1];
+                }
+                if (end < channel.size()) {
+                    logger.warn("进度历史文件末尾有不完整的块，截掉 {} 字节: {}", channel.size() - end, path);
+                    channel.truncate(end);
+                }
+            }
+
+            ByteBuffer block = encode(store, runTime, strings);
+            channel.position(end);
+            while (block.hasRemaining()) {
+                channel.write(block);
+            }
+            channel.force(false);
+        }
+    }
+
+    private static ByteBuffer encode(CompactAgreementStore store, Date runTime, StringDictionary strings) {
+        int size = store.size();
+        ZoneId zone = store.getZone();
+        int runDay = (int) Instant.ofEpochMilli(runTime.getTime()).atZone(zone).toLocalDate().toEpochDay();
+
+        ByteArrayOutputStream[] columns = new ByteArrayOutputStream[COLUMN_COUNT];
+        for (int c = 0; c < COLUMN_COUNT; c++) {
+            columns[c] = new ByteArrayOutputStream(c == Column.STRINGS.ordinal() ? 256 : size * 2 + 16);
+        }
+        List<String> added = new ArrayList<>();
+        int[] personIds = store.getPersonIds();
+        int[] progressIds = store.getProgressIds();
+        // 存储中的字典编号到历史字典编号，-2表示还没有查过
+        int[] personMap = new int[store.getPersons().size()];
+        int[] progressMap = new int[store.getProgresses().size()];
+        Arrays.fill(personMap, -2);
+        Arrays.fill(progressMap, -2);
+
+        for (int i = 0; i < size; i++) {
+            writeVarint(columns[Column.AGREEMENT.ordinal()], intern(strings, store.agreementKey(i), added));
+            writeVarint(columns[Column.PERSON.ordinal()], mapped(strings, store.getPersons(), personIds[i], personMap, added) + 1);
+            writeVarint(columns[Column.PROGRESS.ordinal()], mapped(strings, store.getProgresses(), progressIds[i], progressMap, added) + 1);
+            columns[Column.ALERT_LEVEL.ordinal()].write(store.getAlertLevel(i));
+            int day = store.referenceDay(i);
+            writeVarint(columns[Column.REFERENCE_DAY.ordinal()], day == CompactAgreementStore.NO_DATE ? 0 : zigzag(day - runDay) + 1);
+        }
+        ByteArrayOutputStream stringColumn = columns[Column.STRINGS.ordinal()];
+        writeVarint(stringColumn, added.size());
+        for (String value : added) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(stringColumn, bytes.length);
+            stringColumn.write(bytes, 0, bytes.length);
+        }
+
+        byte[][] compressed = new byte[COLUMN_COUNT][];
+        int total = 0;
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            for (int c = 0; c < COLUMN_COUNT; c++) {
+                compressed[c] = deflate(deflater, columns[c].toByteArray());
+                total += compressed[c].length;
+            }
+        } finally {
+            deflater.end();
+        }
+
+        ByteBuffer block = ByteBuffer.allocate(4 + BLOCK_HEADER_LENGTH + total);
+        block.putInt(BLOCK_HEADER_LENGTH + total);
+        block.putLong(runTime.getTime()).putInt(runDay).putInt(size);
+        for (int c = 0; c < COLUMN_COUNT; c++) {
+            CRC32 crc = new CRC32();
+            crc.update(compressed[c]);
+            block.putInt(compressed[c].length).putInt(columns[c].size()).putInt((int) crc.getValue());
+        }
+        for (int c = 0; c < COLUMN_COUNT; c++) {
+            block.put(compressed[c]);
+        }
+        block.flip();
+        return block;
+    }
+
+    private static int mapped(StringDictionary strings, StringDictionary source, int id, int[] map, List<String> added) {
+        if (id == StringDictionary.NULL_ID) {
+            return -1;
+        }
+        if (map[id] == -2) {
+            map[id] = intern(strings, source.valueOf(id), added);
+        }
+        return map[id];
+    }
+
+    private static int intern(StringDictionary strings, String value, List<String> added) {
+        int id = strings.find(value);
+        if (id == StringDictionary.NULL_ID) {
+            id = strings.idOf(value);
+            added.add(value);
+        }
+        return id;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * 所有运行的块索引，按追加顺序（即运行时间顺序）
+     */
+    public List<Block> getBlocks() {
+        return Collections.unmodifiableList(blocks);
+    }
+
+    /**
+     * 字符串编号对应的值（记录标识、经办人或进度）
+     */
+    public String string(int id) {
+        return strings.valueOf(id);
+    }
+
+    /**
+     * 字符串的编号，历史中没有出现过时返回-1
+     */
+    public int find(String value) {
+        return strings.find(value);
+    }
+
+    public int getStringCount() {
+        return strings.size();
+    }
+
+    /**
+     * 按时间顺序访问运行日期在[fromDay, toDay]内的块，只解压columns（Column.bit()的组合）指定的列
+     */
+    public void scan(int fromDay, int toDay, int columns, RunVisitor visitor) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            for (Block block : blocks) {
+                if (block.runDay < fromDay || block.runDay > toDay) continue;
+                Run run = new Run(block);
+                if ((columns & Column.AGREEMENT.bit()) != 0) {
+                    run.agreements = readIds(block, Column.AGREEMENT, 0, inflater);
+                }
+                if ((columns & Column.PERSON.bit()) != 0) {
+                    run.persons = readIds(block, Column.PERSON, -1, inflater);
+                }
+                if ((columns & Column.PROGRESS.bit()) != 0) {
+                    run.progresses = readIds(block, Column.PROGRESS, -1, inflater);
+                }
+                if ((columns & Column.ALERT_LEVEL.bit()) != 0) {
+                    ByteBuffer levels = column(path, data, block, Column.ALERT_LEVEL, inflater);
+                    run.alertLevels = new byte[block.rowCount];
+                    levels.get(run.alertLevels);
+                }
+                if ((columns & Column.REFERENCE_DAY.bit()) != 0) {
+                    ByteBuffer days = column(path, data, block, Column.REFERENCE_DAY, inflater);
+                    run.referenceDays = new int[block.rowCount];
+                    for (int i = 0; i < block.rowCount; i++) {
+                        int value = readVarint(days);
+                        run.referenceDays[i] = value == 0 ? CompactAgreementStore.NO_DATE : block.runDay + unzigzag(value - 1);
+                    }
+                }
+                visitor.visit(run);
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private int[] readIds(Block block, Column column, int offset, Inflater inflater) throws IOException {
+        ByteBuffer in = column(path, data, block, column, inflater);
+        int[] ids = new int[block.rowCount];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = readVarint(in) + offset;
+        }
+        return ids;
+    }
+
+    private static ByteBuffer column(Path path, ByteBuffer data, Block block, Column column) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            return column(path, data, block, column, inflater);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 校验并解压一列
+     */
+    private static ByteBuffer column(Path path, ByteBuffer data, Block block, Column column, Inflater inflater)
+            throws IOException {
+        int c = column.ordinal();
+        byte[] compressed = new byte[block.compressedLengths[c]];
+        ByteBuffer source = data.duplicate();
+        source.position((int) block.offsets[c]);
+        source.get(compressed);
+        CRC32 crc = new CRC32();
+        crc.update(compressed);
+        if ((int) crc.getValue() != block.checksums[c]) {
+            throw new IOException("进度历史文件校验失败: " + path + "，运行日期 " + block.runDay + "，列 " + column);
+        }
+        byte[] raw = new byte[block.rawLengths[c]];
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int read = 0;
+            while (read < raw.length) {
+                int n = inflater.inflate(raw, read, raw.length - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != raw.length) {
+                throw new IOException("进度历史文件的列长度不符: " + path + "，列 " + column);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("进度历史文件数据损坏: " + path + "，列 " + column, e);
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("varint过长");
+    }
+}
@@ -0,0 +1,275 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.CompactAgreementStore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 基于进度历史的统计：各进度阶段的停留时间，以及经办人的逾期情况和推进速度。
+ * 只读取需要的列，按运行时间顺序扫描一遍；记录用历史中的字符串编号标识，状态放在按编号下标的数组里。
+ *
+ * 进度变化发生在相邻两次运行之间，时间按发现变化的那次运行计算，运行越频繁越准确。
+ * 第一次出现时已经处于某个进度的记录，进入时间未知，这一段不计入停留时间。
+ */
+public class ProgressTrends {
+    private static final String COMPLETED = "已完成";
+    private static final int UNSEEN = -2;
+
+    /**
+     * 一个进度阶段的停留时间（天）
+     */
+    public static final class StageDwell {
+        private final String progress;
+        private final int[] completedDays;  // 已经离开这个阶段的各段停留天数，升序
+        private final int ongoing;          // 仍在这个阶段（进入时间已知）的记录数
+        private final int ongoingMaxDays;   // 其中停留最久的天数
+
+        StageDwell(String progress, int[] completedDays, int ongoing, int ongoingMaxDays) {
+            this.progress = progress;
+            this.completedDays = completedDays;
+            this.ongoing = ongoing;
+            this.ongoingMaxDays = ongoingMaxDays;
+        }
+
+        public String getProgress() {
+            return progress;
+        }
+
+        public int getCompletedCount() {
+            return completedDays.length;
+        }
+
+        public double getAverageDays() {
+            if (completedDays.length == 0) {
+                return 0;
+            }
+            long sum = 0;
+            for (int days : completedDays) {
+                sum += days;
+            }
+            return (double) sum / completedDays.length;
+        }
+
+        public int getMedianDays() {
+            return completedDays.length == 0 ? 0 : completedDays[completedDays.length / 2];
+        }
+
+        public int getMaxDays() {
+            return completedDays.length == 0 ? 0 : completedDays[completedDays.length - 1];
+        }
+
+        public int getOngoing() {
+            return ongoing;
+        }
+
+        public int getOngoingMaxDays() {
+            return ongoingMaxDays;
+        }
+    }
+
+    /**
+     * 一个经办人的逾期情况和推进速度
+     */
+    public static final class PersonTrend {
+        private final String person;
+        private final int agreements;        // 负责过的记录数
+        private final int lateAgreements;    // 其中出现过逾期（参考日期已过且未完成）的记录数
+        private final long openObservations; // 各次运行中未完成记录的次数
+        private final long lateObservations; // 其中已逾期的次数
+        private final int maxDaysLate;
+        private final int transitions;       // 负责的记录进度变化的次数
+        private final double months;         // 统计的时间跨度（月）
+
+        PersonTrend(String person, int agreements, int lateAgreements, long openObservations, long lateObservations,
+                    int maxDaysLate, int transitions, double months) {
+            this.person = person;
+            this.agreements = agreements;
+            this.lateAgreements = lateAgreements;
+            this.openObservations = openObservations;
+            this.lateObservations = lateObservations;
+            this.maxDaysLate = maxDaysLate;
+            this.transitions = transitions;
+            this.months = months;
+        }
+
+        public String getPerson() {
+            return person;
+        }
+
+        public int getAgreements() {
+            return agreements;
+        }
+
+        public int getLateAgreements() {
+            return lateAgreements;
+        }
+
+        /**
+         * 未完成的记录中处于逾期状态的比例（按运行次数）
+         */
+        public double getLateShare() {
+            return openObservations == 0 ? 0 : (double) lateObservations / openObservations;
+        }
+
+        public int getMaxDaysLate() {
+            return maxDaysLate;
+        }
+
+        public int getTransitions() {
+            return transitions;
+        }
+
+        /**
+         * 平均每条记录每月的进度变化次数
+         */
+        public double getTransitionsPerMonth() {
+            return agreements == 0 || months <= 0 ? 0 : transitions / (agreements * months);
+        }
+    }
+
+    private final ProgressHistory history;
+
+    public ProgressTrends(ProgressHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * 运行日期在[fromDay, toDay]内的各进度停留时间，按进度首次出现的顺序；只读取记录标识和进度两列
+     */
+    public List<StageDwell> dwellTimes(int fromDay, int toDay) throws IOException {
+        int stringCount = history.getStringCount();
+        int[] current = new int[stringCount];   // 记录标识编号 -> 当前进度编号
+        int[] since = new int[stringCount];     // 进入当前进度的日期
+        int[] lastSeen = new int[stringCount];
+        BitSet entryKnown = new BitSet(stringCount);
+        Arrays.fill(current, UNSEEN);
+
+        List<List<Integer>> dwells = new ArrayList<>(); // 进度编号 -> 已完成的停留天数
+        for (int i = 0; i < stringCount; i++) {
+            dwells.add(null);
+        }
+        List<Integer> order = new ArrayList<>();
+
+        history.scan(fromDay, toDay, ProgressHistory.Column.AGREEMENT.bit() | ProgressHistory.Column.PROGRESS.bit(), run -> {
+            int day = run.getBlock().getRunDay();
+            int[] agreements = run.getAgreements();
+            int[] progresses = run.getProgresses();
+            for (int i = 0; i < run.size(); i++) {
+                int agreement = agreements[i];
+                int progress = progresses[i];
+                if (progress >= 0 && dwells.get(progress) == null) {
+                    dwells.set(progress, new ArrayList<>());
+                    order.add(progress);
+                }
+                if (current[agreement] == UNSEEN) {
+                    current[agreement] = progress;
+                    since[agreement] = day;
+                } else if (current[agreement] != progress) {
+                    if (entryKnown.get(agreement) && current[agreement] >= 0) {
+                        dwells.get(current[agreement]).add(day - since[agreement]);
+                    }
+                    current[agreement] = progress;
+                    since[agreement] = day;
+                    entryKnown.set(agreement);
+                }
+                lastSeen[agreement] = day;
+            }
+        });
+
+        int[] ongoing = new int[stringCount];
+        int[] ongoingMax = new int[stringCount];
+        for (int agreement = entryKnown.nextSetBit(0); agreement >= 0; agreement = entryKnown.nextSetBit(agreement + 1)) {
+            int progress = current[agreement];
+            if (progress >= 0) {
+                ongoing[progress]++;
+                ongoingMax[progress] = Math.max(ongoingMax[progress], lastSeen[agreement] - since[agreement]);
+            }
+        }
+
+        List<StageDwell> result = new ArrayList<>(order.size());
+        for (int progress : order) {
+            List<Integer> days = dwells.get(progress);
+            int[] sorted = new int[days.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = days.get(i);
+            }
+            Arrays.sort(sorted);
+            result.add(new StageDwell(history.string(progress), sorted, ongoing[progress], ongoingMax[progress]));
+        }
+        return result;
+    }
+
+    /**
+     * 运行日期在[fromDay, toDay]内各经办人的逾期情况和推进速度，逾期比例高的在前。
+     * 记录按每次运行时的经办人统计，中途换人时分别计入
+     */
+    public List<PersonTrend> personTrends(int fromDay, int toDay) throws IOException {
+        int stringCount = history.getStringCount();
+        int completed = history.find(COMPLETED);
+        int[] current = new int[stringCount];
+        Arrays.fill(current, UNSEEN);
+
+        // 经办人编号 -> 统计；负责过和逾期过的记录用"经办人, 记录"对去重
+        BitSet[] agreementsByPerson = new BitSet[stringCount];
+        BitSet[] lateByPerson = new BitSet[stringCount];
+        long[] open = new long[stringCount];
+        long[] late = new long[stringCount];
+        int[] maxLate = new int[stringCount];
+        int[] transitions = new int[stringCount];
+        int[] span = {Integer.MAX_VALUE, Integer.MIN_VALUE};
+
+        int columns = ProgressHistory.Column.AGREEMENT.bit() | ProgressHistory.Column.PERSON.bit()
+                | ProgressHistory.Column.PROGRESS.bit() | ProgressHistory.Column.REFERENCE_DAY.bit();
+        history.scan(fromDay, toDay, columns, run -> {
+            int day = run.getBlock().getRunDay();
+            span[0] = Math.min(span[0], day);
+            span[1] = Math.max(span[1], day);
+            int[] agreements = run.getAgreements();
+            int[] persons = run.getPersons();
+            int[] progresses = run.getProgresses();
+            int[] referenceDays = run.getReferenceDays();
+            for (int i = 0; i < run.size(); i++) {
+                int agreement = agreements[i];
+                int progress = progresses[i];
+                boolean changed = current[agreement] != UNSEEN && current[agreement] != progress;
+                current[agreement] = progress;
+
+                int person = persons[i];
+                if (person < 0) continue;
+                if (agreementsByPerson[person] == null) {
+                    agreementsByPerson[person] = new BitSet();
+                    lateByPerson[person] = new BitSet();
+                }
+                agreementsByPerson[person].set(agreement);
+                if (changed) {
+                    transitions[person]++;
+                }
+                if (progress == completed && completed >= 0) continue;
+                open[person]++;
+                int referenceDay = referenceDays[i];
+                if (referenceDay != CompactAgreementStore.NO_DATE && referenceDay < day) {
+                    late[person]++;
+                    lateByPerson[person].set(agreement);
+                    maxLate[person] = Math.max(maxLate[person], day - referenceDay);
+                }
+            }
+        });
+
+        double months = span[1] >= span[0] ? (span[1] - span[0] + 1) / 30.0 : 0;
+        List<PersonTrend> result = new ArrayList<>();
+        for (int person = 0; person < stringCount; person++) {
+            if (agreementsByPerson[person] == null) continue;
+            result.add(new PersonTrend(history.string(person), agreementsByPerson[person].cardinality(),
+                    lateByPerson[person].cardinality(), open[person], late[person], maxLate[person],
+                    transitions[person], months));
+        }
+        result.sort(Comparator.comparingDouble(PersonTrend::getLateShare).reversed()
+                .thenComparing(Comparator.comparingInt(PersonTrend::getLateAgreements).reversed()));
+        return result;
+    }
+}
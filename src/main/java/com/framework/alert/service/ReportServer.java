@@ -0,0 +1,357 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.CompactAgreementStore;
+import com.framework.alert.model.MailContent;
+import com.framework.alert.model.StringDictionary;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 报告服务：用JDK自带的HTTP服务器按需提供提醒报告，不再需要打开目录里按时间戳命名的HTML文件。
+ *
+ *   /                  规则中配置的责任科室的报告（与Main生成的文件相同）
+ *   /department/科室   一个责任科室的报告
+ *   /person/经办人     一个经办人的提醒
+ *
+ * 生成的页面按"工作簿内容哈希 + 当天日期"缓存，同时保存原文和gzip压缩后的内容，并带ETag：
+ * 重复访问只是一次查表，浏览器带If-None-Match时返回304。工作簿的修改时间或大小变化时才重新计算内容哈希，
+ * 内容变化或日期变化时丢弃所有缓存的页面（紧急程度随日期变化）。
+ * 缓存命中的请求并发处理；未命中时在锁内依次读取和生成，同一页面只生成一次。
+ */
+public class ReportServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ReportServer.class);
+
+    private static final String DEPARTMENT_PREFIX = "/department/";
+    private static final String PERSON_PREFIX = "/person/";
+
+    private final Path workbook;
+    private final SnapshotCache snapshotCache;
+    private final AlertAnalyzer analyzer;
+    private final EmailGenerator emailGenerator;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private final Object lock = new Object();
+    private volatile Version version;   // 当前工作簿版本和当天的页面缓存
+
+    /**
+     * 一个工作簿版本在某一天的页面缓存
+     */
+    private static final class Version {
+        final String hash;       // 内容哈希的十六进制前缀
+        final int day;
+        final CompactAgreementStore store;
+        final Date now;
+        final Map<String, Page> pages = new ConcurrentHashMap<>();
+        // 最近一次确认内容未变时工作簿的修改时间和大小
+        volatile long modified;
+        volatile long size;
+        DepartmentReportFanout.DepartmentGroups departments;
+        PersonIndex persons;
+        Map<String, Integer> personIds;
+
+        Version(String hash, int day, CompactAgreementStore store, Date now, long modified, long size) {
+            this.hash = hash;
+            this.day = day;
+            this.store = store;
+            this.now = now;
+            this.modified = modified;
+            this.size = size;
+        }
+    }
+
+    /**
+     * 生成好的页面
+     */
+    private static final class Page {
+        final String etag;
+        final byte[] html;
+        final byte[] gzip;
+
+        Page(String etag, byte[] html, byte[] gzip) {
+            this.etag = etag;
+            this.html = html;
+            this.gzip = gzip;
+        }
+    }
+
+    /**
+     * 只在本机回环地址的port上监听（0表示任选一个空闲端口），threads为处理请求的线程数
+     */
+    public ReportServer(Path workbook, AgreementSource source, AlertAnalyzer analyzer, int port, int threads)
+            throws IOException {
+        this(workbook, source, analyzer, InetAddress.getLoopbackAddress(), port, threads);
+    }
+
+    /**
+     * 在address的port上监听。报告包含经办人和进度，没有访问控制，只应绑定到可信的网络
+     */
+    public ReportServer(Path workbook, AgreementSource source, AlertAnalyzer analyzer, InetAddress address, int port,
+                        int threads) throws IOException {
+        this.workbook = workbook.toAbsolutePath();
+        this.snapshotCache = new SnapshotCache(source);
+        this.analyzer = analyzer;
+        this.emailGenerator = new EmailGenerator(new RowFragmentCache(10000));
+        this.server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> new Thread(runnable, "report-http"));
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+        logger.info("报告服务已启动: http://{}:{}/ ，工作簿: {}", server.getAddress().getAddress().getHostAddress(),
+                getPort(), workbook);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                sendText(exchange, 405, "不支持的请求方法: " + method);
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            Version current = currentVersion();
+            Page page = current.pages.get(path);
+            if (page == null) {
+                synchronized (lock) {
+                    page = current.pages.get(path);
+                    if (page == null) {
+                        page = render(current, path);
+                        if (page == null) {
+                            sendText(exchange, 404, "没有这个报告: " + path
+                                    + "\n可用的路径: /  " + DEPARTMENT_PREFIX + "科室  " + PERSON_PREFIX + "经办人");
+                            return;
+                        }
+                        current.pages.put(path, page);
+                    }
+                }
+            }
+            sendPage(exchange, page, "HEAD".equals(method));
+        } catch (Exception e) {
+            logger.error("处理请求失败: {}", exchange.getRequestURI(), e);
+            sendText(exchange, 500, "生成报告失败: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * 当前的工作簿版本：修改时间、大小和日期都没变时直接返回，不读文件
+     */
+    private Version currentVersion() throws Exception {
+        BasicFileAttributes attributes = Files.readAttributes(workbook, BasicFileAttributes.class);
+        long modified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+        Version current = version;
+        if (current != null && current.modified == modified && current.size == size && current.day == today(current.store)) {
+            return current;
+        }
+
+        synchronized (lock) {
+            current = version;
+            CompactAgreementStore store = current != null ? current.store : null;
+            String hash = current != null ? current.hash : null;
+            if (current == null || current.modified != modified || current.size != size) {
+                byte[] digest = SnapshotCache.contentHash(workbook);
+                String contentHash = hex(digest);
+                if (!contentHash.equals(hash)) {
+                    store = snapshotCache.read(workbook.toString(), digest);
+                    hash = contentHash;
+                }
+            }
+            int day = today(store);
+            if (current == null || !current.hash.equals(hash) || current.day != day) {
+                current = new Version(hash, day, store, new Date(), modified, size);
+                version = current;
+                logger.info("报告缓存已重置: 工作簿 {}，日期 {}", hash, LocalDate.ofEpochDay(day));
+            } else {
+                // 只是修改时间变了，内容相同，保留缓存
+                current.modified = modified;
+                current.size = size;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * 生成path对应的页面，没有这个报告时返回null。在lock内调用
+     */
+    private Page render(Version current, String path) throws IOException {
+        CompactAgreementStore store = current.store;
+        MailContent content;
+        if ("/".equals(path)) {
+            content = analyzer.analyzeAlerts(store, current.now);
+        } else if (path.startsWith(DEPARTMENT_PREFIX)) {
+            String department = path.substring(DEPARTMENT_PREFIX.length());
+            int id = store.getDepartments().find(department);
+            if (current.departments == null) {
+                current.departments = DepartmentReportFanout.group(store);
+            }
+            if (id == StringDictionary.NULL_ID || current.departments.size(id) == 0) {
+                return null;
+            }
+            int[] rows = Arrays.copyOfRange(current.departments.rows, current.departments.offsets[id],
+                    current.departments.offsets[id + 1]);
+            content = analyzer.analyzeRows(store, rows, rows.length, department, analyzer.evaluatorAt(current.now), null);
+        } else if (path.startsWith(PERSON_PREFIX)) {
+            if (current.persons == null) {
+                PersonDigestGenerator digests = new PersonDigestGenerator(analyzer, emailGenerator, 1);
+                current.persons = digests.buildIndex(store, current.now);
+                current.personIds = new HashMap<>();
+                for (int person = 0; person < current.persons.getPersonCount(); person++) {
+                    if (current.persons.rowCount(person) > 0) {
+                        current.personIds.put(current.persons.personName(person), person);
+                    }
+                }
+            }
+            Integer person = current.personIds.get(path.substring(PERSON_PREFIX.length()));
+            if (person == null) {
+                return null;
+            }
+            content = new PersonDigestGenerator(analyzer, emailGenerator, 1).digest(current.persons, person, current.now);
+        } else {
+            return null;
+        }
+
+        ByteArrayOutputStream html = new ByteArrayOutputStream(16 * 1024);
+        emailGenerator.render(content, html, false);
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream(html.size() / 4 + 64);
+        emailGenerator.render(content, gzip, true);
+        String etag = current.hash + "-" + current.day + "-" + Integer.toHexString(path.hashCode());
+        return new Page(etag, html.toByteArray(), gzip.toByteArray());
+    }
+
+    private static void sendPage(HttpExchange exchange, Page page, boolean headOnly) throws IOException {
+        Headers request = exchange.getRequestHeaders();
+        boolean gzip = acceptsGzip(request.getFirst("Accept-Encoding"));
+        // 原文和压缩后的内容是同一资源的两种表示，ETag需要区分
+        String etag = "\"" + page.etag + (gzip ? "-gz" : "") + "\"";
+
+        Headers response = exchange.getResponseHeaders();
+        response.set("ETag", etag);
+        response.set("Cache-Control", "no-cache");
+        response.set("Vary", "Accept-Encoding");
+        if (matches(request.getFirst("If-None-Match"), etag)) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        byte[] body = gzip ? page.gzip : page.html;
+        response.set("Content-Type", "text/html; charset=UTF-8");
+        if (gzip) {
+            response.set("Content-Encoding", "gzip");
+        }
+        if (headOnly) {
+            response.set("Content-Length", String.valueOf(body.length));
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Accept-Encoding中是否包含gzip（不考虑q=0）
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            if ("gzip".equalsIgnoreCase(tokens[0].trim())) {
+                return tokens.length < 2 || !tokens[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * If-None-Match是否包含etag（也接受*和弱校验的W/前缀）
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag) || candidate.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int today(CompactAgreementStore store) {
+        return (int) LocalDate.now(store.getZone()).toEpochDay();
+    }
+
+    /**
+     * 哈希的前8个字节，足以区分同一工作簿的不同版本
+     */
+    private static String hex(byte[] hash) {
+        StringBuilder text = new StringBuilder(16);
+        for (int i = 0; i < 8; i++) {
+            text.append(String.format("%02x", hash[i]));
+        }
+        return text.toString();
+    }
+
+    /**
+     * 停止接受请求，等待正在处理的请求最多1秒。等待时被中断则保留线程的中断状态后返回
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.framework.alert.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 提醒邮件和变更报告模板中不变的部分，类加载时预先编码为UTF-8字节，生成报告时直接复制。
+ * 各段之间插入的动态内容见EmailGenerator和ChangeReportGenerator。
+ */
+final class ReportTemplate {
+
+    /**
+     * 一段固定内容，同时保存文本和UTF-8字节，分别供Writer和OutputStream输出使用
+     */
+    static final class Segment {
+        final String text;
+        final byte[] bytes;
+
+        Segment(String text) {
+            this.text = text;
+            this.bytes = text.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    // 文档开头和共用的样式，各文档在后面补充自己的样式并结束<style>
+    private static final String STYLES =
+            "<html>" +
+            "<head>" +
+            "<style>" +
+            "body { font-family: 'Microsoft YaHei', Arial, sans-serif; margin: 20px; line-height: 1.6; }" +
+            ".alert-section { margin: 20px 0; padding: 15px; background-color: #f8f9fa; border-left: 4px solid #007bff; border-radius: 4px; }" +
+            ".alert-title { font-weight: bold; color: #333; margin-bottom: 10px; font-size: 16px; }" +
+            ".alert-content { color: #666; }" +
+            ".person-name { color: #e74c3c; font-weight: bold; }" +
+            "table { border-collapse: collapse; width: 100%; margin-top: 30px; box-shadow: 0 2px 5px rgba(0,0,0,0.1); }" +
+            "th, td { border: 1px solid #ddd; padding: 12px; text-align: left; }" +
+            "th { background-color: #2c3e50; color: white; font-weight: bold; }" +
+            "tr:nth-child(even) { background-color: #f9f9f9; }" +
+            "tr:hover { background-color: #f5f5f5; }" +
+            ".urgent { background-color: #ffe6e6 !important; }" +
+            ".completed { background-color: #e6ffe6 !important; }" +
+            ".level-1 { color: #e74c3c; font-weight: bold; }" +
+            ".level-2 { color: #e67e22; }" +
+            ".level-3 { color: #f1c40f; }" +
+            ".level-4 { color: #3498db; }" +
+            ".level-5 { color: #95a5a6; }" +
+            ".header { background-color: #34495e; color: white; padding: 20px; border-radius: 5px; margin-bottom: 20px; }" +
+            ".footer { margin-top: 30px; padding-top: 20px; border-top: 1px solid #eee; color: #7f8c8d; font-size: 12px; }";
+
+    // 文档开头到"生成时间: "
+    static final Segment DOCUMENT_START = new Segment(
+            STYLES +
+            "</style>" +
+            "</head>" +
+            "<body>" +
+            "<div class=\"header\">" +
+            "<h1>人月框架协议进度提醒</h1>" +
+            "<p>生成时间: ");
+    static final Segment HEADER_END = new Segment("</p></div>");
+
+    // 提醒部分
+    static final Segment ALERTS_HEADING = new Segment("<h2>📢 待办事项提醒</h2>");
+    static final Segment NO_ALERTS = new Segment(
+            "<div class=\"alert-section\">" +
+            "<div class=\"alert-title\">✅ 所有事项正常</div>" +
+            "<div class=\"alert-content\">目前没有需要紧急处理的事项。</div>" +
+            "</div>");
+    static final Segment SECTION_START = new Segment("<div class=\"alert-section\"><div class=\"alert-title\">");
+    static final Segment SECTION_TITLE_END = new Segment("</div><div class=\"alert-content\">");
+    static final Segment NAME_START = new Segment("<span class=\"person-name\">@");
+    static final Segment NAME_END = new Segment("</span>");
+    static final Segment NAME_SEPARATOR = new Segment(", ");
+    static final Segment SECTION_END = new Segment("</div></div>");
+
+    // 表格部分
+    static final Segment TABLE_TITLE_START = new Segment("<h2>📊 ");
+    static final Segment TABLE_TITLE_COUNT = new Segment("项目清单（共");
+    static final Segment TABLE_TITLE_END = new Segment("项）</h2>");
+    static final Segment TABLE_START = new Segment(
+            "<table>" +
+            "<tr>" +
+            "<th width=\"5%\">序号</th>" +
+            "<th width=\"25%\">系统名称</th>" +
+            "<th width=\"10%\">责任经办</th>" +
+            "<th width=\"15%\">当前进度</th>" +
+            "<th width=\"15%\">上期协议到期</th>" +
+            "<th width=\"15%\">计划立项日期</th>" +
+            "<th width=\"15%\">紧急程度</th>" +
+            "</tr>");
+    static final Segment TABLE_END = new Segment("</table>");
+
+    // 统计信息
+    static final Segment FOOTER_START = new Segment("<div class=\"footer\"><p>📈 统计信息：总计 ");
+    static final Segment FOOTER_COMPLETED = new Segment(" 项 | 已完成 ");
+    static final Segment FOOTER_URGENT = new Segment(" 项 | 紧急待办 ");
+    static final Segment FOOTER_END = new Segment(
+            " 项</p>" +
+            "<p>📋 紧急程度说明：非常紧急(7天内) | 紧急(7-14天) | 中等(14-30天) | 一般(30-90天) | 较低(90天以上)</p>" +
+            "<p>✅ 绿色行：已完成项目 | 🔴 红色背景：紧急项目</p>" +
+            "</div>");
+
+    // 没有记录时
+    static final Segment NOT_FOUND_START = new Segment(
+            "<div class=\"alert-section\">" +
+            "<div class=\"alert-title\">⚠️ 未找到相关记录</div>" +
+            "<div class=\"alert-content\">未找到'");
+    static final Segment NOT_FOUND_END = new Segment("'的相关项目记录。</div></div>");
+
+    static final Segment DOCUMENT_END = new Segment("</body></html>");
+
+    // 变更报告：文档开头到"对比: "，之后依次是旧版本文件名、DIFF_ARROW、新版本文件名、DIFF_GENERATED、生成时间、HEADER_END
+    static final Segment DIFF_DOCUMENT_START = new Segment(
+            STYLES +
+            ".added { background-color: #e6ffe6 !important; }" +
+            ".removed { background-color: #ffe6e6 !important; color: #7f8c8d; }" +
+            ".progress-changed { background-color: #fff8e1 !important; }" +
+            ".old-value { color: #e74c3c; text-decoration: line-through; }" +
+            ".new-value { color: #27ae60; font-weight: bold; }" +
+            "</style>" +
+            "</head>" +
+            "<body>" +
+            "<div class=\"header\">" +
+            "<h1>人月框架协议变更报告</h1>" +
+            "<p>对比: ");
+    static final Segment DIFF_ARROW = new Segment(" → ");
+    static final Segment DIFF_GENERATED = new Segment("</p><p>生成时间: ");
+
+    // 变更统计：新增、删除、修改、其中进度变化、未变化的条数依次插入各段之间
+    static final Segment DIFF_SUMMARY_START = new Segment(
+            "<div class=\"alert-section\">" +
+            "<div class=\"alert-title\">📋 变更概况</div>" +
+            "<div class=\"alert-content\">新增 ");
+    static final Segment DIFF_SUMMARY_REMOVED = new Segment(" 项 | 删除 ");
+    static final Segment DIFF_SUMMARY_CHANGED = new Segment(" 项 | 修改 ");
+    static final Segment DIFF_SUMMARY_PROGRESS = new Segment(" 项（进度变化 ");
+    static final Segment DIFF_SUMMARY_UNCHANGED = new Segment(" 项） | 未变化 ");
+    static final Segment DIFF_SUMMARY_END = new Segment(" 项</div></div>");
+    static final Segment NO_CHANGES = new Segment(
+            "<div class=\"alert-section\">" +
+            "<div class=\"alert-title\">✅ 两个版本没有差异</div>" +
+            "</div>");
+
+    // 修改的记录
+    static final Segment CHANGED_TITLE_START = new Segment("<h2>✏️ 修改的项目（共");
+    static final Segment CHANGED_TABLE_START = new Segment(
+            "项）</h2>" +
+            "<table>" +
+            "<tr>" +
+            "<th width=\"5%\">序号</th>" +
+            "<th width=\"25%\">系统名称</th>" +
+            "<th width=\"10%\">责任经办</th>" +
+            "<th width=\"60%\">变化</th>" +
+            "</tr>");
+    static final Segment OLD_VALUE_START = new Segment("<span class=\"old-value\">");
+    static final Segment NEW_VALUE_START = new Segment("<span class=\"new-value\">");
+    static final Segment VALUE_END = new Segment("</span>");
+
+    // 新增和删除的记录
+    static final Segment ADDED_TITLE_START = new Segment("<h2>➕ 新增的项目（共");
+    static final Segment REMOVED_TITLE_START = new Segment("<h2>➖ 删除的项目（共");
+    static final Segment ROWS_TABLE_START = new Segment(
+            "项）</h2>" +
+            "<table>" +
+            "<tr>" +
+            "<th width=\"5%\">序号</th>" +
+            "<th width=\"25%\">系统名称</th>" +
+            "<th width=\"10%\">责任经办</th>" +
+            "<th width=\"15%\">当前进度</th>" +
+            "<th width=\"15%\">上期协议到期</th>" +
+            "<th width=\"15%\">计划立项日期</th>" +
+            "<th width=\"15%\">责任科室</th>" +
+            "</tr>");
+
+    private ReportTemplate() {
+    }
+}
@@ -0,0 +1,60 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.FrameworkAgreement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * 把一行数据解码为FrameworkAgreement。每列的解码器和对应字段在创建时确定（见ColumnPlan），
+ * 解码一行只是按列依次"取单元格 - 解码 - 赋值"。
+ */
+public class RowDecoder {
+
+    private static class Binding<T> {
+        final int column;
+        final CellDecoder<T> decoder;
+        final BiConsumer<FrameworkAgreement, T> setter;
+
+        Binding(int column, CellDecoder<T> decoder, BiConsumer<FrameworkAgreement, T> setter) {
+            this.column = column;
+            this.decoder = decoder;
+            this.setter = setter;
+        }
+
+        void apply(SheetRow row, FrameworkAgreement agreement) {
+            setter.accept(agreement, decoder.decode(row.getCell(column)));
+        }
+    }
+
+    private final List<Binding<?>> bindings = new ArrayList<>();
+
+    public <T> RowDecoder bind(int column, CellDecoder<T> decoder, BiConsumer<FrameworkAgreement, T> setter) {
+        bindings.add(new Binding<>(column, decoder, setter));
+        return this;
+    }
+
+    /**
+     * 需要读取的列，下标为列索引
+     */
+    public boolean[] columns() {
+        int width = 0;
+        for (Binding<?> binding : bindings) {
+            width = Math.max(width, binding.column + 1);
+        }
+        boolean[] columns = new boolean[width];
+        for (Binding<?> binding : bindings) {
+            columns[binding.column] = true;
+        }
+        return columns;
+    }
+
+    public FrameworkAgreement decode(SheetRow row) {
+        FrameworkAgreement agreement = new FrameworkAgreement();
+        for (Binding<?> binding : bindings) {
+            binding.apply(row, agreement);
+        }
+        return agreement;
+    }
+}
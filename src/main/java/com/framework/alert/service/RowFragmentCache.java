@@ -0,0 +1,108 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.FrameworkAgreement;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 已生成的表格行（&lt;tr&gt;）缓存，键为行中显示的字段和紧急程度，容量有限，按最近使用淘汰。
+ * 记录在两次生成之间没有变化时直接复用上次的内容，不再格式化日期和编码字符串。
+ * 可在多个线程生成报告时共用。
+ */
+public class RowFragmentCache {
+
+    /**
+     * 决定一行显示内容的全部字段
+     */
+    static final class RowKey {
+        private final Integer id;
+        private final String systemName;
+        private final String responsiblePerson;
+        private final String currentProgress;
+        private final long previousExpiry;
+        private final long plannedApproval;
+        private final Integer alertLevel;
+        private final int hash;
+
+        RowKey(FrameworkAgreement agreement) {
+            this.id = agreement.getId();
+            this.systemName = agreement.getSystemName();
+            this.responsiblePerson = agreement.getResponsiblePerson();
+            this.currentProgress = agreement.getCurrentProgress();
+            this.previousExpiry = millis(agreement.getPreviousAgreementExpiry());
+            this.plannedApproval = millis(agreement.getPlannedApprovalDate());
+            this.alertLevel = agreement.getAlertLevel();
+            this.hash = Objects.hash(id, systemName, responsiblePerson, currentProgress,
+                    previousExpiry, plannedApproval, alertLevel);
+        }
+
+        private static long millis(Date date) {
+            return date != null ? date.getTime() : Long.MIN_VALUE;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RowKey)) return false;
+            RowKey other = (RowKey) o;
+            return hash == other.hash
+                    && previousExpiry == other.previousExpiry
+                    && plannedApproval == other.plannedApproval
+                    && Objects.equals(id, other.id)
+                    && Objects.equals(systemName, other.systemName)
+                    && Objects.equals(responsiblePerson, other.responsiblePerson)
+                    && Objects.equals(currentProgress, other.currentProgress)
+                    && Objects.equals(alertLevel, other.alertLevel);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private final Map<RowKey, ReportTemplate.Segment> rows;
+    private long hits;
+    private long misses;
+
+    public RowFragmentCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("缓存容量必须大于0: " + maxSize);
+        }
+        this.rows = new LinkedHashMap<RowKey, ReportTemplate.Segment>(Math.min(maxSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RowKey, ReportTemplate.Segment> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    synchronized ReportTemplate.Segment get(RowKey key) {
+        ReportTemplate.Segment row = rows.get(key);
+        if (row != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return row;
+    }
+
+    synchronized void put(RowKey key, ReportTemplate.Segment row) {
+        rows.put(key, row);
+    }
+
+    public synchronized int size() {
+        return rows.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
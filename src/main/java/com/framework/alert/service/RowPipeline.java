@@ -0,0 +1,195 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.FrameworkAgreement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * 流水线读取：一个线程解析sheet的XML，把行复制到批次中；解码线程池把各批次解码为FrameworkAgreement；
+ * 调用线程按原有行序取出结果交给consumer。解码（单元格转换、日期解析）不再排在XML解析后面串行执行。
+ *
+ * 批次对象循环使用，总数固定，生产者拿不到空闲批次时等待，所以排队的数据量有上限（背压）。
+ * 结果按提交顺序取出，与单线程读取的顺序一致。
+ */
+final class RowPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(RowPipeline.class);
+
+    /**
+     * 生产者：解析sheet，对每个数据行调用sink，decoder为解码该行使用的RowDecoder
+     */
+    interface Source {
+        void read(Sink sink) throws Exception;
+    }
+
+    interface Sink {
+        void accept(SheetRow row, RowDecoder decoder) throws InterruptedException;
+    }
+
+    /**
+     * 解码一行，失败时返回null（与SheetAgreementSource.parseRow一致）
+     */
+    interface Decoder {
+        FrameworkAgreement decode(RowDecoder decoder, SheetRow row);
+    }
+
+    private static final class Batch {
+        final SheetRow[] rows;
+        final RowDecoder[] decoders;
+        final FrameworkAgreement[] results;
+        int size;
+        boolean done;
+        Throwable failure;
+
+        Batch(int capacity) {
+            rows = new SheetRow[capacity];
+            decoders = new RowDecoder[capacity];
+            results = new FrameworkAgreement[capacity];
+        }
+
+        synchronized void complete(Throwable failure) {
+            this.failure = failure;
+            this.done = true;
+            notifyAll();
+        }
+
+        synchronized void await() throws InterruptedException {
+            while (!done) {
+                wait();
+            }
+        }
+
+        synchronized void reset() {
+            for (int i = 0; i < size; i++) {
+                decoders[i] = null;
+                results[i] = null;
+            }
+            size = 0;
+            done = false;
+            failure = null;
+        }
+    }
+
+    private static final Batch END = new Batch(0);
+
+    private final int threads;
+    private final int batchSize;
+    private final int batchCount;
+    private final RunMetrics metrics;
+
+    /**
+     * @param threads    解码线程数
+     * @param batchSize  每批的行数
+     * @param batchCount 同时存在的批次数，决定排队数据量的上限
+     */
+    RowPipeline(int threads, int batchSize, int batchCount, RunMetrics metrics) {
+        this.threads = Math.max(1, threads);
+        this.batchSize = Math.max(1, batchSize);
+        this.batchCount = Math.max(this.threads + 1, batchCount);
+        this.metrics = metrics;
+    }
+
+    /**
+     * 运行流水线直到source读完；任一环节失败时停止其他环节并抛出异常
+     */
+    void run(Source source, Decoder decoder, Consumer<FrameworkAgreement> consumer) throws Exception {
+        BlockingQueue<Batch> free = new ArrayBlockingQueue<>(batchCount);
+        for (int i = 0; i < batchCount; i++) {
+            free.add(new Batch(batchSize));
+        }
+        // 提交顺序，END表示读取结束；容量比批次数多一个，放END时不会等待
+        BlockingQueue<Batch> ordered = new ArrayBlockingQueue<>(batchCount + 1);
+        Throwable[] producerFailure = new Throwable[1];
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Thread producer = new Thread(() -> {
+            Batch[] current = {null};
+            try {
+                source.read((row, rowDecoder) -> {
+                    Batch batch = current[0];
+                    if (batch == null) {
+                        batch = free.take();
+                        current[0] = batch;
+                    }
+                    batch.rows[batch.size] = row.copyInto(batch.rows[batch.size]);
+                    batch.decoders[batch.size] = rowDecoder;
+                    if (++batch.size == batchSize) {
+                        submit(batch, executor, decoder, ordered);
+                        current[0] = null;
+                    }
+                });
+                if (current[0] != null) {
+                    submit(current[0], executor, decoder, ordered);
+                }
+            } catch (Throwable e) {
+                producerFailure[0] = e;
+            } finally {
+                ordered.add(END);
+            }
+        }, "row-pipeline-reader");
+
+        RunMetrics.Recorder recorder = metrics.recorder();
+        RunMetrics.Stage outer = recorder.switchTo(null); // 等待结果的时间不计入任何阶段
+        producer.start();
+        try {
+            while (true) {
+                Batch batch = ordered.take();
+                if (batch == END) break;
+                batch.await();
+                if (batch.failure != null) {
+                    throw new IllegalStateException("解码失败", batch.failure);
+                }
+
+                recorder.switchTo(RunMetrics.Stage.PARSE);
+                for (int i = 0; i < batch.size; i++) {
+                    if (batch.results[i] != null) {
+                        consumer.accept(batch.results[i]);
+                    }
+                }
+                recorder.switchTo(null);
+                batch.reset();
+                free.add(batch);
+            }
+            producer.join();
+            if (producerFailure[0] != null) {
+                if (producerFailure[0] instanceof Exception) {
+                    throw (Exception) producerFailure[0];
+                }
+                throw new IllegalStateException("读取失败", producerFailure[0]);
+            }
+        } finally {
+            recorder.switchTo(outer);
+            if (producer.isAlive()) {
+                // 消费端出错时生产者可能在等待空闲批次
+                producer.interrupt();
+                producer.join();
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    private void submit(Batch batch, ExecutorService executor, Decoder decoder, BlockingQueue<Batch> ordered)
+            throws InterruptedException {
+        ordered.put(batch);
+        executor.execute(() -> {
+            RunMetrics.Recorder recorder = metrics.recorder();
+            RunMetrics.Stage outer = recorder.switchTo(RunMetrics.Stage.PARSE);
+            try {
+                for (int i = 0; i < batch.size; i++) {
+                    batch.results[i] = decoder.decode(batch.decoders[i], batch.rows[i]);
+                }
+                batch.complete(null);
+            } catch (Throwable e) {
+                logger.error("解码批次失败", e);
+                batch.complete(e);
+            } finally {
+                recorder.switchTo(outer);
+            }
+        });
+    }
+}
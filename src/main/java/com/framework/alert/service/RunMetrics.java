@@ -0,0 +1,464 @@
+package com.framework.alert.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 一次运行的指标：各阶段的耗时和分配的内存，读取的行数、跳过的行数、日期解析失败次数、各阶段提醒人数、邮件发送结果。
+ * 运行结束后写成Prometheus文本格式（供node exporter的textfile collector读取）和JSON。
+ *
+ * 耗时按线程记录：每个线程同一时刻只处于一个阶段，switchTo切换阶段时把上一段时间和分配量记到原来的阶段上，
+ * 所以嵌套的阶段（如读取中的逐行解析）不会重复计算。多个线程的时间相加，可能大于整体耗时。
+ * NONE不记录任何内容，未设置指标的组件使用它。
+ */
+public class RunMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(RunMetrics.class);
+    private static final Set<PosixFilePermission> PUBLISHED_PERMISSIONS = PosixFilePermissions.fromString("rw-r--r--");
+
+    public static final RunMetrics NONE = new RunMetrics(false);
+
+    public enum Stage {
+        OPEN("open"),       // 打开工作簿、加载共享字符串和样式，或校验快照
+        READ("read"),       // 解析sheet的XML（不含逐行解码），或加载快照
+        PARSE("parse"),     // 逐行解码为记录
+        ANALYZE("analyze"), // 过滤、计算紧急程度和提醒阶段
+        SORT("sort"),       // 表格排序并生成表格数据
+        RENDER("render"),   // 生成HTML
+        WRITE("write"),     // 写出文件
+        SEND("send");       // 通过SMTP发送邮件
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    public enum SkipReason {
+        EMPTY("empty"),             // 空行（文件中不存在的行）
+        PARSE_ERROR("parse_error"); // 解码失败
+
+        private final String label;
+
+        SkipReason(String label) {
+            this.label = label;
+        }
+    }
+
+    public enum DateFailure {
+        INVALID_FORMAT("invalid_format"),         // 无法识别的文本格式
+        INVALID_DATE("invalid_date"),             // 格式正确但日期不存在，如2月30日
+        NOT_DATE_FORMATTED("not_date_formatted"), // 数字单元格不是日期格式
+        UNSUPPORTED_TYPE("unsupported_type");     // 布尔、错误值或非数字的公式结果
+
+        private final String label;
+
+        DateFailure(String label) {
+            this.label = label;
+        }
+    }
+
+    public enum MailOutcome {
+        SENT("sent"),       // 发送成功
+        RETRIED("retried"), // 临时失败后重试（每次重试计一次）
+        FAILED("failed");   // 永久失败或重试次数用完
+
+        private final String label;
+
+        MailOutcome(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * 当前线程的阶段计时，只能在所属线程中使用
+     */
+    public static class Recorder {
+        private final RunMetrics metrics;
+        private Stage current;
+        private long lastNanos;
+        private long lastBytes;
+
+        Recorder(RunMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        /**
+         * 进入stage（null表示不计时），返回之前所处的阶段，结束时用它切换回去
+         */
+        public Stage switchTo(Stage stage) {
+            Stage previous = current;
+            if (metrics == null || stage == previous) {
+                return previous;
+            }
+            long nanos = System.nanoTime();
+            long bytes = metrics.allocatedBytes();
+            if (previous != null) {
+                metrics.stageNanos.addAndGet(previous.ordinal(), nanos - lastNanos);
+                if (bytes >= 0) {
+                    metrics.stageBytes.addAndGet(previous.ordinal(), bytes - lastBytes);
+                }
+            }
+            current = stage;
+            lastNanos = nanos;
+            lastBytes = bytes;
+            return previous;
+        }
+    }
+
+    private static final Recorder DISABLED_RECORDER = new Recorder(null);
+
+    private final boolean enabled;
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final ThreadLocal<Recorder> recorders;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLongArray stageNanos = new AtomicLongArray(Stage.values().length);
+    private final AtomicLongArray stageBytes = new AtomicLongArray(Stage.values().length);
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLongArray rowsSkipped = new AtomicLongArray(SkipReason.values().length);
+    private final AtomicLongArray dateFailures = new AtomicLongArray(DateFailure.values().length);
+    private final AtomicLongArray mailDeliveries = new AtomicLongArray(MailOutcome.values().length);
+    private final Map<String, AtomicLong> alerts = new ConcurrentSkipListMap<>();
+    private final Map<String, Boolean> flags = new ConcurrentHashMap<>();
+
+    public RunMetrics() {
+        this(true);
+    }
+
+    private RunMetrics(boolean enabled) {
+        this.enabled = enabled;
+        this.threadBean = enabled ? allocationBean() : null;
+        this.recorders = enabled ? ThreadLocal.withInitial(() -> new Recorder(this)) : null;
+    }
+
+    /**
+     * 支持按线程统计分配量时返回对应的MXBean，否则只记录耗时
+     */
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported()) {
+                sunBean.setThreadAllocatedMemoryEnabled(true);
+                return sunBean;
+            }
+        }
+        logger.debug("当前JVM不支持按线程统计分配的内存，只记录耗时");
+        return null;
+    }
+
+    private long allocatedBytes() {
+        return threadBean != null ? threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 当前线程的计时器
+     */
+    public Recorder recorder() {
+        return enabled ? recorders.get() : DISABLED_RECORDER;
+    }
+
+    public void addRowsRead(long rows) {
+        if (enabled) rowsRead.addAndGet(rows);
+    }
+
+    public void rowSkipped(SkipReason reason, long rows) {
+        if (enabled) rowsSkipped.addAndGet(reason.ordinal(), rows);
+    }
+
+    public void dateFailure(DateFailure cause) {
+        if (enabled) dateFailures.incrementAndGet(cause.ordinal());
+    }
+
+    public void mailDelivery(MailOutcome outcome) {
+        if (enabled) mailDeliveries.incrementAndGet(outcome.ordinal());
+    }
+
+    /**
+     * 某个提醒阶段的提醒人数，生成多份报告时累加
+     */
+    public void addAlerts(String stageKey, long count) {
+        if (enabled) alerts.computeIfAbsent(stageKey, k -> new AtomicLong()).addAndGet(count);
+    }
+
+    /**
+     * 记录一个是/否的状态，如是否使用了快照
+     */
+    public void flag(String name, boolean value) {
+        if (enabled) flags.put(name, value);
+    }
+
+    public long getStageNanos(Stage stage) {
+        return stageNanos.get(stage.ordinal());
+    }
+
+    public long getStageBytes(Stage stage) {
+        return threadBean != null ? stageBytes.get(stage.ordinal()) : -1;
+    }
+
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    public long getRowsSkipped(SkipReason reason) {
+        return rowsSkipped.get(reason.ordinal());
+    }
+
+    public long getDateFailures(DateFailure cause) {
+        return dateFailures.get(cause.ordinal());
+    }
+
+    public long getMailDeliveries(MailOutcome outcome) {
+        return mailDeliveries.get(outcome.ordinal());
+    }
+
+    /**
+     * 包装输出流，写出的时间记到stage上，其余时间仍记在调用方所处的阶段
+     */
+    public OutputStream timed(Stage stage, OutputStream out) {
+        if (!enabled) {
+            return out;
+        }
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                Recorder recorder = recorder();
+                Stage previous = recorder.switchTo(stage);
+                try {
+                    out.write(b);
+                } finally {
+                    recorder.switchTo(previous);
+                }
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                Recorder recorder = recorder();
+                Stage previous = recorder.switchTo(stage);
+                try {
+                    out.write(b, off, len);
+                } finally {
+                    recorder.switchTo(previous);
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                Recorder recorder = recorder();
+                Stage previous = recorder.switchTo(stage);
+                try {
+                    out.flush();
+                } finally {
+                    recorder.switchTo(previous);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                Recorder recorder = recorder();
+                Stage previous = recorder.switchTo(stage);
+                try {
+                    out.close();
+                } finally {
+                    recorder.switchTo(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * 写出 &lt;prefix&gt;.prom 和 &lt;prefix&gt;.json，先写临时文件再替换，避免采集到写了一半的文件。写入失败只记录日志
+     */
+    public void write(Path directory, String prefix) {
+        if (!enabled) {
+            return;
+        }
+        double runSeconds = (System.nanoTime() - startNanos) / 1e9;
+        long timestamp = System.currentTimeMillis() / 1000;
+        try {
+            replace(directory.resolve(prefix + ".prom"), prometheus(runSeconds, timestamp));
+            replace(directory.resolve(prefix + ".json"), json(runSeconds, timestamp));
+            logger.info("运行指标已写入: {}", directory.resolve(prefix + ".prom").toAbsolutePath());
+        } catch (IOException e) {
+            logger.warn("写入运行指标失败: {}", e.getMessage());
+        }
+    }
+
+    private static void replace(Path path, String content) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            // 临时文件创建时是0600，替换后保留该权限，采集进程（node-exporter）以其他用户运行时读不到
+            if (Files.getFileAttributeView(temp, PosixFileAttributeView.class) != null) {
+                Files.setPosixFilePermissions(temp, PUBLISHED_PERMISSIONS);
+            }
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(content);
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    String prometheus(double runSeconds, long timestamp) {
+        StringBuilder out = new StringBuilder(2048);
+        header(out, "framework_alert_run_duration_seconds", "Wall time of the whole run.");
+        out.append("framework_alert_run_duration_seconds ").append(number(runSeconds)).append('\n');
+        header(out, "framework_alert_last_run_timestamp_seconds", "Unix time the run finished.");
+        out.append("framework_alert_last_run_timestamp_seconds ").append(timestamp).append('\n');
+
+        header(out, "framework_alert_stage_duration_seconds", "Wall time spent in each stage, summed over threads.");
+        for (Stage stage : Stage.values()) {
+            out.append("framework_alert_stage_duration_seconds{stage=\"").append(stage.label).append("\"} ")
+                    .append(number(getStageNanos(stage) / 1e9)).append('\n');
+        }
+        if (threadBean != null) {
+            header(out, "framework_alert_stage_allocated_bytes", "Bytes allocated in each stage, summed over threads.");
+            for (Stage stage : Stage.values()) {
+                out.append("framework_alert_stage_allocated_bytes{stage=\"").append(stage.label).append("\"} ")
+                        .append(getStageBytes(stage)).append('\n');
+            }
+        }
+
+        header(out, "framework_alert_rows_read", "Agreement rows read from the workbook.");
+        out.append("framework_alert_rows_read ").append(getRowsRead()).append('\n');
+        header(out, "framework_alert_rows_skipped", "Data rows skipped, by reason.");
+        for (SkipReason reason : SkipReason.values()) {
+            out.append("framework_alert_rows_skipped{reason=\"").append(reason.label).append("\"} ")
+                    .append(getRowsSkipped(reason)).append('\n');
+        }
+        header(out, "framework_alert_date_parse_failures", "Date cells that could not be decoded, by cause.");
+        for (DateFailure cause : DateFailure.values()) {
+            out.append("framework_alert_date_parse_failures{cause=\"").append(cause.label).append("\"} ")
+                    .append(getDateFailures(cause)).append('\n');
+        }
+        header(out, "framework_alert_mail_deliveries", "Mail delivery attempts, by outcome.");
+        for (MailOutcome outcome : MailOutcome.values()) {
+            out.append("framework_alert_mail_deliveries{outcome=\"").append(outcome.label).append("\"} ")
+                    .append(getMailDeliveries(outcome)).append('\n');
+        }
+        header(out, "framework_alert_alerts", "People alerted in each alert stage.");
+        for (Map.Entry<String, AtomicLong> entry : alerts.entrySet()) {
+            out.append("framework_alert_alerts{stage=\"").append(escapeLabel(entry.getKey())).append("\"} ")
+                    .append(entry.getValue().get()).append('\n');
+        }
+        for (Map.Entry<String, Boolean> entry : new ConcurrentSkipListMap<>(flags).entrySet()) {
+            String name = "framework_alert_" + entry.getKey();
+            header(out, name, "1 if " + entry.getKey().replace('_', ' ') + ", otherwise 0.");
+            out.append(name).append(' ').append(entry.getValue() ? 1 : 0).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    String json(double runSeconds, long timestamp) {
+        StringBuilder out = new StringBuilder(2048);
+        out.append("{\n");
+        out.append("  \"runDurationSeconds\": ").append(number(runSeconds)).append(",\n");
+        out.append("  \"timestamp\": ").append(timestamp).append(",\n");
+        out.append("  \"stages\": {");
+        Stage[] stages = Stage.values();
+        for (int i = 0; i < stages.length; i++) {
+            out.append(i == 0 ? "\n" : ",\n");
+            out.append("    \"").append(stages[i].label).append("\": {\"seconds\": ")
+                    .append(number(getStageNanos(stages[i]) / 1e9))
+                    .append(", \"allocatedBytes\": ").append(getStageBytes(stages[i])).append('}');
+        }
+        out.append("\n  },\n");
+        out.append("  \"rowsRead\": ").append(getRowsRead()).append(",\n");
+        out.append("  \"rowsSkipped\": {");
+        SkipReason[] reasons = SkipReason.values();
+        for (int i = 0; i < reasons.length; i++) {
+            out.append(i == 0 ? "" : ", ").append('"').append(reasons[i].label).append("\": ")
+                    .append(getRowsSkipped(reasons[i]));
+        }
+        out.append("},\n");
+        out.append("  \"dateParseFailures\": {");
+        DateFailure[] causes = DateFailure.values();
+        for (int i = 0; i < causes.length; i++) {
+            out.append(i == 0 ? "" : ", ").append('"').append(causes[i].label).append("\": ")
+                    .append(getDateFailures(causes[i]));
+        }
+        out.append("},\n");
+        out.append("  \"mailDeliveries\": {");
+        MailOutcome[] outcomes = MailOutcome.values();
+        for (int i = 0; i < outcomes.length; i++) {
+            out.append(i == 0 ? "" : ", ").append('"').append(outcomes[i].label).append("\": ")
+                    .append(getMailDeliveries(outcomes[i]));
+        }
+        out.append("},\n");
+        out.append("  \"alerts\": {");
+        boolean first = true;
+        for (Map.Entry<String, AtomicLong> entry : alerts.entrySet()) {
+            out.append(first ? "" : ", ").append('"').append(escapeJson(entry.getKey())).append("\": ")
+                    .append(entry.getValue().get());
+            first = false;
+        }
+        out.append('}');
+        for (Map.Entry<String, Boolean> entry : new ConcurrentSkipListMap<>(flags).entrySet()) {
+            out.append(",\n  \"").append(escapeJson(entry.getKey())).append("\": ").append(entry.getValue());
+        }
+        out.append("\n}\n");
+        return out.toString();
+    }
+
+    private static String escapeJson(String value) {
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+}
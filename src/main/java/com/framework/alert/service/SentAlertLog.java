@@ -0,0 +1,374 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.StringDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 已发送提醒日志：记录每个(记录, 阶段, 经办人)最近一次提醒的日期和当时的紧急程度，
+ * 多次运行时只提醒新进入阶段或紧急程度升高的事项，同样的提醒不重复发送。
+ *
+ * 文件只追加：字符串（记录标识、阶段、经办人）第一次出现时写一条定义记录，之后的提醒和清除记录只写编号（varint），
+ * 一条提醒记录通常不超过10个字节。打开时顺序读一遍建立内存中的哈希索引，查询只访问索引。
+ * 本次运行没有出现的提醒写清除记录（之后再进入阶段时重新提醒），所以索引只包含当前仍在提醒的事项；
+ * 文件中的记录数超过索引的两倍时重写为只含当前状态的新文件。
+ *
+ * 文件布局：魔数、版本，然后是记录序列，每条记录以一个字节的类型开头。写到一半的记录（进程中断）在下次打开时截掉。
+ * 打开期间持有文件锁，同一时刻只有一个进程使用；实例不是线程安全的。
+ */
+public class SentAlertLog implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(SentAlertLog.class);
+
+    public static final String SUFFIX = ".sent";
+
+    private static final int MAGIC = 0x46414C31; // "FAL1"
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 8;
+
+    private static final byte STRING = 1;  // 字符串定义：长度(varint)、UTF-8字节，编号按出现顺序
+    private static final byte SENT = 2;    // 提醒：记录标识、阶段、经办人的编号，提醒日期(epoch day)，紧急程度
+    private static final byte CLEARED = 3; // 清除：记录标识、阶段、经办人的编号
+
+    // 记录数少于这个值时不压缩
+    private static final int MIN_COMPACT_RECORDS = 1024;
+
+    private final Path path;
+    private FileChannel channel;
+
+    private StringDictionary strings = new StringDictionary();
+    private Map<Long, Long> sent = new HashMap<>();       // 键见key()，值为 提醒日期 << 8 | 紧急程度
+    private final Set<Long> seen = new HashSet<>();       // 本次运行出现过的键
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private int records;                                  // 文件中的提醒和清除记录数
+
+    private SentAlertLog(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * 工作簿对应的日志文件（工作簿文件名加.sent后缀）
+     */
+    public static Path logPath(Path workbook) {
+        return workbook.resolveSibling(workbook.getFileName() + SUFFIX);
+    }
+
+    /**
+     * 打开（不存在时创建）日志并加载索引，其他进程正在使用时抛出IOException
+     */
+    public static SentAlertLog open(Path path) throws IOException {
+        SentAlertLog log = new SentAlertLog(path);
+        try {
+            log.openChannel();
+            log.load();
+            return log;
+        } catch (IOException | RuntimeException e) {
+            log.closeChannel();
+            throw e;
+        }
+    }
+
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock lock = channel.tryLock(); // 关闭channel时释放
+        if (lock == null) {
+            throw new IOException("已发送提醒日志正被其他进程使用: " + path);
+        }
+    }
+
+    private void load() throws IOException {
+        long size = channel.size();
+        if (size < HEADER_LENGTH) {
+            // 新文件，或者写文件头时中断
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+            channel.position(HEADER_LENGTH);
+            return;
+        }
+
+        ByteBuffer in = ByteBuffer.allocate((int) size);
+        while (in.hasRemaining() && channel.read(in, in.position()) >= 0) {
+            // 读满为止
+        }
+        in.flip();
+        if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+            throw new IOException("不是已发送提醒日志或版本不支持: " + path);
+        }
+
+        int valid = in.position();
+        try {
+            while (in.hasRemaining()) {
+                byte type = in.get();
+                if (type == STRING) {
+                    byte[] bytes = new byte[readVarint(in)];
+                    in.get(bytes);
+                    strings.idOf(new String(bytes, StandardCharsets.UTF_8));
+                } else if (type == SENT) {
+                    long key = readKey(in);
+                    int day = readVarint(in);
+                    int level = in.get();
+                    sent.put(key, pack(day, level));
+                    records++;
+                } else if (type == CLEARED) {
+                    sent.remove(readKey(in));
+                    records++;
+                } else {
+                    throw new IllegalStateException("未知的记录类型: " + type);
+                }
+                valid = in.position();
+            }
+        } catch (RuntimeException e) {
+            // 记录不完整（写入时中断）或损坏，从最后一条完整的记录之后截断
+            logger.warn("已发送提醒日志在第 {} 字节后不完整，截掉 {} 字节: {}", valid, size - valid, path);
+            channel.truncate(valid);
+        }
+        channel.position(valid);
+        logger.debug("已发送提醒日志: {} 条记录，{} 个提醒", records, sent.size());
+    }
+
+    private long readKey(ByteBuffer in) {
+        int agreement = readVarint(in);
+        int stage = readVarint(in);
+        int person = readVarint(in);
+        if (agreement >= strings.size() || stage >= strings.size() || person >= strings.size()) {
+            throw new IllegalStateException("字符串编号超出范围");
+        }
+        return key(agreement, stage, person);
+    }
+
+    /**
+     * 本次运行的一个提醒：第一次出现或紧急程度升高（level变小）时记录并返回true，已经提醒过时返回false。
+     * 紧急程度降低时更新记录的程度，之后再升高时仍会提醒
+     */
+    public boolean offer(String agreement, String stage, String person, int level, int day) {
+        long key = key(intern(agreement), intern(stage), intern(person));
+        seen.add(key);
+        Long previous = sent.get(key);
+        if (previous != null && level >= levelOf(previous)) {
+            if (level > levelOf(previous)) {
+                append(key, dayOf(previous), level);
+            }
+            return false;
+        }
+        append(key, day, level);
+        return true;
+    }
+
+    /**
+     * 结束本次运行：本次没有出现的提醒写清除记录，把本次的记录写入文件，需要时压缩
+     */
+    public void finishRun() throws IOException {
+        Iterator<Long> keys = sent.keySet().iterator();
+        while (keys.hasNext()) {
+            long key = keys.next();
+            if (!seen.contains(key)) {
+                keys.remove();
+                pending.write(CLEARED);
+                writeKey(key);
+                records++;
+            }
+        }
+        seen.clear();
+
+        if (records >= MIN_COMPACT_RECORDS && records > 2 * sent.size()) {
+            try {
+                compact(); // 新文件由内存中的状态生成，已包含本次的记录
+                pending.reset();
+                return;
+            } catch (IOException e) {
+                logger.warn("压缩已发送提醒日志失败，继续追加: {}", e.getMessage());
+            }
+        }
+        if (pending.size() > 0) {
+            ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            pending.reset();
+        }
+    }
+
+    /**
+     * 当前仍在提醒的事项数
+     */
+    public int size() {
+        return sent.size();
+    }
+
+    /**
+     * 重写为只含当前提醒的文件（只保留用到的字符串），写临时文件后替换
+     */
+    private void compact() throws IOException {
+        StringDictionary compactStrings = new StringDictionary();
+        Map<Long, Long> compactSent = new HashMap<>(sent.size() * 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_LENGTH + sent.size() * 12);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).putInt(VERSION);
+        out.write(header.array(), 0, HEADER_LENGTH);
+
+        for (Map.Entry<Long, Long> entry : sent.entrySet()) {
+            long key = entry.getKey();
+            int agreement = remap(compactStrings, agreementOf(key), out);
+            int stage = remap(compactStrings, stageOf(key), out);
+            int person = remap(compactStrings, personOf(key), out);
+            long compactKey = key(agreement, stage, person);
+            compactSent.put(compactKey, entry.getValue());
+            out.write(SENT);
+            writeVarint(out, agreement);
+            writeVarint(out, stage);
+            writeVarint(out, person);
+            writeVarint(out, dayOf(entry.getValue()));
+            out.write(levelOf(entry.getValue()));
+        }
+
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, out.toByteArray());
+            try (FileChannel written = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                written.force(true);
+            }
+            closeChannel(); // 替换前释放锁，替换后锁定新文件
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+            if (channel == null) {
+                openChannel();
+                channel.position(channel.size());
+            }
+        }
+        logger.info("已压缩已发送提醒日志: {} 条记录 -> {} 条", records, compactSent.size());
+        strings = compactStrings;
+        sent = compactSent;
+        records = compactSent.size();
+    }
+
+    private int remap(StringDictionary target, int id, ByteArrayOutputStream out) {
+        String value = strings.valueOf(id);
+        int existing = target.find(value);
+        if (existing != StringDictionary.NULL_ID) {
+            return existing;
+        }
+        writeString(out, value);
+        return target.idOf(value);
+    }
+
+    private int intern(String value) {
+        String text = value == null ? "" : value;
+        int id = strings.find(text);
+        if (id == StringDictionary.NULL_ID) {
+            writeString(pending, text);
+            id = strings.idOf(text);
+        }
+        return id;
+    }
+
+    private void append(long key, int day, int level) {
+        sent.put(key, pack(day, level));
+        pending.write(SENT);
+        writeKey(key);
+        writeVarint(pending, day);
+        pending.write(level);
+        records++;
+    }
+
+    private void writeKey(long key) {
+        writeVarint(pending, agreementOf(key));
+        writeVarint(pending, stageOf(key));
+        writeVarint(pending, personOf(key));
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.write(STRING);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    // 键：记录标识编号占高32位，经办人编号占中间24位，阶段编号占低8位
+    private static long key(int agreement, int stage, int person) {
+        if (stage > 0xFF || person > 0xFFFFFF) {
+            throw new IllegalStateException("阶段或经办人数量超出日志支持的范围");
+        }
+        return (long) agreement << 32 | (long) person << 8 | stage;
+    }
+
+    private static int agreementOf(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int personOf(long key) {
+        return (int) (key >>> 8) & 0xFFFFFF;
+    }
+
+    private static int stageOf(long key) {
+        return (int) key & 0xFF;
+    }
+
+    private static long pack(int day, int level) {
+        return (long) day << 8 | level;
+    }
+
+    private static int dayOf(long value) {
+        return (int) (value >> 8);
+    }
+
+    private static int levelOf(long value) {
+        return (int) value & 0xFF;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("varint过长");
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close(); // 同时释放文件锁
+            channel = null;
+        }
+    }
+
+    /**
+     * 没有调用finishRun的本次记录不写入文件
+     */
+    @Override
+    public void close() throws IOException {
+        closeChannel();
+    }
+}
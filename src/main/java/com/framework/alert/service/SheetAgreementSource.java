@@ -0,0 +1,169 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.CompactAgreementStore;
+import com.framework.alert.model.FrameworkAgreement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 按行读取清单的公共部分：按表头定位各列、逐行解码、统计读取和跳过的行数，以及流水线解码（见RowPipeline）。
+ * 子类只负责把文件解析为一行行的SheetRow（readSheet），各种格式使用相同的列计划和解码器。
+ */
+public abstract class SheetAgreementSource implements AgreementSource {
+    private static final Logger logger = LoggerFactory.getLogger(SheetAgreementSource.class);
+
+    protected static final int HEADER_ROW = 1;      // 表头在第2行
+    protected static final int FIRST_DATA_ROW = 2;  // 数据从第3行开始
+    private static final int PIPELINE_BATCH_SIZE = 256;
+
+    private final DateStringParser dateParser = new DateStringParser();
+
+    // 需要读取的列和每列的解码器，读取时按表头定位
+    private ColumnPlan columnPlan = ColumnPlan.standard(dateParser);
+
+    private int decodeThreads = 1;
+    private RunMetrics metrics = RunMetrics.NONE;
+
+    /**
+     * 解码行的线程数。大于1时文件解析和行解码分别在不同线程中进行（见RowPipeline），结果顺序不变；
+     * 默认为1，在读取线程中逐行解码
+     */
+    public void setDecodeThreads(int decodeThreads) {
+        this.decodeThreads = Math.max(1, decodeThreads);
+    }
+
+    /**
+     * 记录打开、读取、解析各阶段的耗时，以及读取和跳过的行数、日期解析失败次数
+     */
+    public void setMetrics(RunMetrics metrics) {
+        this.metrics = metrics;
+        this.columnPlan = ColumnPlan.standard(dateParser, metrics);
+    }
+
+    @Override
+    public RunMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 解析文件，每行回调一次（包括表头之前的行），handler收到的SheetRow会被复用
+     */
+    protected abstract void readSheet(String filePath, StreamingSheetReader.RowHandler handler) throws Exception;
+
+    /**
+     * 是否为表头行，默认为第2行
+     */
+    protected boolean isHeaderRow(SheetRow row) {
+        return row.getRowNum() == HEADER_ROW;
+    }
+
+    /**
+     * 未遇到表头时数据开始的行；遇到表头后从表头的下一行开始
+     */
+    protected int firstDataRow() {
+        return FIRST_DATA_ROW;
+    }
+
+    @Override
+    public List<FrameworkAgreement> readAgreements(String filePath) throws Exception {
+        List<FrameworkAgreement> agreements = new ArrayList<>();
+        streamAgreements(filePath, agreements::add);
+
+        metrics.addRowsRead(agreements.size());
+        logger.info("成功读取 {} 条记录", agreements.size());
+        return agreements;
+    }
+
+    @Override
+    public CompactAgreementStore readCompact(String filePath) throws Exception {
+        CompactAgreementStore store = new CompactAgreementStore();
+        streamAgreements(filePath, store::add);
+
+        metrics.addRowsRead(store.size());
+        logger.info("成功读取 {} 条记录", store.size());
+        return store;
+    }
+
+    /**
+     * 按文件中的顺序把每条成功解码的记录交给consumer
+     */
+    protected void streamAgreements(String filePath, Consumer<FrameworkAgreement> consumer) throws Exception {
+        if (decodeThreads > 1) {
+            new RowPipeline(decodeThreads, PIPELINE_BATCH_SIZE, decodeThreads * 4, metrics)
+                    .run(sink -> readRows(filePath, sink), this::parseRow, consumer);
+            return;
+        }
+
+        RunMetrics.Recorder recorder = metrics.recorder();
+        readRows(filePath, (row, rowDecoder) -> {
+            RunMetrics.Stage previous = recorder.switchTo(RunMetrics.Stage.PARSE);
+            try {
+                FrameworkAgreement agreement = parseRow(rowDecoder, row);
+                if (agreement != null) {
+                    consumer.accept(agreement);
+                }
+            } finally {
+                recorder.switchTo(previous);
+            }
+        });
+    }
+
+    /**
+     * 解析文件，按表头定位各列，把每个数据行和对应的解码器交给sink
+     */
+    private void readRows(String filePath, RowPipeline.Sink sink) throws Exception {
+        RowDecoder[] rowDecoder = {columnPlan.defaults()};
+        int[] dataStart = {firstDataRow()};
+        int[] lastRowNum = {-1};
+
+        readSheet(filePath, row -> {
+            if (row.getRowNum() < dataStart[0] && isHeaderRow(row)) {
+                rowDecoder[0] = resolveColumns(row);
+                dataStart[0] = row.getRowNum() + 1;
+                return;
+            }
+            if (row.getRowNum() < dataStart[0]) return;
+
+            // 空行不会出现在文件中，按行号的间隔计数
+            metrics.rowSkipped(RunMetrics.SkipReason.EMPTY, row.getRowNum() - Math.max(lastRowNum[0], dataStart[0] - 1) - 1);
+            lastRowNum[0] = row.getRowNum();
+
+            sink.accept(row, rowDecoder[0]);
+        });
+    }
+
+    protected RowDecoder defaultColumns() {
+        return columnPlan.defaults();
+    }
+
+    /**
+     * 按表头定位各列，并让后续行只读取这些列
+     */
+    protected RowDecoder resolveColumns(SheetRow headerRow) {
+        RowDecoder rowDecoder = columnPlan.resolve(headerRow);
+        headerRow.project(rowDecoder.columns());
+        return rowDecoder;
+    }
+
+    protected FrameworkAgreement parseRow(RowDecoder rowDecoder, SheetRow row) {
+        try {
+            FrameworkAgreement agreement = rowDecoder.decode(row);
+
+            logger.debug("读取记录: 行号={}, ID={}, 系统={}, 科室={}, 经办={}, 进度={}",
+                    row.getRowNum() + 1, agreement.getId(), agreement.getSystemName(),
+                    agreement.getResponsibleDepartment(), agreement.getResponsiblePerson(),
+                    agreement.getCurrentProgress());
+
+            return agreement;
+
+        } catch (Exception e) {
+            logger.error("解析行数据失败，行号: {}", row.getRowNum() + 1, e);
+            metrics.rowSkipped(RunMetrics.SkipReason.PARSE_ERROR, 1);
+            return null;
+        }
+    }
+}
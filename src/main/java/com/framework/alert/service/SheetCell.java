@@ -0,0 +1,120 @@
+package com.framework.alert.service;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+import java.util.Date;
+
+/**
+ * 单元格值，字段含义与POI的Cell保持一致。流式读取直接填充，完整加载时由Cell转换，两种方式共用同一套解码器。
+ * 同一个实例会在行与行之间复用，调用方不要持有引用。
+ */
+public class SheetCell {
+    private CellType cellType = CellType.BLANK;
+    private CellType cachedFormulaResultType = CellType.BLANK; // 公式单元格的缓存结果类型
+    private String stringValue;
+    private double numericValue;
+    private boolean booleanValue;
+    private boolean dateFormatted; // 数字格式是否为日期格式
+    private final boolean date1904;
+
+    SheetCell(boolean date1904) {
+        this.date1904 = date1904;
+    }
+
+    void reset() {
+        cellType = CellType.BLANK;
+        cachedFormulaResultType = CellType.BLANK;
+        stringValue = null;
+        numericValue = 0;
+        booleanValue = false;
+        dateFormatted = false;
+    }
+
+    /**
+     * 从完整加载的Cell取值，公式单元格按缓存结果类型读取
+     */
+    void load(Cell cell, DateFormatCache dateFormats) {
+        reset();
+        CellType type = cell.getCellType();
+        CellType valueType = type == CellType.FORMULA ? cell.getCachedFormulaResultType() : type;
+        switch (valueType) {
+            case STRING:
+                stringValue = cell.getStringCellValue();
+                break;
+            case NUMERIC:
+                numericValue = cell.getNumericCellValue();
+                dateFormatted = DateUtil.isValidExcelDate(numericValue)
+                        && dateFormats.isDateFormat(cell.getCellStyle().getIndex());
+                break;
+            case BOOLEAN:
+                booleanValue = cell.getBooleanCellValue();
+                break;
+            default:
+                break;
+        }
+        set(type, type == CellType.FORMULA ? valueType : CellType.BLANK);
+    }
+
+    void copyFrom(SheetCell source) {
+        cellType = source.cellType;
+        cachedFormulaResultType = source.cachedFormulaResultType;
+        stringValue = source.stringValue;
+        numericValue = source.numericValue;
+        booleanValue = source.booleanValue;
+        dateFormatted = source.dateFormatted;
+    }
+
+    void set(CellType cellType, CellType cachedFormulaResultType) {
+        this.cellType = cellType;
+        this.cachedFormulaResultType = cachedFormulaResultType;
+    }
+
+    void setStringValue(String stringValue) {
+        this.stringValue = stringValue;
+    }
+
+    void setNumericValue(double numericValue) {
+        this.numericValue = numericValue;
+    }
+
+    void setBooleanValue(boolean booleanValue) {
+        this.booleanValue = booleanValue;
+    }
+
+    void setDateFormatted(boolean dateFormatted) {
+        this.dateFormatted = dateFormatted;
+    }
+
+    public CellType getCellType() {
+        return cellType;
+    }
+
+    public CellType getCachedFormulaResultType() {
+        return cachedFormulaResultType;
+    }
+
+    public String getStringValue() {
+        return stringValue;
+    }
+
+    public double getNumericValue() {
+        return numericValue;
+    }
+
+    public boolean getBooleanValue() {
+        return booleanValue;
+    }
+
+    public boolean isDateFormatted() {
+        return dateFormatted;
+    }
+
+    /**
+     * 按工作簿的日期系统把数字值转换为日期，与Cell.getDateCellValue()一致
+     */
+    public Date getDateCellValue() {
+        return DateUtil.getJavaDate(numericValue, date1904);
+    }
+}
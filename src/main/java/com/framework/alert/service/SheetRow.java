@@ -0,0 +1,125 @@
+package com.framework.alert.service;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+
+/**
+ * 一行数据，按列索引存放单元格。
+ * 读取器在行与行之间复用该对象，处理完一行后数据即失效。
+ */
+public class SheetRow {
+    private SheetCell[] cells = new SheetCell[32];
+    private boolean[] present = new boolean[32];
+    private int rowNum;
+    private int lastCellNum;
+    private boolean[] projection; // 需要保留的列，null表示全部
+    private final boolean date1904;
+
+    SheetRow(boolean date1904) {
+        this.date1904 = date1904;
+    }
+
+    void start(int rowNum) {
+        this.rowNum = rowNum;
+        for (int i = 0; i < lastCellNum; i++) {
+            present[i] = false;
+        }
+        lastCellNum = 0;
+    }
+
+    /**
+     * 只保留指定的列，之后的行中其余单元格不再解码
+     */
+    public void project(boolean[] columns) {
+        this.projection = columns;
+    }
+
+    /**
+     * 该列是否需要读取
+     */
+    boolean wants(int column) {
+        return projection == null || (column < projection.length && projection[column]);
+    }
+
+    /**
+     * 从完整加载的Row取出单元格，设置了列投影时只取需要的列
+     */
+    void load(Row source, DateFormatCache dateFormats) {
+        start(source.getRowNum());
+        if (projection == null) {
+            for (Cell cell : source) {
+                cellAt(cell.getColumnIndex()).load(cell, dateFormats);
+            }
+            return;
+        }
+        for (int column = 0; column < projection.length; column++) {
+            if (projection[column]) {
+                Cell cell = source.getCell(column);
+                if (cell != null) {
+                    cellAt(column).load(cell, dateFormats);
+                }
+            }
+        }
+    }
+
+    /**
+     * 把当前行复制到target（为null时新建）并返回，用于把行交给其他线程处理。只复制存在的单元格，不复制列投影
+     */
+    SheetRow copyInto(SheetRow target) {
+        if (target == null) {
+            target = new SheetRow(date1904);
+        }
+        target.start(rowNum);
+        for (int column = 0; column < lastCellNum; column++) {
+            if (present[column]) {
+                target.cellAt(column).copyFrom(cells[column]);
+            }
+        }
+        return target;
+    }
+
+    SheetCell cellAt(int column) {
+        if (column >= cells.length) {
+            int size = Math.max(column + 1, cells.length * 2);
+            SheetCell[] newCells = new SheetCell[size];
+            System.arraycopy(cells, 0, newCells, 0, cells.length);
+            boolean[] newPresent = new boolean[size];
+            System.arraycopy(present, 0, newPresent, 0, present.length);
+            cells = newCells;
+            present = newPresent;
+        }
+        SheetCell cell = cells[column];
+        if (cell == null) {
+            cell = new SheetCell(date1904);
+            cells[column] = cell;
+        }
+        cell.reset();
+        present[column] = true;
+        lastCellNum = Math.max(lastCellNum, column + 1);
+        return cell;
+    }
+
+    /**
+     * 0开始的行号，与Row.getRowNum()一致
+     */
+    public int getRowNum() {
+        return rowNum;
+    }
+
+    /**
+     * 最后一个单元格的列索引+1，与Row.getLastCellNum()一致
+     */
+    public int getLastCellNum() {
+        return lastCellNum;
+    }
+
+    /**
+     * 返回指定列的单元格，文件中不存在时返回null
+     */
+    public SheetCell getCell(int column) {
+        if (column < 0 || column >= lastCellNum || !present[column]) {
+            return null;
+        }
+        return cells[column];
+    }
+}
@@ -0,0 +1,456 @@
+package com.framework.alert.service;
+
+import com.framework.alert.config.MailSettings;
+import com.framework.alert.model.MailMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 到SMTP服务器的一个会话（RFC 5321），建立连接、EHLO、STARTTLS和认证之后可以连续发送多封邮件，
+ * 每封邮件只需要MAIL/RCPT/DATA几个往返；服务器支持PIPELINING时这几条命令一次写出，只等一次应答。
+ * 只在一个线程中使用，由SmtpConnectionPool管理复用。
+ */
+class SmtpConnection implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(SmtpConnection.class);
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final String HOST_NAME = localHostName();
+
+    private final MailSettings settings;
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+    private final Set<String> extensions = new HashSet<>();
+    private long lastUsed = System.nanoTime();
+    private int messagesSent;
+    private boolean broken;
+
+    private SmtpConnection(MailSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * 建立连接并完成握手（EHLO、需要时STARTTLS和认证）
+     */
+    static SmtpConnection open(MailSettings settings) throws IOException {
+        SmtpConnection connection = new SmtpConnection(settings);
+        try {
+            connection.connect();
+            return connection;
+        } catch (IOException | RuntimeException e) {
+            connection.closeSocket();
+            throw e;
+        }
+    }
+
+    private void connect() throws IOException {
+        Socket plain = new Socket();
+        plain.connect(new InetSocketAddress(settings.getHost(), settings.getPort()), settings.getTimeoutMillis());
+        plain.setSoTimeout(settings.getTimeoutMillis());
+        plain.setTcpNoDelay(true);
+        attach(settings.getSecurity() == MailSettings.Security.SSL ? startTls(plain) : plain);
+
+        expect(readReply(), 220);
+        hello();
+
+        if (settings.getSecurity() == MailSettings.Security.STARTTLS) {
+            if (!extensions.contains("STARTTLS")) {
+                throw new SmtpException(530, "服务器不支持STARTTLS: " + settings.getHost());
+            }
+            command("STARTTLS", 220);
+            attach(startTls(socket));
+            hello(); // TLS之后服务器的扩展列表可能不同，需要重新EHLO
+        }
+
+        if (!settings.getUsername().isEmpty()) {
+            authenticate();
+        }
+    }
+
+    private void attach(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream());
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+    }
+
+    private SSLSocket startTls(Socket plain) throws IOException {
+        SSLSocketFactory factory = (SSLSocketFactory) SSLSocketFactory.getDefault();
+        SSLSocket tls = (SSLSocket) factory.createSocket(plain, settings.getHost(), settings.getPort(), true);
+        SSLParameters parameters = tls.getSSLParameters();
+        parameters.setEndpointIdentificationAlgorithm("HTTPS"); // 校验证书中的主机名
+        tls.setSSLParameters(parameters);
+        tls.startHandshake();
+        return tls;
+    }
+
+    private void hello() throws IOException {
+        extensions.clear();
+        write("EHLO " + HOST_NAME);
+        flush();
+        Reply reply = readReply();
+        if (reply.code == 250) {
+            // 第一行是服务器的问候，之后每行一个扩展
+            for (int i = 1; i < reply.lines.size(); i++) {
+                String line = reply.lines.get(i).toUpperCase(Locale.ROOT);
+                int space = line.indexOf(' ');
+                extensions.add(space < 0 ? line : line.substring(0, space));
+                if (line.startsWith("AUTH ")) {
+                    for (String mechanism : line.substring(5).split(" ")) {
+                        extensions.add("AUTH=" + mechanism);
+                    }
+                }
+            }
+            return;
+        }
+        command("HELO " + HOST_NAME, 250); // 不支持EHLO的旧服务器
+    }
+
+    private void authenticate() throws IOException {
+        String username = settings.getUsername();
+        String password = settings.getPassword();
+        if (extensions.contains("AUTH=PLAIN") || !extensions.contains("AUTH=LOGIN")) {
+            command("AUTH PLAIN " + base64("\0" + username + "\0" + password), 235);
+        } else {
+            command("AUTH LOGIN", 334);
+            command(base64(username), 334);
+            command(base64(password), 235);
+        }
+    }
+
+    /**
+     * 发送一封邮件，返回接受的收件人数。部分收件人被拒绝时仍然发送给其余收件人；
+     * 全部被拒绝（异常中为最后一个拒绝的应答码）或服务器拒收时抛出SmtpException，会话仍可继续使用
+     */
+    int send(MailMessage message) throws IOException {
+        List<String> recipients = message.getRecipients();
+        if (recipients == null || recipients.isEmpty()) {
+            throw new SmtpException(554, "没有收件人: " + message.getLabel());
+        }
+        byte[] content = format(message);
+        boolean pipelining = extensions.contains("PIPELINING");
+        lastUsed = System.nanoTime();
+
+        try {
+            write("MAIL FROM:<" + checkAddress(settings.getFrom()) + ">");
+            int accepted = 0;
+            Reply rejection = null;
+            if (pipelining) {
+                for (String recipient : recipients) {
+                    write("RCPT TO:<" + checkAddress(recipient) + ">");
+                }
+                write("DATA");
+                flush();
+
+                // 按命令顺序读取应答
+                Reply mailReply = readReply();
+                List<Reply> recipientReplies = new ArrayList<>(recipients.size());
+                for (int i = 0; i < recipients.size(); i++) {
+                    recipientReplies.add(readReply());
+                }
+                Reply dataReply = readReply();
+                if (mailReply.code != 250) {
+                    abortData(dataReply);
+                    throw failure(mailReply);
+                }
+                for (int i = 0; i < recipients.size(); i++) {
+                    if (acceptRecipient(recipientReplies.get(i), recipients.get(i))) {
+                        accepted++;
+                    } else {
+                        rejection = recipientReplies.get(i);
+                    }
+                }
+                if (accepted == 0) {
+                    abortData(dataReply);
+                    throw failure(rejection);
+                }
+                expect(dataReply, 354);
+            } else {
+                flush();
+                expect(readReply(), 250);
+                for (String recipient : recipients) {
+                    write("RCPT TO:<" + checkAddress(recipient) + ">");
+                    flush();
+                    Reply reply = readReply();
+                    if (acceptRecipient(reply, recipient)) {
+                        accepted++;
+                    } else {
+                        rejection = reply;
+                    }
+                }
+                if (accepted == 0) {
+                    throw failure(rejection);
+                }
+                command("DATA", 354);
+            }
+
+            out.write(content);
+            write(".");
+            flush();
+            expect(readReply(), 250);
+            messagesSent++;
+            lastUsed = System.nanoTime();
+            return accepted;
+        } catch (SmtpException e) {
+            if (e.getCode() == 421) {
+                broken = true; // 服务器即将关闭连接
+            } else if (!broken) {
+                reset();
+            }
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            broken = true;
+            throw e;
+        }
+    }
+
+    /**
+     * 收件人是否被接受，被拒绝时记录日志；421表示服务器即将关闭连接，直接抛出
+     */
+    private boolean acceptRecipient(Reply reply, String recipient) throws SmtpException {
+        if (reply.code == 250 || reply.code == 251) {
+            return true;
+        }
+        if (reply.code == 421) {
+            throw failure(reply);
+        }
+        logger.warn("收件人被拒绝: {} ({} {})", recipient, reply.code, reply.text());
+        return false;
+    }
+
+    /**
+     * 服务器已接受DATA但不能发送内容时，发送空内容结束事务（RFC 2920）
+     */
+    private void abortData(Reply dataReply) throws IOException {
+        if (dataReply.code == 354) {
+            write(".");
+            flush();
+            readReply();
+        }
+    }
+
+    /**
+     * 放弃当前事务，会话可以继续发送下一封
+     */
+    void reset() {
+        try {
+            command("RSET", 250);
+        } catch (IOException e) {
+            broken = true;
+        }
+    }
+
+    /**
+     * 连接是否还能继续使用：没有发生过网络错误，且空闲时间不超过maxIdleNanos
+     */
+    boolean isUsable(long maxIdleNanos) {
+        return !broken && !socket.isClosed() && System.nanoTime() - lastUsed < maxIdleNanos;
+    }
+
+    int getMessagesSent() {
+        return messagesSent;
+    }
+
+    /**
+     * 发送QUIT后关闭连接，失败时直接关闭
+     */
+    @Override
+    public void close() {
+        if (!broken && socket != null && !socket.isClosed()) {
+            try {
+                write("QUIT");
+                flush();
+                readReply();
+            } catch (IOException e) {
+                logger.debug("QUIT失败: {}", e.getMessage());
+            }
+        }
+        closeSocket();
+    }
+
+    private void closeSocket() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("关闭SMTP连接失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 邮件内容：头部和base64编码的HTML正文，以CRLF分行。base64的行不会以"."开头，不需要点填充
+     */
+    byte[] format(MailMessage message) {
+        StringBuilder headers = new StringBuilder(512);
+        headers.append("From: ").append(checkAddress(settings.getFrom())).append("\r\n");
+        headers.append("To: ");
+        for (int i = 0; i < message.getRecipients().size(); i++) {
+            headers.append(i == 0 ? "" : ",\r\n ").append(checkAddress(message.getRecipients().get(i)));
+        }
+        headers.append("\r\n");
+        headers.append("Subject: ").append(encodeHeader(message.getSubject() == null ? "" : message.getSubject())).append("\r\n");
+        headers.append("Date: ").append(DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now())).append("\r\n");
+        headers.append("Message-ID: <").append(UUID.randomUUID()).append('@').append(HOST_NAME).append(">\r\n");
+        headers.append("MIME-Version: 1.0\r\n");
+        headers.append("Content-Type: text/html; charset=UTF-8\r\n");
+        headers.append("Content-Transfer-Encoding: base64\r\n\r\n");
+
+        byte[] body = Base64.getMimeEncoder().encode(
+                (message.getHtml() == null ? "" : message.getHtml()).getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream content = new ByteArrayOutputStream(headers.length() + body.length + 4);
+        byte[] head = headers.toString().getBytes(StandardCharsets.US_ASCII);
+        content.write(head, 0, head.length);
+        content.write(body, 0, body.length);
+        content.write(CRLF, 0, CRLF.length);
+        return content.toByteArray();
+    }
+
+    /**
+     * 按RFC 2047编码为多个不超过75个字符的encoded-word，不在字符中间断开
+     */
+    static String encodeHeader(String value) {
+        StringBuilder result = new StringBuilder();
+        int start = 0;
+        while (start < value.length()) {
+            int end = start;
+            int bytes = 0;
+            while (end < value.length()) {
+                int codePoint = value.codePointAt(end);
+                int length = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+                if (bytes + length > 45) break; // 45字节编码后为60个字符
+                bytes += length;
+                end += Character.charCount(codePoint);
+            }
+            if (result.length() > 0) {
+                result.append("\r\n ");
+            }
+            result.append("=?UTF-8?B?").append(base64(value.substring(start, end))).append("?=");
+            start = end;
+        }
+        return result.toString();
+    }
+
+    private static String checkAddress(String address) {
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if (c == '\r' || c == '\n' || c == '<' || c == '>') {
+                throw new IllegalArgumentException("邮箱地址包含非法字符: " + address);
+            }
+        }
+        return address;
+    }
+
+    private void command(String line, int expected) throws IOException {
+        write(line);
+        flush();
+        expect(readReply(), expected);
+    }
+
+    private void write(String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        out.write(CRLF);
+    }
+
+    private void flush() throws IOException {
+        out.flush();
+    }
+
+    private static void expect(Reply reply, int expected) throws SmtpException {
+        if (reply.code != expected) {
+            throw failure(reply);
+        }
+    }
+
+    private static SmtpException failure(Reply reply) {
+        return new SmtpException(reply.code, "SMTP服务器应答: " + reply.code + " " + reply.text());
+    }
+
+    private static final class Reply {
+        final int code;
+        final List<String> lines;
+
+        Reply(int code, List<String> lines) {
+            this.code = code;
+            this.lines = lines;
+        }
+
+        String text() {
+            return String.join(" ", lines);
+        }
+    }
+
+    /**
+     * 读取一个应答，多行应答（"250-..."）读到最后一行（"250 ..."）为止
+     */
+    private Reply readReply() throws IOException {
+        List<String> lines = new ArrayList<>(1);
+        while (true) {
+            String line = readLine();
+            if (line.length() < 3) {
+                throw new IOException("无法识别的SMTP应答: " + line);
+            }
+            int code;
+            try {
+                code = Integer.parseInt(line.substring(0, 3));
+            } catch (NumberFormatException e) {
+                throw new IOException("无法识别的SMTP应答: " + line);
+            }
+            lines.add(line.length() > 4 ? line.substring(4) : "");
+            if (line.length() == 3 || line.charAt(3) != '-') {
+                return new Reply(code, lines);
+            }
+        }
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        while (true) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("SMTP服务器关闭了连接");
+            }
+            if (b == '\n') {
+                break;
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return new String(line.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String base64(String value) {
+        return Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String localHostName() {
+        try {
+            return InetAddress.getLocalHost().getCanonicalHostName();
+        } catch (IOException e) {
+            return "localhost";
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.framework.alert.service;
+
+import com.framework.alert.config.MailSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SMTP连接池：握手（TCP、TLS、EHLO、认证）的代价远大于发送一封邮件，连接用完后放回池中给下一批邮件使用。
+ * 同时借出的连接数不超过配置的连接数；一个连接发送messagesPerSession封后关闭重连（很多服务器限制单个会话的邮件数），
+ * 空闲太久的连接可能已被服务器断开，不再复用。
+ */
+class SmtpConnectionPool implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(SmtpConnectionPool.class);
+
+    // 常见服务器的空闲超时在1到5分钟之间，留出余量
+    private static final long MAX_IDLE_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final MailSettings settings;
+    private final Semaphore permits;
+    private final Deque<SmtpConnection> idle = new ArrayDeque<>();
+    private final AtomicInteger opened = new AtomicInteger();
+    private boolean closed;
+
+    SmtpConnectionPool(MailSettings settings) {
+        this.settings = settings;
+        this.permits = new Semaphore(settings.getConnections());
+    }
+
+    /**
+     * 借出一个连接，优先使用空闲连接，连接数已满时等待
+     */
+    SmtpConnection borrow() throws IOException, InterruptedException {
+        permits.acquire();
+        try {
+            while (true) {
+                SmtpConnection connection;
+                synchronized (this) {
+                    if (closed) {
+                        throw new IllegalStateException("连接池已关闭");
+                    }
+                    connection = idle.pollFirst(); // 最近用过的连接最可能仍然有效
+                }
+                if (connection == null) {
+                    SmtpConnection created = SmtpConnection.open(settings);
+                    opened.incrementAndGet();
+                    logger.debug("已连接SMTP服务器: {}:{}", settings.getHost(), settings.getPort());
+                    return created;
+                }
+                if (connection.isUsable(MAX_IDLE_NANOS)) {
+                    return connection;
+                }
+                connection.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 归还连接。发生过网络错误（不发送QUIT）或达到单个会话的邮件数时关闭
+     */
+    void release(SmtpConnection connection) {
+        boolean keep = connection.isUsable(MAX_IDLE_NANOS)
+                && connection.getMessagesSent() < settings.getMessagesPerSession();
+        synchronized (this) {
+            if (keep && !closed) {
+                idle.addFirst(connection);
+                connection = null;
+            }
+        }
+        if (connection != null) {
+            connection.close();
+        }
+        permits.release();
+    }
+
+    /**
+     * 建立过的连接数，用于确认连接得到了复用
+     */
+    int getOpenedCount() {
+        return opened.get();
+    }
+
+    /**
+     * 关闭所有空闲连接，借出的连接归还时关闭
+     */
+    @Override
+    public void close() {
+        Deque<SmtpConnection> connections;
+        synchronized (this) {
+            closed = true;
+            connections = new ArrayDeque<>(idle);
+            idle.clear();
+        }
+        for (SmtpConnection connection : connections) {
+            connection.close();
+        }
+    }
+}
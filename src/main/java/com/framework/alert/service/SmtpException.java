@@ -0,0 +1,25 @@
+package com.framework.alert.service;
+
+import java.io.IOException;
+
+/**
+ * SMTP服务器返回了非预期的应答。4xx为临时失败，可以稍后重试；5xx为永久失败，重试也不会成功
+ */
+public class SmtpException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int code;
+
+    public SmtpException(int code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public boolean isTransient() {
+        return code >= 400 && code < 500;
+    }
+}
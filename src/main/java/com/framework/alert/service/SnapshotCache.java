@@ -0,0 +1,207 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.CompactAgreementStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * 解析结果快照：把CompactAgreementStore按二进制写到工作簿旁边（文件名加.snapshot后缀），
+ * 以工作簿内容的SHA-256为键。工作簿未变化时直接映射快照文件读取，跳过Excel解析。
+ *
+ * 文件布局：魔数、版本、工作簿哈希、数据长度、数据CRC32，然后是CompactAgreementStore.writeTo写出的数据。
+ * 快照不存在、过期或损坏时重新解析Excel并覆盖快照，不影响结果。
+ */
+public class SnapshotCache {
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotCache.class);
+
+    public static final String SUFFIX = ".snapshot";
+
+    private static final int MAGIC = 0x46415331; // "FAS1"
+    // 读取的列、单元格解码规则或存储布局变化时递增，使旧快照失效
+    private static final int VERSION = 1;
+    private static final int HASH_LENGTH = 32;
+    private static final int HEADER_LENGTH = 4 + 4 + HASH_LENGTH + 8 + 8;
+
+    private final AgreementSource source;
+
+    public SnapshotCache(AgreementSource source) {
+        this.source = source;
+    }
+
+    /**
+     * 读取工作簿：快照有效时从快照加载，否则解析Excel并写入新快照
+     */
+    public CompactAgreementStore read(String filePath) throws Exception {
+        return read(filePath, null);
+    }
+
+    /**
+     * 同read(filePath)，hash为调用方已经计算的工作簿contentHash，为null时在这里计算
+     */
+    public CompactAgreementStore read(String filePath, byte[] hash) throws Exception {
+        RunMetrics metrics = source.getMetrics();
+        RunMetrics.Recorder recorder = metrics.recorder();
+        RunMetrics.Stage outer = recorder.switchTo(RunMetrics.Stage.OPEN);
+        try {
+            Path workbook = Paths.get(filePath);
+            Path snapshot = snapshotPath(workbook);
+            if (hash == null) {
+                hash = contentHash(workbook);
+            }
+
+            recorder.switchTo(RunMetrics.Stage.READ);
+            CompactAgreementStore store = load(snapshot, hash);
+            metrics.flag("snapshot_hit", store != null);
+            if (store != null) {
+                metrics.addRowsRead(store.size());
+                logger.info("从快照读取 {} 条记录: {}", store.size(), snapshot);
+                return store;
+            }
+
+            store = source.readCompact(filePath);
+            recorder.switchTo(RunMetrics.Stage.WRITE);
+            save(snapshot, hash, store);
+            return store;
+        } finally {
+            recorder.switchTo(outer);
+        }
+    }
+
+    public static Path snapshotPath(Path workbook) {
+        return workbook.resolveSibling(workbook.getFileName() + SUFFIX);
+    }
+
+    /**
+     * 工作簿文件内容的SHA-256
+     */
+    public static byte[] contentHash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * 读取快照，快照不存在或与工作簿不匹配时返回null
+     */
+    CompactAgreementStore load(Path snapshot, byte[] hash) {
+        if (!Files.isRegularFile(snapshot)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            // 先只读文件头，过期的快照不做映射
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) break;
+            }
+            if (header.hasRemaining()) {
+                logger.debug("快照文件不完整，忽略: {}", snapshot);
+                return null;
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                logger.debug("快照格式或版本不匹配，忽略: {}", snapshot);
+                return null;
+            }
+            byte[] storedHash = new byte[HASH_LENGTH];
+            header.get(storedHash);
+            if (!Arrays.equals(storedHash, hash)) {
+                logger.debug("工作簿已变化，快照过期: {}", snapshot);
+                return null;
+            }
+            long length = header.getLong();
+            long checksum = header.getLong();
+            if (length != channel.size() - HEADER_LENGTH) {
+                logger.debug("快照数据长度不符，忽略: {}", snapshot);
+                return null;
+            }
+
+            ByteBuffer payload = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH, length);
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if (crc.getValue() != checksum) {
+                logger.debug("快照校验失败，忽略: {}", snapshot);
+                return null;
+            }
+
+            CompactAgreementStore store = CompactAgreementStore.readFrom(payload);
+            if (payload.hasRemaining() || !store.getZone().equals(ZoneId.systemDefault())) {
+                // 日期按时区存为自然日，时区不同时需要重新解析
+                logger.debug("快照数据与当前环境不一致，忽略: {}", snapshot);
+                return null;
+            }
+            return store;
+        } catch (IOException | RuntimeException e) {
+            logger.debug("读取快照失败，忽略: {}", snapshot, e);
+            return null;
+        }
+    }
+
+    /**
+     * 写入快照，先写临时文件再替换，写入失败只记录日志
+     */
+    void save(Path snapshot, byte[] hash, CompactAgreementStore store) {
+        Path temp = null;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(store.size() * 64, 1024));
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                store.writeTo(out);
+            }
+            byte[] payload = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.putInt(MAGIC).putInt(VERSION).put(hash).putLong(payload.length).putLong(crc.getValue());
+
+            Path directory = snapshot.toAbsolutePath().getParent();
+            temp = Files.createTempFile(directory, snapshot.getFileName().toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                out.write(header.array());
+                out.write(payload);
+            }
+            try {
+                Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING);
+            }
+            logger.debug("已写入快照: {}", snapshot);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("写入快照失败: {}", e.getMessage());
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.framework.alert.service;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * 基于SAX事件模型的xlsx读取器，逐行解析sheet的XML，不构建整个工作簿的对象模型。
+ * 内存占用只与共享字符串表和单行数据有关，与行数无关。
+ */
+public class StreamingSheetReader {
+
+    public interface RowHandler {
+        void handleRow(SheetRow row) throws Exception;
+    }
+
+    private final RunMetrics metrics;
+
+    public StreamingSheetReader() {
+        this(RunMetrics.NONE);
+    }
+
+    /**
+     * 打开工作簿的时间记为OPEN，解析sheet的时间记为READ（回调中切换的阶段除外）
+     */
+    public StreamingSheetReader(RunMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * 读取指定sheet（0开始），每解析完一行回调一次
+     */
+    public void read(String filePath, int sheetIndex, RowHandler handler) throws Exception {
+        RunMetrics.Recorder recorder = metrics.recorder();
+        RunMetrics.Stage outer = recorder.switchTo(RunMetrics.Stage.OPEN);
+        try (OPCPackage pkg = OPCPackage.open(filePath, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            SharedStrings sharedStrings = new ReadOnlySharedStringsTable(pkg, false);
+            StylesTable styles = reader.getStylesTable();
+            DateFormatCache dateFormats = styles != null
+                    ? new DateFormatCache(styles::getStyleAt, styles.getNumCellStyles())
+                    : new DateFormatCache(i -> null, 0);
+
+            boolean date1904;
+            try (InputStream workbookData = reader.getWorkbookData()) {
+                date1904 = readDate1904(workbookData);
+            }
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            for (int i = 0; sheets.hasNext(); i++) {
+                try (InputStream sheetData = sheets.next()) {
+                    if (i == sheetIndex) {
+                        recorder.switchTo(RunMetrics.Stage.READ);
+                        XMLReader parser = XMLHelper.newXMLReader();
+                        parser.setContentHandler(new SheetHandler(sharedStrings, dateFormats, new SheetRow(date1904), handler));
+                        parser.parse(new InputSource(sheetData));
+                        return;
+                    }
+                }
+            }
+            throw new IllegalArgumentException("工作簿中不存在第 " + (sheetIndex + 1) + " 个sheet: " + filePath);
+        } finally {
+            recorder.switchTo(outer);
+        }
+    }
+
+    private boolean readDate1904(InputStream workbookData) throws Exception {
+        final boolean[] date1904 = new boolean[1];
+        XMLReader parser = XMLHelper.newXMLReader();
+        parser.setContentHandler(new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                if ("workbookPr".equals(localName)) {
+                    String value = attributes.getValue("date1904");
+                    date1904[0] = "1".equals(value) || "true".equalsIgnoreCase(value);
+                }
+            }
+        });
+        parser.parse(new InputSource(workbookData));
+        return date1904[0];
+    }
+
+    private static class SheetHandler extends DefaultHandler {
+        private final SharedStrings sharedStrings;
+        private final DateFormatCache dateFormats;
+        private final SheetRow row;
+        private final RowHandler handler;
+
+        private final StringBuilder value = new StringBuilder();
+        private boolean collecting;
+        private boolean inInlineString;
+        private boolean inPhonetic;
+
+        private int nextRowNum;
+        private int nextColumn;
+        private int column;
+        private String type;
+        private int styleIndex;
+        private boolean hasFormula;
+        private boolean skipCell; // 不在列投影中的单元格，不收集内容也不解码
+
+        SheetHandler(SharedStrings sharedStrings, DateFormatCache dateFormats, SheetRow row, RowHandler handler) {
+            this.sharedStrings = sharedStrings;
+            this.dateFormats = dateFormats;
+            this.row = row;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    String r = attributes.getValue("r");
+                    int rowNum = r != null ? Integer.parseInt(r) - 1 : nextRowNum;
+                    row.start(rowNum);
+                    nextRowNum = rowNum + 1;
+                    nextColumn = 0;
+                    break;
+                case "c":
+                    String ref = attributes.getValue("r");
+                    column = ref != null ? columnIndex(ref) : nextColumn;
+                    nextColumn = column + 1;
+                    skipCell = !row.wants(column);
+                    if (skipCell) break;
+                    type = attributes.getValue("t");
+                    String s = attributes.getValue("s");
+                    styleIndex = s != null ? Integer.parseInt(s) : 0;
+                    hasFormula = false;
+                    value.setLength(0);
+                    break;
+                case "v":
+                    collecting = !skipCell;
+                    break;
+                case "f":
+                    hasFormula = true;
+                    break;
+                case "is":
+                    inInlineString = true;
+                    break;
+                case "rPh":
+                    inPhonetic = true;
+                    break;
+                case "t":
+                    collecting = inInlineString && !inPhonetic && !skipCell;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "v":
+                case "t":
+                    collecting = false;
+                    break;
+                case "is":
+                    inInlineString = false;
+                    break;
+                case "rPh":
+                    inPhonetic = false;
+                    break;
+                case "c":
+                    if (!skipCell) {
+                        fillCell(row.cellAt(column));
+                    }
+                    break;
+                case "row":
+                    try {
+                        handler.handleRow(row);
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new SAXException(e);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (collecting) {
+                value.append(ch, start, length);
+            }
+        }
+
+        /**
+         * 按照XSSFCell的取值规则还原单元格类型和值
+         */
+        private void fillCell(SheetCell cell) {
+            String text = value.toString();
+            CellType valueType;
+            if ("s".equals(type)) {
+                valueType = CellType.STRING;
+                cell.setStringValue(text.isEmpty() ? "" : sharedStrings.getItemAt(Integer.parseInt(text.trim())).getString());
+            } else if ("inlineStr".equals(type) || "str".equals(type)) {
+                valueType = CellType.STRING;
+                cell.setStringValue(text);
+            } else if ("b".equals(type)) {
+                valueType = CellType.BOOLEAN;
+                cell.setBooleanValue("1".equals(text) || "true".equalsIgnoreCase(text));
+            } else if ("e".equals(type)) {
+                valueType = CellType.ERROR;
+                cell.setStringValue(text);
+            } else if (text.isEmpty()) {
+                valueType = hasFormula ? CellType.NUMERIC : CellType.BLANK;
+            } else {
+                valueType = CellType.NUMERIC;
+                double number = Double.parseDouble(text);
+                cell.setNumericValue(number);
+                cell.setDateFormatted(DateUtil.isValidExcelDate(number) && dateFormats.isDateFormat(styleIndex));
+            }
+
+            if (hasFormula) {
+                cell.set(CellType.FORMULA, valueType);
+                if (valueType == CellType.NUMERIC && text.isEmpty()) {
+                    cell.setDateFormatted(dateFormats.isDateFormat(styleIndex));
+                }
+            } else {
+                cell.set(valueType, CellType.BLANK);
+            }
+        }
+
+        /**
+         * 由单元格引用（如"M3"）计算0开始的列索引
+         */
+        private static int columnIndex(String ref) {
+            int column = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                char c = ref.charAt(i);
+                if (c < 'A' || c > 'Z') {
+                    break;
+                }
+                column = column * 26 + (c - 'A' + 1);
+            }
+            return column - 1;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.CompactAgreementStore;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 两个版本工作簿之间的逐行差异。记录按"序号|系统名称"对应（同一标识出现多次时按出现顺序一一对应），
+ * 对应上的记录先比较行哈希，相同则视为未变化，不同时再逐个字段比较。
+ *
+ * 大部分记录在两个版本中顺序不变且内容相同，先按顺序对齐比较行哈希，只有对不上的记录才建立标识索引，
+ * 所以比较的代价远小于读取工作簿。
+ */
+public class WorkbookDiff {
+    private static final int RESYNC_WINDOW = 8;
+
+    /**
+     * 参与比较的字段
+     */
+    public enum Field {
+        ID("序号"),
+        SYSTEM_NAME("系统名称"),
+        BUSINESS_DEPARTMENT("业务部门"),
+        RESPONSIBLE_DEPARTMENT("责任科室"),
+        RESPONSIBLE_PERSON("责任经办"),
+        CURRENT_PROGRESS("当前进度"),
+        PREVIOUS_EXPIRY("上期协议到期"),
+        PLANNED_APPROVAL("计划完成立项日期"),
+        PLANNED_PURCHASE("计划完成采购日期"),
+        PLANNED_CONTRACT("计划合同签订日期");
+
+        private final String label;
+
+        Field(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * 第i条记录该字段的显示值，为空时返回null；日期为yyyy-MM-dd
+         */
+        public String valueOf(CompactAgreementStore store, int i) {
+            switch (this) {
+                case ID: return store.getIds()[i] != CompactAgreementStore.NO_VALUE ? String.valueOf(store.getIds()[i]) : null;
+                case SYSTEM_NAME: return store.getSystemNames()[i];
+                case BUSINESS_DEPARTMENT: return store.getDepartments().valueOf(store.getBusinessDepartmentIds()[i]);
+                case RESPONSIBLE_DEPARTMENT: return store.getDepartments().valueOf(store.getDepartmentIds()[i]);
+                case RESPONSIBLE_PERSON: return store.getPersons().valueOf(store.getPersonIds()[i]);
+                case CURRENT_PROGRESS: return store.getProgresses().valueOf(store.getProgressIds()[i]);
+                case PREVIOUS_EXPIRY: return formatDay(store.getPreviousExpiryDays()[i]);
+                case PLANNED_APPROVAL: return formatDay(store.getPlannedApprovalDays()[i]);
+                case PLANNED_PURCHASE: return formatDay(store.getPlannedPurchaseDays()[i]);
+                default: return formatDay(store.getPlannedContractDays()[i]);
+            }
+        }
+
+        private static String formatDay(int day) {
+            return day != CompactAgreementStore.NO_DATE ? LocalDate.ofEpochDay(day).toString() : null;
+        }
+    }
+
+    /**
+     * 一条内容有变化的记录
+     */
+    public static final class Change {
+        private final int beforeRow;
+        private final int afterRow;
+        private final Set<Field> fields;
+
+        Change(int beforeRow, int afterRow, Set<Field> fields) {
+            this.beforeRow = beforeRow;
+            this.afterRow = afterRow;
+            this.fields = fields;
+        }
+
+        public int getBeforeRow() {
+            return beforeRow;
+        }
+
+        public int getAfterRow() {
+            return afterRow;
+        }
+
+        /**
+         * 值不同的字段，按Field的顺序
+         */
+        public Set<Field> getFields() {
+            return fields;
+        }
+    }
+
+    private final CompactAgreementStore before;
+    private final CompactAgreementStore after;
+    private final int[] added;      // after中新增的行
+    private final int[] removed;    // before中删除的行
+    private final List<Change> changes;
+    private final int unchanged;
+
+    private WorkbookDiff(CompactAgreementStore before, CompactAgreementStore after, int[] added, int[] removed,
+                         List<Change> changes, int unchanged) {
+        this.before = before;
+        this.after = after;
+        this.added = added;
+        this.removed = removed;
+        this.changes = changes;
+        this.unchanged = unchanged;
+    }
+
+    /**
+     * 比较两个版本，结果中的行号分别对应before和after
+     */
+    public static WorkbookDiff compare(CompactAgreementStore before, CompactAgreementStore after) {
+        int beforeSize = before.size();
+        int afterSize = after.size();
+        boolean[] beforeMatched = new boolean[beforeSize];
+        boolean[] afterMatched = new boolean[afterSize];
+        int unchanged = 0;
+
+        // 1. 按顺序对齐行哈希相同的记录：未变化（行哈希包含序号和系统名称，所以标识也相同）。
+        //    遇到不同时在前方小窗口内找回对齐位置，插入或删除几行不会让后面的记录都对不上
+        long[] beforeHashes = hashes(before);
+        long[] afterHashes = hashes(after);
+        int i = 0;
+        int j = 0;
+        while (i < beforeSize && j < afterSize) {
+            if (beforeHashes[i] == afterHashes[j]) {
+                beforeMatched[i++] = true;
+                afterMatched[j++] = true;
+                unchanged++;
+                continue;
+            }
+            int skip = 1;
+            while (skip <= RESYNC_WINDOW
+                    && (i + skip >= beforeSize || beforeHashes[i + skip] != afterHashes[j])
+                    && (j + skip >= afterSize || afterHashes[j + skip] != beforeHashes[i])) {
+                skip++;
+            }
+            if (skip > RESYNC_WINDOW) {
+                i++; // 多半是这一行被修改了，留给第2步按标识对应
+                j++;
+            } else if (i + skip < beforeSize && beforeHashes[i + skip] == afterHashes[j]) {
+                i += skip;
+            } else {
+                j += skip;
+            }
+        }
+
+        // 2. 其余记录按标识对应；同一标识的多条记录串成链表，按出现顺序取用
+        Map<String, Integer> heads = new HashMap<>();
+        int[] next = new int[beforeSize];
+        int[] tails = new int[beforeSize];
+        for (i = 0; i < beforeSize; i++) {
+            if (beforeMatched[i]) continue;
+            next[i] = -1;
+            Integer head = heads.putIfAbsent(before.agreementKey(i), i);
+            if (head != null) {
+                next[tails[head]] = i;
+            } else {
+                head = i;
+            }
+            tails[head] = i;
+        }
+
+        List<Change> changes = new ArrayList<>();
+        int[] added = new int[afterSize];
+        int addedCount = 0;
+        for (i = 0; i < afterSize; i++) {
+            if (afterMatched[i]) continue;
+            String key = after.agreementKey(i);
+            Integer row = heads.get(key);
+            if (row == null) {
+                added[addedCount++] = i;
+                continue;
+            }
+            if (next[row] >= 0) {
+                tails[next[row]] = tails[row];
+                heads.put(key, next[row]);
+            } else {
+                heads.remove(key);
+            }
+            beforeMatched[row] = true;
+            if (beforeHashes[row] == afterHashes[i]) {
+                unchanged++; // 只是位置变了
+                continue;
+            }
+            Set<Field> fields = EnumSet.noneOf(Field.class);
+            for (Field field : Field.values()) {
+                if (!Objects.equals(field.valueOf(before, row), field.valueOf(after, i))) {
+                    fields.add(field);
+                }
+            }
+            changes.add(new Change(row, i, Collections.unmodifiableSet(fields)));
+        }
+
+        int[] removed = new int[beforeSize];
+        int removedCount = 0;
+        for (i = 0; i < beforeSize; i++) {
+            if (!beforeMatched[i]) {
+                removed[removedCount++] = i;
+            }
+        }
+        return new WorkbookDiff(before, after, Arrays.copyOf(added, addedCount), Arrays.copyOf(removed, removedCount),
+                Collections.unmodifiableList(changes), unchanged);
+    }
+
+    private static long[] hashes(CompactAgreementStore store) {
+        long[] hashes = new long[store.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = store.rowHash(i);
+        }
+        return hashes;
+    }
+
+    public CompactAgreementStore getBefore() {
+        return before;
+    }
+
+    public CompactAgreementStore getAfter() {
+        return after;
+    }
+
+    /**
+     * 新增的记录在after中的行号
+     */
+    public int[] getAdded() {
+        return added;
+    }
+
+    /**
+     * 删除的记录在before中的行号
+     */
+    public int[] getRemoved() {
+        return removed;
+    }
+
+    /**
+     * 内容有变化的记录，按在after中的顺序
+     */
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    public int getUnchangedCount() {
+        return unchanged;
+    }
+
+    /**
+     * 改变了某个字段的记录数
+     */
+    public int countChanged(Field field) {
+        int count = 0;
+        for (Change change : changes) {
+            if (change.getFields().contains(field)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return added.length == 0 && removed.length == 0 && changes.isEmpty();
+    }
+}
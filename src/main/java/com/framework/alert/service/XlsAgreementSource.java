@@ -0,0 +1,12 @@
+package com.framework.alert.service;
+
+/**
+ * 从旧版Excel文件（.xls）读取协议清单，格式与xlsx清单相同：第二个sheet，第2行为表头
+ */
+public class XlsAgreementSource extends SheetAgreementSource {
+
+    @Override
+    protected void readSheet(String filePath, StreamingSheetReader.RowHandler handler) throws Exception {
+        new HssfSheetReader(getMetrics()).read(filePath, 1, handler); // 第二个sheet
+    }
+}
@@ -0,0 +1,77 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.CompactAgreementStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AgreementIndexTest {
+    @Test
+    void randomQueriesMatchFullScan() {
+        Random random = new Random(1);
+        CompactAgreementStore store = TestAgreements.randomStore(random, 3000);
+        AgreementIndex index = new AgreementIndex(store);
+
+        for (int q = 0; q < 20000; q++) {
+            String department = random.nextInt(3) == 0 ? null
+                    : random.nextInt(20) == 0 ? "不存在的科室" : TestAgreements.DEPARTMENTS[random.nextInt(TestAgreements.DEPARTMENTS.length)];
+            String person = random.nextInt(2) == 0 ? null : "经办" + random.nextInt(22);
+            String progress = random.nextInt(2) == 0 ? null
+                    : TestAgreements.PROGRESSES[random.nextInt(TestAgreements.PROGRESSES.length)];
+            DueDateField field = random.nextInt(3) == 0 ? null : DueDateField.values()[random.nextInt(DueDateField.values().length)];
+            LocalDate from = random.nextInt(3) == 0 ? null : TestAgreements.FIRST_DAY.plusDays(random.nextInt(1500));
+            // 有一部分终止日期早于起始日期
+            LocalDate to = random.nextInt(3) == 0 ? null
+                    : (from != null ? from : TestAgreements.FIRST_DAY).plusDays(random.nextInt(500) - 100);
+
+            AgreementQuery query = new AgreementQuery().department(department).person(person).progress(progress);
+            if (field != null) {
+                query.due(field, from, to);
+            }
+            assertArrayEquals(scan(store, department, person, progress, field, from, to), index.query(query),
+                    "查询 " + q + ": " + department + " " + person + " " + progress + " " + field + " " + from + " ~ " + to);
+        }
+    }
+
+    @Test
+    void reversedRangeIsEmpty() {
+        CompactAgreementStore store = TestAgreements.randomStore(new Random(2), 500);
+        AgreementIndex index = new AgreementIndex(store);
+        for (DueDateField field : DueDateField.values()) {
+            assertEquals(0, index.query(new AgreementQuery()
+                    .due(field, LocalDate.of(2026, 12, 1), LocalDate.of(2026, 1, 1))).length);
+            assertEquals(0, index.query(new AgreementQuery().person("经办1")
+                    .due(field, LocalDate.of(2026, 12, 1), LocalDate.of(2026, 1, 1))).length);
+        }
+    }
+
+    /**
+     * 逐条检查所有记录，有日期条件时按(日期, 下标)排序
+     */
+    private static int[] scan(CompactAgreementStore store, String department, String person, String progress,
+                              DueDateField field, LocalDate from, LocalDate to) {
+        List<long[]> matches = new ArrayList<>();
+        for (int i = 0; i < store.size(); i++) {
+            if (department != null && !department.equals(store.getDepartments().valueOf(store.getDepartmentIds()[i]))) continue;
+            if (person != null && !person.equals(store.getPersons().valueOf(store.getPersonIds()[i]))) continue;
+            if (progress != null && !progress.equals(store.getProgresses().valueOf(store.getProgressIds()[i]))) continue;
+            long day = 0;
+            if (field != null) {
+                int d = field.dayOf(store, i);
+                if (d == CompactAgreementStore.NO_DATE) continue;
+                if (from != null && d < from.toEpochDay()) continue;
+                if (to != null && d > to.toEpochDay()) continue;
+                day = d;
+            }
+            matches.add(new long[]{day, i});
+        }
+        matches.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        return matches.stream().mapToInt(match -> (int) match[1]).toArray();
+    }
+}
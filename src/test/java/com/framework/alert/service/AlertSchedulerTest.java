@@ -0,0 +1,76 @@
+package com.framework.alert.service;
+
+import com.framework.alert.config.AlertRules;
+import com.framework.alert.model.CompactAgreementStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlertSchedulerTest {
+    private static final long DAY = 86_400_000L;
+
+    private long clock;
+
+    /**
+     * 随机推进时钟（包括恰好在变化时刻和变化前一毫秒），每一步调度器记录的紧急程度和阶段都要与重新完整评估的结果相同
+     */
+    @Test
+    void matchesFullEvaluationAtEveryStep() {
+        AlertRules defaults = AlertRules.defaults();
+        AlertRules[] ruleSets = {
+                new AlertRules(Collections.emptySet(), defaults.getStages()),
+                new AlertRules(Collections.singleton(TestAgreements.DEPARTMENTS[0]), defaults.getStages())
+        };
+        Random random = new Random(11);
+        for (AlertRules rules : ruleSets) {
+            for (int run = 0; run < 3; run++) {
+                CompactAgreementStore store = TestAgreements.randomStore(random, 500);
+                AlertAnalyzer analyzer = new AlertAnalyzer(rules);
+                CompiledAlertRules compiled = new CompiledAlertRules(rules);
+                clock = TestAgreements.toDate(TestAgreements.FIRST_DAY).getTime() + (long) (random.nextDouble() * 900 * DAY);
+                AlertScheduler scheduler = new AlertScheduler(analyzer, store, (time, transitions) -> { }, () -> clock);
+
+                for (int step = 0; step < 300; step++) {
+                    long next = scheduler.nextWakeup();
+                    int mode = random.nextInt(3);
+                    long target;
+                    if (next != Long.MAX_VALUE && mode == 0) {
+                        target = next - 1;
+                    } else if (next != Long.MAX_VALUE && mode == 1) {
+                        target = next;
+                    } else {
+                        target = clock + 1 + (long) (random.nextDouble() * 10 * DAY);
+                    }
+                    clock = Math.max(clock, target);
+                    scheduler.advanceTo(clock);
+                    assertTrue(scheduler.nextWakeup() > clock, "到期的变化没有处理完");
+
+                    AlertEvaluator evaluator = compiled.evaluatorAt(new Date(clock));
+                    for (int i = 0; i < store.size(); i++) {
+                        if (!rules.includesDepartment(store.getDepartments().valueOf(store.getDepartmentIds()[i]))) continue;
+                        Date reference = store.toDate(store.referenceDay(i));
+                        String progress = store.getProgresses().valueOf(store.getProgressIds()[i]);
+                        assertEquals(evaluator.urgencyLevel(reference), store.getAlertLevel(i), "紧急程度，第" + i + "条");
+                        assertEquals(evaluator.stages(reference, progress), scheduler.stagesOf(i), "阶段，第" + i + "条");
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void stopBeforeRunIsNotLost() {
+        CompactAgreementStore store = TestAgreements.randomStore(new Random(3), 50);
+        AlertScheduler scheduler = new AlertScheduler(new AlertAnalyzer(AlertRules.defaults()), store,
+                (time, transitions) -> { });
+        scheduler.stop();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), scheduler::run);
+    }
+}
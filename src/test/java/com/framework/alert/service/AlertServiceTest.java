@@ -0,0 +1,76 @@
+package com.framework.alert.service;
+
+import com.framework.alert.config.AlertOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 同一个AlertService实例被多个线程同时调用时，每次的提醒内容和HTML都与单线程调用的结果相同
+ */
+class AlertServiceTest {
+    private static final Path WORKBOOK = Paths.get("2026年有时限要求事项清单.xlsx");
+    private static final int THREADS = 8;
+    private static final int RUNS = 200;
+
+    // HTML中的生成时间每次不同，比较前去掉
+    private static final Pattern GENERATED_AT = Pattern.compile("生成时间: [^<]*");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void concurrentRunsMatchSingleThreadedRun() throws Exception {
+        check(false);
+    }
+
+    /**
+     * 使用快照时多个线程可能同时写入同一个快照文件，读到的内容仍须一致
+     */
+    @Test
+    void concurrentRunsWithSnapshotMatchSingleThreadedRun() throws Exception {
+        check(true);
+    }
+
+    private void check(boolean snapshot) throws Exception {
+        Path workbook = Files.copy(WORKBOOK, directory.resolve(WORKBOOK.getFileName()));
+        AlertService service = new AlertService(AlertOptions.defaults().withSnapshot(snapshot));
+        Date now = new Date();
+        AlertService.Result expected = service.run(workbook.toString(), now);
+        String expectedHtml = stripTime(expected.getHtml());
+        assertTrue(expected.getRowCount() > 0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<AlertService.Result>> futures = new ArrayList<>(RUNS);
+            for (int i = 0; i < RUNS; i++) {
+                futures.add(executor.submit(() -> service.run(workbook.toString(), now)));
+            }
+            for (int i = 0; i < RUNS; i++) {
+                AlertService.Result result = futures.get(i).get();
+                assertEquals(expected.getRowCount(), result.getRowCount(), "第" + i + "次调用的记录数");
+                assertEquals(expected.getContent(), result.getContent(), "第" + i + "次调用的提醒内容");
+                assertEquals(expectedHtml, stripTime(result.getHtml()), "第" + i + "次调用的HTML");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String stripTime(String html) {
+        return GENERATED_AT.matcher(html).replaceAll("");
+    }
+}
@@ -0,0 +1,85 @@
+package com.framework.alert.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 映射窗口很小时（记录跨越窗口，甚至比窗口还大）读到的记录与一次映射整个文件相同
+ */
+class CsvSheetReaderTest {
+    private static final int[] WINDOW_SIZES = {1, 2, 3, 4, 5, 7, 8, 13, 16, 31, 64};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void quotedFieldsBomAndCrLf() throws Exception {
+        String csv = "\uFEFF编号,名称,备注\r\n"
+                + "1,\"多行\r\n名称\",\"他说\"\"好\"\"\"\r\n"
+                + "\r\n"
+                + ",,\r\n"
+                + "2,,\"a,b\"\n"
+                + "3,末行,\"\"";
+        List<String> expected = Arrays.asList(
+                "0|0=编号|1=名称|2=备注",
+                "1|0=1|1=多行\r\n名称|2=他说\"好\"",
+                "4|0=2|2=a,b",
+                "5|0=3|1=末行");
+
+        Path file = write(csv);
+        assertEquals(expected, read(file, 64 * 1024));
+        for (int window : WINDOW_SIZES) {
+            assertEquals(expected, read(file, window), "window " + window);
+        }
+    }
+
+    @Test
+    void longRecordsAcrossWindows() throws Exception {
+        StringBuilder csv = new StringBuilder("\uFEFF");
+        for (int i = 0; i < 200; i++) {
+            StringBuilder name = new StringBuilder();
+            for (int j = 0; j < i % 17; j++) {
+                name.append("科室").append(j);
+            }
+            csv.append(i).append(",\"").append(name).append(i % 3 == 0 ? "\"\"\n" : "")
+                    .append("\",").append(i % 5 == 0 ? "" : "x").append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        Path file = write(csv.toString());
+
+        List<String> expected = read(file, 64 * 1024);
+        assertEquals(200, expected.size());
+        for (int window : WINDOW_SIZES) {
+            assertEquals(expected, read(file, window), "window " + window);
+        }
+        assertEquals(expected, read(file, 100));
+        assertEquals(expected, read(file, 1000));
+    }
+
+    private Path write(String content) throws Exception {
+        return Files.write(directory.resolve("agreements.csv"), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> read(Path file, int windowSize) throws Exception {
+        List<String> records = new ArrayList<>();
+        new CsvSheetReader(',', false, windowSize, RunMetrics.NONE).read(file.toString(), row -> {
+            StringBuilder record = new StringBuilder().append(row.getRowNum());
+            for (int column = 0; column < row.getLastCellNum(); column++) {
+                SheetCell cell = row.getCell(column);
+                if (cell != null) {
+                    record.append('|').append(column).append('=').append(cell.getStringValue());
+                }
+            }
+            records.add(record.toString());
+        });
+        return records;
+    }
+}
@@ -0,0 +1,402 @@
+package com.framework.alert.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进程内的简易SMTP服务器，只在本机监听，接收到的邮件保存在内存中，用于在没有真实邮件服务器时验证发送流程。
+ * 支持EHLO（声明PIPELINING和AUTH PLAIN LOGIN，不校验账号）、MAIL、RCPT、DATA、RSET、NOOP和QUIT，
+ * 可以让接下来的若干封邮件或某个收件人返回指定的错误码。不支持TLS，配置中smtp.security须为none。
+ */
+public class LocalSmtpServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(LocalSmtpServer.class);
+
+    /**
+     * 一封收到的邮件
+     */
+    public static final class Received {
+        private final String from;
+        private final List<String> recipients;
+        private final String data;
+
+        Received(String from, List<String> recipients, String data) {
+            this.from = from;
+            this.recipients = recipients;
+            this.data = data;
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public List<String> getRecipients() {
+            return recipients;
+        }
+
+        /**
+         * 完整的邮件内容（头部和正文，已去掉点填充）
+         */
+        public String getData() {
+            return data;
+        }
+
+        /**
+         * 头部中的Subject（RFC 2047编码的按UTF-8解码）
+         */
+        public String getSubject() {
+            int start = data.indexOf("\r\nSubject: ");
+            if (start < 0) {
+                return null;
+            }
+            StringBuilder subject = new StringBuilder();
+            int end = start + "\r\nSubject: ".length();
+            while (true) {
+                int lineEnd = data.indexOf("\r\n", end);
+                String line = data.substring(end, lineEnd).trim();
+                subject.append(decodeWord(line));
+                if (data.charAt(lineEnd + 2) != ' ') {
+                    return subject.toString();
+                }
+                end = lineEnd + 2;
+            }
+        }
+
+        /**
+         * 解码后的正文（按base64传输编码解码，否则原样返回）
+         */
+        public String getBody() {
+            int split = data.indexOf("\r\n\r\n");
+            String body = split < 0 ? "" : data.substring(split + 4);
+            if (data.substring(0, Math.max(split, 0)).contains("Content-Transfer-Encoding: base64")) {
+                return new String(Base64.getMimeDecoder().decode(body), StandardCharsets.UTF_8);
+            }
+            return body;
+        }
+
+        private static String decodeWord(String word) {
+            if (word.startsWith("=?UTF-8?B?") && word.endsWith("?=")) {
+                return new String(Base64.getDecoder().decode(word.substring(10, word.length() - 2)), StandardCharsets.UTF_8);
+            }
+            return word;
+        }
+    }
+
+    private final ServerSocket serverSocket;
+    private final Thread acceptor;
+    private final List<Received> messages = new ArrayList<>();
+    private final List<Socket> sessions = new ArrayList<>();
+    private final AtomicInteger sessionCount = new AtomicInteger();
+    private final AtomicInteger pipelinedReplies = new AtomicInteger();
+    private final Map<String, Integer> rejectedRecipients = new HashMap<>();
+    private int failures;        // 接下来多少封邮件在DATA结束后返回failureCode
+    private int failureCode;
+    private volatile boolean pipelining = true;
+    private volatile long latencyMillis;
+
+    /**
+     * 在本机的指定端口监听，port为0时自动选择端口（见getPort）
+     */
+    public LocalSmtpServer(int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.acceptor = new Thread(this::accept, "local-smtp-" + serverSocket.getLocalPort());
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * 接下来的count封邮件在发送内容后返回code（如451临时失败、554拒收）
+     */
+    public synchronized void failNext(int count, int code) {
+        this.failures = count;
+        this.failureCode = code;
+    }
+
+    /**
+     * 对这个收件人的RCPT返回code（如550不存在的邮箱）
+     */
+    public synchronized void rejectRecipient(String address, int code) {
+        rejectedRecipients.put(address, code);
+    }
+
+    /**
+     * 是否在EHLO中声明PIPELINING
+     */
+    public void setPipelining(boolean pipelining) {
+        this.pipelining = pipelining;
+    }
+
+    /**
+     * 每次写出应答前等待的时间，模拟网络往返
+     */
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public synchronized List<Received> getMessages() {
+        return new ArrayList<>(messages);
+    }
+
+    /**
+     * 建立过的连接数
+     */
+    public int getSessionCount() {
+        return sessionCount.get();
+    }
+
+    /**
+     * 写应答时客户端的下一条命令已经到达的次数，客户端使用了流水线时大于0
+     */
+    public int getPipelinedReplies() {
+        return pipelinedReplies.get();
+    }
+
+    /**
+     * 等待收到至少count封邮件，超时返回false
+     */
+    public synchronized boolean awaitMessages(int count, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (messages.size() < count) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                synchronized (this) {
+                    sessions.add(socket);
+                }
+                sessionCount.incrementAndGet();
+                Thread session = new Thread(() -> serve(socket), "local-smtp-session");
+                session.setDaemon(true);
+                session.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.warn("接受连接失败: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+        } catch (SocketException e) {
+            logger.debug("设置TCP_NODELAY失败: {}", e.getMessage());
+        }
+        try (Socket closing = socket;
+             InputStream in = new BufferedInputStream(socket.getInputStream());
+             OutputStream out = new BufferedOutputStream(socket.getOutputStream())) {
+            reply(in, out, "220 localhost ESMTP");
+            String from = null;
+            List<String> recipients = new ArrayList<>();
+            String line;
+            while ((line = readLine(in)) != null) {
+                String command = line.length() < 4 ? line.toUpperCase(Locale.ROOT)
+                        : line.substring(0, 4).toUpperCase(Locale.ROOT);
+                switch (command) {
+                    case "EHLO":
+                        reply(in, out, pipelining
+                                ? "250-localhost\r\n250-PIPELINING\r\n250-8BITMIME\r\n250 AUTH PLAIN LOGIN"
+                                : "250-localhost\r\n250-8BITMIME\r\n250 AUTH PLAIN LOGIN");
+                        break;
+                    case "HELO":
+                        reply(in, out, "250 localhost");
+                        break;
+                    case "AUTH":
+                        authenticate(line, in, out);
+                        break;
+                    case "MAIL":
+                        from = address(line);
+                        recipients.clear();
+                        reply(in, out, "250 OK");
+                        break;
+                    case "RCPT":
+                        if (from == null) {
+                            reply(in, out, "503 MAIL first");
+                            break;
+                        }
+                        String recipient = address(line);
+                        Integer rejected;
+                        synchronized (this) {
+                            rejected = rejectedRecipients.get(recipient);
+                        }
+                        if (rejected != null) {
+                            reply(in, out, rejected + " recipient rejected");
+                        } else {
+                            recipients.add(recipient);
+                            reply(in, out, "250 OK");
+                        }
+                        break;
+                    case "DATA":
+                        if (from == null || recipients.isEmpty()) {
+                            reply(in, out, "503 no valid recipients");
+                            break;
+                        }
+                        reply(in, out, "354 end with <CRLF>.<CRLF>");
+                        String data = readData(in);
+                        if (data == null) {
+                            return;
+                        }
+                        int code = nextFailure();
+                        if (code != 0) {
+                            reply(in, out, code + " delivery failed");
+                        } else {
+                            delivered(new Received(from, Collections.unmodifiableList(new ArrayList<>(recipients)), data));
+                            reply(in, out, "250 OK queued");
+                        }
+                        from = null;
+                        recipients.clear();
+                        break;
+                    case "RSET":
+                        from = null;
+                        recipients.clear();
+                        reply(in, out, "250 OK");
+                        break;
+                    case "NOOP":
+                        reply(in, out, "250 OK");
+                        break;
+                    case "QUIT":
+                        reply(in, out, "221 bye");
+                        return;
+                    default:
+                        reply(in, out, "500 unrecognized command");
+                        break;
+                }
+            }
+        } catch (SocketException e) {
+            // 客户端或close关闭了连接
+        } catch (IOException | InterruptedException e) {
+            logger.warn("SMTP会话异常结束: {}", e.getMessage());
+        } finally {
+            synchronized (this) {
+                sessions.remove(socket);
+            }
+        }
+    }
+
+    private void authenticate(String line, InputStream in, OutputStream out) throws IOException, InterruptedException {
+        String[] parts = line.split(" ");
+        if (parts.length >= 2 && "LOGIN".equalsIgnoreCase(parts[1])) {
+            reply(in, out, "334 VXNlcm5hbWU6");
+            readLine(in);
+            reply(in, out, "334 UGFzc3dvcmQ6");
+            readLine(in);
+        } else if (parts.length < 3) {
+            reply(in, out, "334 ");
+            readLine(in);
+        }
+        reply(in, out, "235 authenticated");
+    }
+
+    private synchronized int nextFailure() {
+        if (failures > 0) {
+            failures--;
+            return failureCode;
+        }
+        return 0;
+    }
+
+    private synchronized void delivered(Received received) {
+        messages.add(received);
+        notifyAll();
+    }
+
+    private static String address(String line) {
+        int start = line.indexOf('<');
+        int end = line.indexOf('>', start + 1);
+        return start < 0 || end < 0 ? "" : line.substring(start + 1, end);
+    }
+
+    /**
+     * 流水线发送的命令还没有读完时先不写出，像真实服务器一样把应答合并发送
+     */
+    private void reply(InputStream in, OutputStream out, String reply) throws IOException, InterruptedException {
+        out.write((reply + "\r\n").getBytes(StandardCharsets.UTF_8));
+        if (in.available() > 0) {
+            pipelinedReplies.incrementAndGet();
+        } else {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * 读取DATA内容直到单独一行"."，去掉行首的点填充；连接断开时返回null
+     */
+    private static String readData(InputStream in) throws IOException {
+        StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = readLine(in)) != null) {
+            if (line.equals(".")) {
+                return data.toString();
+            }
+            data.append(line.startsWith("..") ? line.substring(1) : line).append("\r\n");
+        }
+        return null;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        while (true) {
+            int b = in.read();
+            if (b < 0) {
+                return null;
+            }
+            if (b == '\n') {
+                break;
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return new String(line.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 停止监听并断开所有连接
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        List<Socket> open;
+        synchronized (this) {
+            open = new ArrayList<>(sessions);
+        }
+        for (Socket socket : open) {
+            socket.close();
+        }
+    }
+}
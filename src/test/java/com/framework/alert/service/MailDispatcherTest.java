@@ -0,0 +1,247 @@
+package com.framework.alert.service;
+
+import com.framework.alert.config.MailSettings;
+import com.framework.alert.model.MailMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MailDispatcherTest {
+
+    @Test
+    void pipelinedSendDeliversEveryMessage() throws Exception {
+        for (boolean pipelining : new boolean[]{true, false}) {
+            try (LocalSmtpServer server = new LocalSmtpServer(0)) {
+                server.setPipelining(pipelining);
+                List<MailMessage> messages = new ArrayList<>();
+                List<CompletableFuture<Void>> results = new ArrayList<>();
+                try (MailDispatcher dispatcher = new MailDispatcher(settings(server.getPort(), 2, 100))) {
+                    for (int i = 0; i < 40; i++) {
+                        MailMessage message = message(i, "a@example.com", "b@example.com");
+                        messages.add(message);
+                        results.add(dispatcher.submit(message));
+                    }
+                }
+                for (CompletableFuture<Void> result : results) {
+                    assertFalse(result.isCompletedExceptionally());
+                }
+
+                List<LocalSmtpServer.Received> received = server.getMessages();
+                assertEquals(messages.size(), received.size());
+                for (MailMessage message : messages) {
+                    assertTrue(received.stream().anyMatch(r -> r.getSubject().equals(message.getSubject())
+                            && r.getBody().equals(message.getHtml())
+                            && r.getRecipients().equals(message.getRecipients())), message.getLabel());
+                }
+                if (pipelining) {
+                    assertTrue(server.getPipelinedReplies() > 0, "服务器声明PIPELINING时应使用流水线");
+                } else {
+                    assertEquals(0, server.getPipelinedReplies(), "服务器不支持PIPELINING时不能使用流水线");
+                }
+            }
+        }
+    }
+
+    @Test
+    void transientFailureIsRetriedWithBackoff() throws Exception {
+        try (LocalSmtpServer server = new LocalSmtpServer(0)) {
+            RunMetrics metrics = new RunMetrics();
+            server.failNext(2, 451);
+            CompletableFuture<Void> result;
+            long start = System.nanoTime();
+            try (MailDispatcher dispatcher = new MailDispatcher(settings(server.getPort(), 1, 100), metrics)) {
+                result = dispatcher.submit(message(1, "a@example.com"));
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertFalse(result.isCompletedExceptionally());
+            assertEquals(1, server.getMessages().size());
+            assertEquals(2, metrics.getMailDeliveries(RunMetrics.MailOutcome.RETRIED));
+            assertEquals(1, metrics.getMailDeliveries(RunMetrics.MailOutcome.SENT));
+            assertTrue(elapsedMillis >= 20 + 40, "两次重试应分别等待20和40毫秒，实际共 " + elapsedMillis + " 毫秒");
+        }
+    }
+
+    @Test
+    void transientFailureGivesUpAfterMaxAttempts() throws Exception {
+        try (LocalSmtpServer server = new LocalSmtpServer(0)) {
+            RunMetrics metrics = new RunMetrics();
+            server.failNext(5, 451);
+            CompletableFuture<Void> result;
+            try (MailDispatcher dispatcher = new MailDispatcher(settings(server.getPort(), 1, 100), metrics)) {
+                result = dispatcher.submit(message(1, "a@example.com"));
+            }
+            assertEquals(451, failure(result).getCode());
+            assertEquals(2, metrics.getMailDeliveries(RunMetrics.MailOutcome.RETRIED));
+            assertEquals(1, metrics.getMailDeliveries(RunMetrics.MailOutcome.FAILED));
+            assertEquals(0, server.getMessages().size());
+        }
+    }
+
+    @Test
+    void permanentFailureIsNotRetried() throws Exception {
+        try (LocalSmtpServer server = new LocalSmtpServer(0)) {
+            RunMetrics metrics = new RunMetrics();
+            server.failNext(1, 554);
+            CompletableFuture<Void> failed;
+            CompletableFuture<Void> next;
+            try (MailDispatcher dispatcher = new MailDispatcher(settings(server.getPort(), 1, 100), metrics)) {
+                failed = dispatcher.submit(message(1, "a@example.com"));
+                next = dispatcher.submit(message(2, "a@example.com"));
+            }
+            assertEquals(554, failure(failed).getCode());
+            assertEquals(0, metrics.getMailDeliveries(RunMetrics.MailOutcome.RETRIED));
+            assertEquals(1, metrics.getMailDeliveries(RunMetrics.MailOutcome.FAILED));
+            // 失败后会话仍可继续使用
+            assertFalse(next.isCompletedExceptionally());
+            assertEquals(1, server.getMessages().size());
+            assertEquals(1, server.getSessionCount());
+        }
+    }
+
+    @Test
+    void rejectedRecipientsAreSkipped() throws Exception {
+        for (boolean pipelining : new boolean[]{true, false}) {
+            try (LocalSmtpServer server = new LocalSmtpServer(0)) {
+                server.setPipelining(pipelining);
+                server.rejectRecipient("missing@example.com", 550);
+                CompletableFuture<Void> partial;
+                CompletableFuture<Void> rejected;
+                CompletableFuture<Void> after;
+                try (MailDispatcher dispatcher = new MailDispatcher(settings(server.getPort(), 1, 100))) {
+                    partial = dispatcher.submit(message(1, "a@example.com", "missing@example.com", "b@example.com"));
+                    rejected = dispatcher.submit(message(2, "missing@example.com"));
+                    after = dispatcher.submit(message(3, "c@example.com"));
+                }
+
+                assertFalse(partial.isCompletedExceptionally());
+                assertEquals(550, failure(rejected).getCode());
+                assertFalse(after.isCompletedExceptionally());
+                List<LocalSmtpServer.Received> received = server.getMessages();
+                assertEquals(2, received.size());
+                assertEquals(Arrays.asList("a@example.com", "b@example.com"), received.get(0).getRecipients());
+                assertEquals(Collections.singletonList("c@example.com"), received.get(1).getRecipients());
+            }
+        }
+    }
+
+    @Test
+    void sessionsAreReusedUpToMessagesPerSession() throws Exception {
+        try (LocalSmtpServer server = new LocalSmtpServer(0)) {
+            MailDispatcher dispatcher = new MailDispatcher(settings(server.getPort(), 1, 100));
+            try {
+                for (int i = 0; i < 50; i++) {
+                    dispatcher.submit(message(i, "a@example.com"));
+                }
+            } finally {
+                dispatcher.close();
+            }
+            assertEquals(50, server.getMessages().size());
+            assertEquals(1, dispatcher.getConnectionsOpened());
+            assertEquals(1, server.getSessionCount());
+        }
+
+        try (LocalSmtpServer server = new LocalSmtpServer(0)) {
+            MailDispatcher dispatcher = new MailDispatcher(settings(server.getPort(), 1, 10));
+            try {
+                for (int i = 0; i < 50; i++) {
+                    dispatcher.submit(message(i, "a@example.com"));
+                }
+            } finally {
+                dispatcher.close();
+            }
+            assertEquals(50, server.getMessages().size());
+            assertEquals(5, dispatcher.getConnectionsOpened());
+            assertEquals(5, server.getSessionCount());
+        }
+    }
+
+    @Test
+    void unreachableServerFailsWithoutHanging() throws Exception {
+        LocalSmtpServer server = new LocalSmtpServer(0);
+        int port = server.getPort();
+        server.close();
+
+        CompletableFuture<Void> result;
+        try (MailDispatcher dispatcher = new MailDispatcher(settings(port, 1, 100))) {
+            result = dispatcher.submit(message(1, "a@example.com"));
+        }
+        assertTrue(result.isCompletedExceptionally());
+    }
+
+    /**
+     * 建立连接时抛出的非IO异常（这里是越界的端口）同样使这一批失败，close不会一直等待
+     */
+    @Test
+    void connectionSetupErrorFailsWithoutHanging() {
+        MailSettings valid = settings(25, 1, 100);
+        MailSettings invalid = new MailSettings(valid.getHost(), 70000, valid.getSecurity(), valid.getUsername(),
+                valid.getPassword(), valid.getTimeoutMillis(), valid.getFrom(), valid.getTo(), valid.getPersons(),
+                valid.getConnections(), valid.getMessagesPerSession(), valid.getQueueCapacity(),
+                valid.getMaxAttempts(), valid.getBackoffMillis(), valid.getMaxBackoffMillis());
+
+        CompletableFuture<Void> result = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            try (MailDispatcher dispatcher = new MailDispatcher(invalid)) {
+                return dispatcher.submit(message(1, "a@example.com"));
+            }
+        });
+        ExecutionException e = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+    }
+
+    @Test
+    void portOutOfRangeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> settings(0, 1, 100));
+        assertThrows(IllegalArgumentException.class, () -> settings(65536, 1, 100));
+        assertEquals(65535, settings(65535, 1, 100).getPort());
+    }
+
+    private static MailSettings settings(int port, int connections, int messagesPerSession) {
+        Properties props = new Properties();
+        props.setProperty("smtp.host", "127.0.0.1");
+        props.setProperty("smtp.port", String.valueOf(port));
+        props.setProperty("smtp.username", "alert");
+        props.setProperty("smtp.password", "secret");
+        props.setProperty("from", "alert@example.com");
+        props.setProperty("pool.connections", String.valueOf(connections));
+        props.setProperty("pool.messagesPerSession", String.valueOf(messagesPerSession));
+        props.setProperty("queue.capacity", "50");
+        props.setProperty("retry.maxAttempts", "3");
+        props.setProperty("retry.backoff", "20");
+        props.setProperty("retry.maxBackoff", "100");
+        return MailSettings.parse(props, "test");
+    }
+
+    private static MailMessage message(int i, String... recipients) {
+        MailMessage message = new MailMessage();
+        message.setLabel("第" + i + "封");
+        message.setRecipients(Arrays.asList(recipients));
+        // 较长的中文主题需要折行编码，正文中有以点开头的行需要点填充
+        message.setSubject("人月框架协议进度提醒 - 第" + i + "封，这是一个较长的中文主题，用来检查多字节字符的折行编码");
+        StringBuilder html = new StringBuilder("<html><body>\n");
+        for (int k = 0; k < 100; k++) {
+            html.append(".<td>第").append(k).append("行</td>\n");
+        }
+        message.setHtml(html.append("</body></html>").toString());
+        return message;
+    }
+
+    private static SmtpException failure(CompletableFuture<Void> result) {
+        ExecutionException e = assertThrows(ExecutionException.class, result::get);
+        return assertInstanceOf(SmtpException.class, e.getCause());
+    }
+}
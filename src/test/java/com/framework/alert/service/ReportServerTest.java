@@ -0,0 +1,156 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.CompactAgreementStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportServerTest {
+    private static final Path WORKBOOK = Paths.get("2026年有时限要求事项清单.xlsx");
+
+    @TempDir
+    Path directory;
+
+    private Path workbook;
+    private ReportServer server;
+
+    @BeforeEach
+    void start() throws Exception {
+        workbook = Files.copy(WORKBOOK, directory.resolve(WORKBOOK.getFileName()));
+        server = new ReportServer(workbook, AgreementSource.forFile(workbook.toString()), new AlertAnalyzer(), 0, 2);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+    }
+
+    @Test
+    void unchangedPageIsNotModified() throws Exception {
+        Response first = get("/", null, null);
+        assertEquals(200, first.status);
+        assertTrue(first.contentType.startsWith("text/html"));
+        assertNull(first.contentEncoding);
+        assertNotNull(first.etag);
+        assertTrue(first.text().contains("<html"));
+
+        Response second = get("/", null, first.etag);
+        assertEquals(304, second.status);
+        assertEquals(first.etag, second.etag);
+        assertEquals(0, second.body.length);
+    }
+
+    @Test
+    void gzipHasItsOwnEtag() throws Exception {
+        Response plain = get("/", null, null);
+        Response gzip = get("/", "gzip, deflate", null);
+        assertEquals(200, gzip.status);
+        assertEquals("gzip", gzip.contentEncoding);
+        assertTrue(gzip.etag.endsWith("-gz\""));
+        assertNotEquals(plain.etag, gzip.etag);
+        assertEquals(plain.text(), gunzip(gzip.body));
+
+        // 原文的ETag不能用来校验压缩后的表示
+        assertEquals(200, get("/", "gzip", plain.etag).status);
+        assertEquals(304, get("/", "gzip", gzip.etag).status);
+    }
+
+    @Test
+    void departmentAndPersonPages() throws Exception {
+        CompactAgreementStore store = AgreementSource.forFile(workbook.toString()).readCompact(workbook.toString());
+        String department = store.get(0).getResponsibleDepartment();
+
+        Response page = get("/department/" + encode(department), null, null);
+        assertEquals(200, page.status);
+        assertTrue(page.text().contains(department));
+        assertNotEquals(get("/", null, null).etag, page.etag);
+
+        // 有提醒事项的经办人才有个人页面
+        String person = new PersonDigestGenerator(new AlertAnalyzer(), new EmailGenerator(), 1)
+                .analyzeAll(store, new Date()).keySet().iterator().next();
+        Response digest = get("/person/" + encode(person), null, null);
+        assertEquals(200, digest.status);
+        assertTrue(digest.text().contains(person));
+
+        assertEquals(404, get("/department/" + encode("没有这个科室"), null, null).status);
+        assertEquals(404, get("/person/" + encode("没有这个人"), null, null).status);
+        assertEquals(404, get("/reports", null, null).status);
+    }
+
+    private Response get(String path, String acceptEncoding, String ifNoneMatch) throws IOException {
+        URL url = new URL("http", "127.0.0.1", server.getPort(), path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            if (acceptEncoding != null) {
+                connection.setRequestProperty("Accept-Encoding", acceptEncoding);
+            }
+            if (ifNoneMatch != null) {
+                connection.setRequestProperty("If-None-Match", ifNoneMatch);
+            }
+            Response response = new Response();
+            response.status = connection.getResponseCode();
+            response.contentType = connection.getContentType();
+            response.contentEncoding = connection.getContentEncoding();
+            response.etag = connection.getHeaderField("ETag");
+            InputStream in = response.status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            response.body = in != null ? readAll(in) : new byte[0];
+            return response;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String encode(String segment) throws IOException {
+        return URLEncoder.encode(segment, "UTF-8").replace("+", "%20");
+    }
+
+    private static String gunzip(byte[] body) throws IOException {
+        return new String(readAll(new GZIPInputStream(new ByteArrayInputStream(body))), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = input.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static final class Response {
+        int status;
+        String contentType;
+        String contentEncoding;
+        String etag;
+        byte[] body;
+
+        String text() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.framework.alert.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SentAlertLogTest {
+    private static final int DAY = 20500;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sentAlertIsSuppressedUntilItEscalates() throws Exception {
+        Path path = directory.resolve("agreements.xlsx.sent");
+        try (SentAlertLog log = SentAlertLog.open(path)) {
+            assertTrue(log.offer("1", "采购阶段", "张三", 2, DAY));
+            log.finishRun();
+        }
+        try (SentAlertLog log = SentAlertLog.open(path)) {
+            assertFalse(log.offer("1", "采购阶段", "张三", 2, DAY + 1));
+            // 进入下一个阶段、紧急程度升高时再次提醒
+            assertTrue(log.offer("1", "签约阶段", "张三", 2, DAY + 1));
+            assertTrue(log.offer("1", "采购阶段", "张三", 1, DAY + 1));
+            log.finishRun();
+        }
+        try (SentAlertLog log = SentAlertLog.open(path)) {
+            assertFalse(log.offer("1", "采购阶段", "张三", 1, DAY + 2));
+            // 紧急程度降低不提醒，之后再升高时仍会提醒
+            assertFalse(log.offer("1", "签约阶段", "张三", 3, DAY + 2));
+            log.finishRun();
+        }
+        try (SentAlertLog log = SentAlertLog.open(path)) {
+            assertTrue(log.offer("1", "签约阶段", "张三", 2, DAY + 3));
+            log.finishRun();
+        }
+        try (SentAlertLog log = SentAlertLog.open(path)) {
+            // 上次运行没有出现的提醒已清除，再次出现时重新提醒
+            assertEquals(1, log.size());
+            assertTrue(log.offer("1", "采购阶段", "张三", 1, DAY + 4));
+        }
+    }
+
+    @Test
+    void truncatedTailRecordIsDropped() throws Exception {
+        Path path = directory.resolve("agreements.xlsx.sent");
+        try (SentAlertLog log = SentAlertLog.open(path)) {
+            log.offer("1", "采购阶段", "张三", 2, DAY);
+            log.offer("2", "采购阶段", "李四", 2, DAY);
+            log.finishRun();
+        }
+        Path complete = Files.copy(path, directory.resolve("complete"));
+        long size = Files.size(complete);
+
+        // 最后一条提醒记录：类型、三个编号、日期（3字节varint）、紧急程度，共8字节
+        for (int cut = 1; cut < 8; cut++) {
+            Files.copy(complete, path, StandardCopyOption.REPLACE_EXISTING);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(size - cut);
+            }
+
+            try (SentAlertLog log = SentAlertLog.open(path)) {
+                assertEquals(1, log.size(), "cut " + cut);
+                assertFalse(log.offer("1", "采购阶段", "张三", 2, DAY + 1));
+                assertTrue(log.offer("2", "采购阶段", "李四", 2, DAY + 1));
+                log.finishRun();
+            }
+            try (SentAlertLog log = SentAlertLog.open(path)) {
+                assertEquals(2, log.size(), "cut " + cut);
+                assertFalse(log.offer("1", "采购阶段", "张三", 2, DAY + 2));
+                assertFalse(log.offer("2", "采购阶段", "李四", 2, DAY + 2));
+            }
+        }
+    }
+
+    /**
+     * 每次运行都改变紧急程度并清除一部分提醒，记录数超过阈值后压缩；压缩后重新打开，每个事项保留的是最后一次的状态
+     */
+    @Test
+    void compactionKeepsLatestStatePerKey() throws Exception {
+        Path path = directory.resolve("agreements.xlsx.sent");
+        Map<String, Integer> expected = new HashMap<>();
+        boolean compacted = false;
+        long previousSize = 0;
+
+        for (int run = 0; run < 30; run++) {
+            expected.clear();
+            try (SentAlertLog log = SentAlertLog.open(path)) {
+                for (int i = 0; i < 100; i++) {
+                    if ((i + run) % 7 == 0) {
+                        continue; // 本次没有出现，写清除记录
+                    }
+                    int level = 1 + (i + run) % 3;
+                    log.offer(String.valueOf(i), "采购阶段", "经办人" + i % 10, level, DAY + run);
+                    expected.put(String.valueOf(i), level);
+                }
+                log.finishRun();
+            }
+            long size = Files.size(path);
+            compacted |= size < previousSize;
+            previousSize = size;
+        }
+        assertTrue(compacted);
+
+        try (SentAlertLog log = SentAlertLog.open(path)) {
+            assertEquals(expected.size(), log.size());
+            for (int i = 0; i < 100; i++) {
+                String agreement = String.valueOf(i);
+                String person = "经办人" + i % 10;
+                Integer level = expected.get(agreement);
+                if (level == null) {
+                    assertTrue(log.offer(agreement, "采购阶段", person, 3, DAY + 30), agreement);
+                } else {
+                    assertFalse(log.offer(agreement, "采购阶段", person, level, DAY + 30), agreement);
+                    assertTrue(log.offer(agreement, "采购阶段", person, level - 1, DAY + 30), agreement);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.CompactAgreementStore;
+import com.framework.alert.model.FrameworkAgreement;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 测试用的随机记录：科室、经办人、进度取值较少，日期分布在2025年起约四年内，各字段都有一部分为空
+ */
+final class TestAgreements {
+    static final String[] DEPARTMENTS = {"规划科", "开发一科", "开发二科", "测试科", "运维科"};
+    static final String[] PROGRESSES = {"未启动", "立项中", "已完成立项", "采购中", "已完成采购", "合同签订中", "已完成"};
+    static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 1);
+
+    private TestAgreements() {
+    }
+
+    static CompactAgreementStore randomStore(Random random, int count) {
+        return CompactAgreementStore.from(random(random, count));
+    }
+
+    static List<FrameworkAgreement> random(Random random, int count) {
+        List<FrameworkAgreement> agreements = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            FrameworkAgreement agreement = new FrameworkAgreement();
+            agreement.setId(i + 1);
+            agreement.setSystemName("系统" + i);
+            agreement.setResponsibleDepartment(random.nextInt(20) == 0 ? null : DEPARTMENTS[random.nextInt(DEPARTMENTS.length)]);
+            agreement.setBusinessDepartment(DEPARTMENTS[random.nextInt(DEPARTMENTS.length)]);
+            agreement.setResponsiblePerson(random.nextInt(20) == 0 ? null : "经办" + random.nextInt(20));
+            agreement.setCurrentProgress(random.nextInt(10) == 0 ? null : PROGRESSES[random.nextInt(PROGRESSES.length)]);
+            agreement.setPreviousAgreementExpiry(random.nextInt(3) == 0 ? null : randomDate(random));
+            agreement.setPlannedApprovalDate(random.nextInt(4) == 0 ? null : randomDate(random));
+            agreement.setPlannedPurchaseDate(random.nextInt(4) == 0 ? null : randomDate(random));
+            agreement.setPlannedContractDate(random.nextInt(4) == 0 ? null : randomDate(random));
+            agreements.add(agreement);
+        }
+        return agreements;
+    }
+
+    static Date randomDate(Random random) {
+        return toDate(FIRST_DAY.plusDays(random.nextInt(1500)));
+    }
+
+    static Date toDate(LocalDate day) {
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
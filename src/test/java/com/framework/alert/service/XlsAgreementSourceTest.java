@@ -0,0 +1,106 @@
+package com.framework.alert.service;
+
+import com.framework.alert.model.FrameworkAgreement;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * 示例清单分别另存为.xlsx和.xls，HssfSheetReader读到的记录与StreamingSheetReader读到的相同。
+ * 每隔一行把单元格写成返回原值的公式，覆盖公式缓存结果（数字、字符串）的解码
+ */
+class XlsAgreementSourceTest {
+    private static final Path WORKBOOK = Paths.get("2026年有时限要求事项清单.xlsx");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsSameAgreementsAsXlsx() throws Exception {
+        Path xlsx = directory.resolve("agreements.xlsx");
+        Path xls = directory.resolve("agreements.xls");
+        try (InputStream in = Files.newInputStream(WORKBOOK);
+             Workbook source = new XSSFWorkbook(in);
+             Workbook xlsxCopy = new XSSFWorkbook();
+             Workbook xlsCopy = new HSSFWorkbook()) {
+            save(copy(source, xlsxCopy), xlsx);
+            save(copy(source, xlsCopy), xls);
+        }
+
+        List<FrameworkAgreement> expected = AgreementSource.forFile(xlsx.toString()).readAgreements(xlsx.toString());
+        List<FrameworkAgreement> actual = AgreementSource.forFile(xls.toString()).readAgreements(xls.toString());
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i), "record " + i);
+        }
+    }
+
+    private static Workbook copy(Workbook source, Workbook target) {
+        CellStyle dateStyle = target.createCellStyle();
+        dateStyle.setDataFormat(target.createDataFormat().getFormat("yyyy-mm-dd"));
+
+        for (int i = 0; i < source.getNumberOfSheets(); i++) {
+            Sheet sheet = source.getSheetAt(i);
+            Sheet copy = target.createSheet(sheet.getSheetName());
+            for (Row row : sheet) {
+                Row copyRow = copy.createRow(row.getRowNum());
+                boolean formulas = row.getRowNum() % 2 == 1;
+                for (Cell cell : row) {
+                    Cell copyCell = copyRow.createCell(cell.getColumnIndex());
+                    switch (cell.getCellType()) {
+                        case STRING:
+                            String text = cell.getStringCellValue();
+                            if (formulas && text.length() < 200) {
+                                copyCell.setCellFormula("\"" + text.replace("\"", "\"\"") + "\"");
+                            } else {
+                                copyCell.setCellValue(text);
+                            }
+                            break;
+                        case NUMERIC:
+                            double value = cell.getNumericCellValue();
+                            if (formulas) {
+                                copyCell.setCellFormula(String.valueOf(value));
+                            } else {
+                                copyCell.setCellValue(value);
+                            }
+                            if (DateUtil.isCellDateFormatted(cell)) {
+                                copyCell.setCellStyle(dateStyle);
+                            }
+                            break;
+                        case BOOLEAN:
+                            copyCell.setCellValue(cell.getBooleanCellValue());
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+        }
+        target.getCreationHelper().createFormulaEvaluator().evaluateAll();
+        return target;
+    }
+
+    private static void save(Workbook workbook, Path file) throws Exception {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            workbook.write(out);
+        }
+    }
+}